@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+export LC_ALL=C.UTF-8
+
+RESULTS_DIR="benchmarks"
+
+if [[ "${1:-}" == "--compare" ]]; then
+  if [[ $# -ne 3 ]]; then
+    echo "Usage: $0 --compare <baseline.json> <candidate.json>"
+    exit 1
+  fi
+  python3 src/jmh/python/compare_benchmarks.py "$2" "$3"
+  exit 0
+fi
+
+INCLUDES="${1:-.*}"
+REVISION=$(git rev-parse --short HEAD)
+if ! git diff-index HEAD --quiet; then
+  echo -e "\033[0;31mWARNING: Uncommitted changes detected, results are tagged as ${REVISION}-dirty.\033[0m"
+  REVISION="${REVISION}-dirty"
+fi
+
+mkdir -p "$RESULTS_DIR"
+RESULT_FILE="${RESULTS_DIR}/${REVISION}.json"
+
+mvn -B -Pbenchmark -DskipTests test-compile exec:exec \
+  -Djmh.includes="$INCLUDES" \
+  -Djmh.result="$(pwd)/${RESULT_FILE}"
+
+echo "Benchmark results saved to ${RESULT_FILE}"
+echo "Compare against another revision with: $0 --compare ${RESULTS_DIR}/<revision>.json ${RESULT_FILE}"
@@ -0,0 +1,85 @@
+package com.lucas.server.benchmark;
+
+import com.lucas.server.common.Constants.KpiEngine;
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.common.jpa.DataManager.SymbolPayload;
+import com.lucas.server.components.tradingbot.marketdata.service.KpiCache;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator;
+import com.lucas.server.components.tradingbot.marketdata.service.PrimitiveKpiGenerator;
+import com.lucas.server.components.tradingbot.marketdata.service.ReportKpiProvider;
+import com.lucas.server.components.tradingbot.portfolio.service.PortfolioManager;
+import com.lucas.server.components.tradingbot.recommendation.mapper.AssetReportToMustacheMapper;
+import com.lucas.server.components.tradingbot.recommendation.mapper.AssetReportToMustacheMapper.AssetReportRaw;
+import com.lucas.server.components.tradingbot.recommendation.service.AssetReportDataProvider;
+import com.lucas.utils.exception.MappingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.lucas.server.common.Constants.MARKET_DATA_RELEVANT_DAYS_COUNT;
+
+/**
+ * Prompt construction for a chunk of assets: report data provision, KPIs included, and mustache rendering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssetReportBenchmark {
+
+    @Param({"5", "20", "80"})
+    private int assets;
+
+    @Param({"BIG_DECIMAL", "PRIMITIVE"})
+    private KpiEngine engine;
+
+    private AssetReportDataProvider provider;
+    private AssetReportToMustacheMapper mapper;
+    private List<SymbolPayload> payloads;
+    private Set<AssetReportRaw> reports;
+
+    @Setup
+    public void setUp() {
+        MarketDataKpiGenerator kpiGenerator = new MarketDataKpiGenerator(null, null);
+        provider = new AssetReportDataProvider(kpiGenerator,
+                // no cache entries, so every invocation computes the KPIs
+                new ReportKpiProvider(kpiGenerator, new PrimitiveKpiGenerator(), new KpiCache(0), engine),
+                new PortfolioManager());
+        mapper = new AssetReportToMustacheMapper();
+        payloads = new ArrayList<>();
+        for (int i = 0; i < assets; i++) {
+            SymbolDomain symbol = new SymbolDomain().setId((long) i).setName("SYM" + i);
+            payloads.add(new SymbolPayload(symbol,
+                    Fixtures.history(symbol, MARKET_DATA_RELEVANT_DAYS_COUNT, i),
+                    Fixtures.portfolio(symbol))
+                    .setNews(Fixtures.news(symbol, 5)));
+        }
+        reports = new LinkedHashSet<>(provide());
+    }
+
+    @Benchmark
+    public List<AssetReportRaw> provide() {
+        return payloads.stream().map(provider::provide).toList();
+    }
+
+    @Benchmark
+    public String map() throws MappingException {
+        return mapper.map(reports);
+    }
+}
@@ -0,0 +1,106 @@
+package com.lucas.server.benchmark;
+
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.jpa.MarketData;
+import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import com.lucas.server.components.tradingbot.portfolio.dto.PortfolioDomain;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static com.lucas.server.common.Constants.FIXED_DATE;
+
+/**
+ * Synthetic, seeded fixtures, so every run and every commit benchmarks the same data.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param symbol symbol
+     * @param bars   number of consecutive daily entries
+     * @param seed   random walk seed
+     * @return random walk history, newest first, with gains, losses and ATR set on the newest entry
+     */
+    public static OrderedIndexedSet<MarketDataDomain> history(SymbolDomain symbol, int bars, long seed) {
+        Random random = new Random(seed);
+        OrderedIndexedSet<MarketDataDomain> history = new OrderedIndexedSetImpl<>();
+        double close = 100 + random.nextDouble() * 50;
+        for (int i = 0; i < bars; i++) {
+            double previousClose = close * (1 + (random.nextDouble() - 0.5) * 0.04);
+            double open = previousClose * (1 + (random.nextDouble() - 0.5) * 0.01);
+            history.add(new MarketDataDomain().setSymbol(symbol)
+                    .setDate(FIXED_DATE.toLocalDate().minusDays(i))
+                    .setOpen(decimal(open))
+                    .setHigh(decimal(Math.max(open, close) * (1 + random.nextDouble() * 0.01)))
+                    .setLow(decimal(Math.min(open, close) * (1 - random.nextDouble() * 0.01)))
+                    .setPrice(decimal(close))
+                    .setPreviousClose(decimal(previousClose))
+                    .setVolume(1_000_000L + random.nextLong(9_000_000L)));
+            close = previousClose;
+        }
+        history.getFirst()
+                .setAverageGain(new BigDecimal("1.2345"))
+                .setAverageLoss(new BigDecimal("0.9876"))
+                .setAtr(new BigDecimal("2.5000"));
+        return OrderedIndexedSet.copyOf(history);
+    }
+
+    /**
+     * @param history market data history
+     * @return the same history as entities
+     */
+    public static OrderedIndexedSet<MarketData> entities(OrderedIndexedSet<MarketDataDomain> history) {
+        return history.stream()
+                .map(md -> new MarketData().setDate(md.getDate())
+                        .setOpen(md.getOpen())
+                        .setHigh(md.getHigh())
+                        .setLow(md.getLow())
+                        .setPrice(md.getPrice())
+                        .setPreviousClose(md.getPreviousClose())
+                        .setVolume(md.getVolume()))
+                .collect(OrderedIndexedSet.toUnmodifiableOrderedIndexedSet());
+    }
+
+    /**
+     * @param symbol symbol
+     * @param count  number of articles
+     * @return news with sentiment, newest first
+     */
+    public static OrderedIndexedSet<NewsDomain> news(SymbolDomain symbol, int count) {
+        OrderedIndexedSet<NewsDomain> news = new OrderedIndexedSetImpl<>();
+        for (int i = 0; i < count; i++) {
+            news.add(new NewsDomain().setExternalId(symbol.getId() * 1_000 + i)
+                    .addSymbol(symbol)
+                    .setDate(FIXED_DATE.minusHours(i * 6L))
+                    .setHeadline(symbol.getName() + " headline " + i)
+                    .setSummary("Synthetic summary " + i + " about " + symbol.getName()
+                            + ", long enough to resemble what the news providers return for a regular article.")
+                    .setSentiment(0 == i % 2 ? "positive" : "negative")
+                    .setSentimentConfidence(new BigDecimal("87.5000")));
+        }
+        return OrderedIndexedSet.copyOf(news);
+    }
+
+    /**
+     * @param symbol symbol
+     * @return open position on the symbol
+     */
+    public static PortfolioDomain portfolio(SymbolDomain symbol) {
+        return new PortfolioDomain().setSymbol(symbol)
+                .setQuantity(new BigDecimal("12.5000"))
+                .setAverageCost(new BigDecimal("120.0000"))
+                .setAverageCommission(new BigDecimal("0.0010"))
+                .setEffectiveTimestamp(FIXED_DATE);
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,113 @@
+package com.lucas.server.benchmark;
+
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.jpa.MarketData;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import com.lucas.server.components.tradingbot.marketdata.service.PrimitiveKpiGenerator;
+import com.lucas.server.components.tradingbot.marketdata.service.PrimitiveKpiGenerator.Series;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every KPI of {@link MarketDataKpiGenerator} over histories of increasing size. Windowed KPIs span the whole history,
+ * MACD and signal line keep their report sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KpiBenchmark {
+
+    @Param({"34", "100", "1000"})
+    private int bars;
+
+    private MarketDataKpiGenerator kpiGenerator;
+    private PrimitiveKpiGenerator primitiveKpiGenerator;
+    private OrderedIndexedSet<MarketDataDomain> history;
+    private OrderedIndexedSet<MarketData> entities;
+    private Series series;
+
+    @Setup
+    public void setUp() {
+        // the repository and mapper are only needed to compute and persist derived fields
+        kpiGenerator = new MarketDataKpiGenerator(null, null);
+        primitiveKpiGenerator = new PrimitiveKpiGenerator();
+        history = Fixtures.history(new SymbolDomain().setId(1L).setName("AAPL"), bars, 42);
+        entities = Fixtures.entities(history);
+        series = Series.of(history);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> movingAverage() {
+        return kpiGenerator.computeMovingAverage(entities, bars);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> ema() {
+        return kpiGenerator.computeEma(history, bars);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> macdLine() {
+        return kpiGenerator.computeMacdLine(history, 12, 26);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> signalLine() {
+        return kpiGenerator.computeSignalLine(history, 9, 12, 26);
+    }
+
+    @Benchmark
+    public BigDecimal rsi() {
+        return kpiGenerator.computeRsi(history.getFirst());
+    }
+
+    @Benchmark
+    public BigDecimal relativeAtr() {
+        return kpiGenerator.computeRelativeAtr(history.getFirst());
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> volatility() {
+        return kpiGenerator.computeVolatility(entities, bars);
+    }
+
+    @Benchmark
+    public Optional<BigDecimal> obv() {
+        return kpiGenerator.computeObv(history, bars);
+    }
+
+    @Benchmark
+    public ReportKpis reportKpis() {
+        return kpiGenerator.computeReportKpis(history);
+    }
+
+    @Benchmark
+    public ReportKpis primitiveReportKpis() {
+        return primitiveKpiGenerator.computeReportKpis(history);
+    }
+
+    @Benchmark
+    public OptionalDouble primitiveVolatility() {
+        return primitiveKpiGenerator.computeVolatility(series, bars);
+    }
+}
@@ -0,0 +1,43 @@
+import json
+import sys
+
+
+def load(path):
+    with open(path, encoding="utf-8") as f:
+        results = json.load(f)
+    scores = {}
+    for result in results:
+        params = ",".join(f"{k}={v}" for k, v in sorted(result.get("params", {}).items()))
+        key = result["benchmark"].rsplit(".", 2)[-2] + "." + result["benchmark"].rsplit(".", 1)[-1]
+        if params:
+            key += f" [{params}]"
+        metric = result["primaryMetric"]
+        scores[key] = (metric["score"], metric["scoreError"], metric["scoreUnit"])
+    return scores
+
+
+def main():
+    if len(sys.argv) != 3:
+        print(f"Usage: python {sys.argv[0]} <baseline.json> <candidate.json>")
+        sys.exit(1)
+    baseline = load(sys.argv[1])
+    candidate = load(sys.argv[2])
+    width = max(len(k) for k in baseline.keys() | candidate.keys())
+    print(f"{'benchmark'.ljust(width)}  {'baseline':>14}  {'candidate':>14}  {'change':>8}")
+    for key in sorted(baseline.keys() | candidate.keys()):
+        before = baseline.get(key)
+        after = candidate.get(key)
+        if before is None or after is None:
+            present = before or after
+            side = "baseline only" if after is None else "candidate only"
+            print(f"{key.ljust(width)}  {present[0]:>14.3f}  {side:>23} {present[2]}")
+            continue
+        change = (after[0] - before[0]) / before[0] * 100 if before[0] else float("nan")
+        # differences within the combined error margins are noise
+        noise = abs(after[0] - before[0]) <= before[1] + after[1]
+        print(f"{key.ljust(width)}  {before[0]:>14.3f}  {after[0]:>14.3f}  {change:>+7.1f}%"
+              f"{' (noise)' if noise else ''} {after[2]}")
+
+
+if __name__ == "__main__":
+    main()
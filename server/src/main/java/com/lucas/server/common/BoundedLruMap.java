@@ -0,0 +1,47 @@
+package com.lucas.server.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Access ordered map that evicts its least recently used entry once it grows past its bound. Like any
+ * {@link LinkedHashMap}, it is not synchronized, and reads reorder it, so every access must hold the owner's lock.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedLruMap<K, V> extends LinkedHashMap<K, V> {
+
+    private final int maxEntries;
+    private long evictions;
+
+    /**
+     * @param maxEntries entries kept
+     */
+    public BoundedLruMap(int maxEntries) {
+        super(16, 0.75f, true);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return entries evicted since creation or the last {@link #clear()}
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        evictions = 0;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        boolean evict = size() > maxEntries;
+        if (evict) {
+            evictions++;
+        }
+        return evict;
+    }
+}
@@ -74,6 +74,7 @@ public final class Constants {
     public static final int DATABASE_NEWS_PER_SYMBOL = 20;
     public static final int DATABASE_MARKET_DATA_PER_SYMBOL = 100;
     public static final int DATABASE_RECOMMENDATIONS_PER_SYMBOL = 30;
+    public static final int DATABASE_PARTITION_MONTHS_AHEAD = 3;
     public static final int MAX_RECOMMENDATIONS_COUNT = 80;
     public static final int REQUEST_MAX_ATTEMPTS = 2;
     public static final int RECOMMENDATION_MAX_ATTEMPTS = 5;
@@ -83,6 +84,7 @@ public final class Constants {
 
     public static final BigDecimal RECOMMENDATION_MEDIUM_GRAIN_THRESHOLD = BigDecimal.valueOf(0.5);
     public static final BigDecimal RECOMMENDATION_FINE_GRAIN_THRESHOLD = BigDecimal.valueOf(0.5);
+    public static final BigDecimal KPI_DRIFT_TOLERANCE = new BigDecimal("0.0001");
     public static final String SHEET_CORNERS = "UFR";
     public static final String SHEET_EDGES = "UF";
     public static final String SHEET_PARITY = "Parity";
@@ -93,11 +95,13 @@ public final class Constants {
     public static final String COMPANY_NEWS = "/company-news";
     public static final String QUOTE = "/quote";
     public static final String TIME_SERIES = "/time_series";
-    public static final String ANALYZE = "/analyze";
+    public static final String ANALYZE_BATCH = "/analyze/batch";
     public static final String SYMBOL = "symbol";
     public static final String PARTS = "parts";
     public static final String CONTENT = "content";
     public static final String ROLE = "role";
+    public static final String THINK_END = "</think>";
+    public static final String STREAM_DONE = "[DONE]";
     public static final String BUY = "BUY";
     public static final String MARKET_DATA = "market data";
     public static final String MARKET_SNAPSHOT = "market snapshot";
@@ -111,17 +115,34 @@ public final class Constants {
     public static final String SUDOKU_IGNORED_MALFORMED_JSON_WARN = "Couldn't deserialize sudoku from raw data {}";
     public static final String KPI_RETURNED_ZERO_WARN = "Value is zero for {}, {}";
     public static final String NON_COMPUTABLE_KPI_WARN = "Error attempting to compute {} for {}";
+    public static final String KPI_ENGINE_DRIFT_WARN = "KPI engines drift on {} for {}: {} vs {}";
     public static final String CLIENT_FAILED_BACKUP_WARN = "{} failed when trying to process {}";
     public static final String MARKET_STILL_OPEN_WARN = "Market is still open!";
     public static final String RETRIEVAL_FAILED_WARN = "Error generating {} {}";
     public static final String NEWS_SERIALIZATION_WARN = "Some news were lost in conversion for symbol {}";
+    public static final String PIPELINE_BATCH_FAILED_WARN = "Pipeline {} stage {} failed to process {}";
+    public static final String PIPELINE_ITEM_DROPPED_WARN = "Pipeline {} stage {} gave up on {} after {} attempts";
+    public static final String AI_CLIENT_THROTTLED_WARN =
+            "{} was throttled, pausing it until {} and lowering its rate to {} requests per minute";
+    public static final String AI_CLIENT_QUARANTINED_WARN = "{} keeps failing, quarantining it until {}";
+    public static final String COMPLETION_REPLAY_FAILED_WARN = "Cached completion of {} could not be replayed";
+    public static final String COMPLETION_CACHING_FAILED_WARN = "Completion of {} could not be cached";
+    public static final String PARTIAL_RECOMMENDATIONS_WARN = "Recommendations were interrupted, {} left to retry";
     public static final String SCHEDULED_TASK_SUCCESS_INFO = "Successfully {}: {}";
     public static final String RETRIEVING_DATA_INFO = "Retrieving {} for {}";
     public static final String PROMPTING_MODEL_INFO = "Prompting model {}";
     public static final String GENERATION_SUCCESSFUL_INFO = "Successfully generated {}";
+    public static final String MARKET_DATA_UP_TO_DATE_INFO = "Market data for {} is up to date as of {}";
+    public static final String SENTIMENT_CACHE_STATS_INFO = "Sentiment cache hit rate {}: {}";
+    public static final String PIPELINE_STAGE_SUMMARY_INFO =
+            "Pipeline {} stage {}: {} processed, {} retried, {} dropped";
+    public static final String AI_CLIENT_RECOVERED_INFO = "{} is back from quarantine";
+    public static final String COMPLETION_REPLAYED_INFO = "Replaying cached completion of {}";
     public static final String RECOMMENDATION_COMPLETION_ERROR = "Failed to get recommendations. Completion: {0}";
+    public static final String AI_STREAM_ERROR = "{0} failed mid-stream: {1}";
     public static final String NO_YAHOO_NEWS_ERROR = "No news found in document {0}";
     public static final String MAPPING_ERROR = "Error mapping {0}";
+    public static final String MALFORMED_STREAM_ERROR = "Unexpected {0} in streamed completion";
     public static final String INSUFFICIENT_STOCK_ERROR = "{0}: Nothing to sell";
     public static final String SYMBOL_NOT_FOUND_ERROR = "{0}: Unknown symbol";
     public static final String AMERICA_NY = "America/New_York";
@@ -924,6 +945,12 @@ public final class Constants {
         }
     }
 
+    public enum KpiEngine {
+        BIG_DECIMAL,
+        PRIMITIVE,
+        PARITY
+    }
+
     public enum AiProvider {
         GITHUB,
         OPENROUTER,
@@ -1,30 +1,45 @@
 package com.lucas.server.common;
 
 import com.lucas.server.common.exception.ClientException;
+import com.lucas.server.common.exception.ThrottledException;
+import com.lucas.utils.exception.MappingException;
 import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.w3c.dom.Document;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import tools.jackson.databind.JsonNode;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
 import java.time.Duration;
 import java.util.List;
-import java.util.Objects;
+import java.util.function.Consumer;
 
 @Component
 @RequiredArgsConstructor
 public class HttpRequestClient {
 
     private static final Duration RESPONSE_TIMEOUT = Duration.ofMinutes(1);
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SERVER_SENT_EVENTS =
+            new ParameterizedTypeReference<>() {
+            };
+    // response buffers requested ahead of the parser
+    private static final int XML_BUFFER_DEMAND = 4;
 
     private final WebClient webClient;
-    private final DocumentBuilderFactory documentBuilderFactory;
+    private final XMLInputFactory xmlInputFactory;
 
     public JsonNode get(String url, boolean mockUserAgent) throws ClientException {
         HttpHeaders headers = new HttpHeaders();
@@ -45,19 +60,32 @@ public class HttpRequestClient {
         }
     }
 
-    public Document get(String url) throws ClientException {
+    /**
+     * Parses the response as it arrives, without buffering it whole. Once the mapper returns, the rest of the response
+     * is discarded.
+     *
+     * @param url    url
+     * @param mapper reads the response elements it needs
+     * @return the mapped response
+     */
+    public <T> T get(String url, XmlStreamMapper<T> mapper) throws ClientException, MappingException {
         HttpHeaders headers = new HttpHeaders();
         headers.setAccept(List.of(MediaType.APPLICATION_XML, MediaType.TEXT_XML));
         mockUserAgent(headers);
-        try {
-            return documentBuilderFactory.newDocumentBuilder()
-                    .parse(new ByteArrayInputStream(Objects.requireNonNull(webClient.get()
-                            .uri(url)
-                            .headers(h -> h.addAll(headers))
-                            .retrieve()
-                            .bodyToMono(String.class)
-                            .timeout(RESPONSE_TIMEOUT)
-                            .block()).getBytes(StandardCharsets.UTF_8)));
+        try (InputStream body = DataBufferUtils.subscriberInputStream(webClient.get()
+                .uri(url)
+                .headers(h -> h.addAll(headers))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .timeout(RESPONSE_TIMEOUT), XML_BUFFER_DEMAND)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(body);
+            try {
+                return mapper.map(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (MappingException e) {
+            throw e;
         } catch (Exception e) {
             throw new ClientException(e);
         }
@@ -81,8 +109,91 @@ public class HttpRequestClient {
 
     public JsonNode post(String url, @Nullable String apiKey, JsonNode body, boolean mockUserAgent)
             throws ClientException {
+        return post(url, apiKey, body, mockUserAgent, _ -> {
+        });
+    }
+
+    /**
+     * @param responseHeaders receives the headers of successful responses
+     * @throws ThrottledException if the server answers with 429 Too Many Requests
+     */
+    public JsonNode post(String url,
+                         @Nullable String apiKey,
+                         JsonNode body,
+                         boolean mockUserAgent,
+                         Consumer<HttpHeaders> responseHeaders) throws ClientException {
+        try {
+            return postAsync(url, apiKey, body, mockUserAgent, responseHeaders).block();
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            if (cause instanceof ClientException clientException) {
+                throw clientException;
+            }
+            throw new ClientException(cause);
+        }
+    }
+
+    /**
+     * Sends the request once subscribed to, without blocking.
+     *
+     * @param responseHeaders receives the headers of successful responses
+     * @return the response body, failing with {@link ThrottledException} if the server answers with 429 Too Many
+     * Requests, or with {@link ClientException} otherwise
+     */
+    public Mono<JsonNode> postAsync(String url,
+                                    @Nullable String apiKey,
+                                    JsonNode body,
+                                    boolean mockUserAgent,
+                                    Consumer<HttpHeaders> responseHeaders) {
+        return webClient.post()
+                .uri(url)
+                .headers(h -> h.addAll(postHeaders(apiKey, mockUserAgent, MediaType.APPLICATION_JSON)))
+                .bodyValue(body)
+                .retrieve()
+                .toEntity(JsonNode.class)
+                .timeout(RESPONSE_TIMEOUT)
+                .<JsonNode>handle((response, sink) -> {
+                    responseHeaders.accept(response.getHeaders());
+                    if (null != response.getBody()) {
+                        sink.next(response.getBody());
+                    }
+                })
+                .onErrorMap(e -> !(e instanceof ClientException), HttpRequestClient::toClientException);
+    }
+
+    /**
+     * Sends the request once subscribed to, without blocking, and reads the response as server-sent events while it
+     * arrives. Cancelling the subscription aborts the response.
+     *
+     * @param responseHeaders receives the headers of successful responses
+     * @return the data of each event, failing with {@link ThrottledException} if the server answers with 429 Too Many
+     * Requests, or with {@link ClientException} otherwise, including when no event arrives in time
+     */
+    public Flux<String> postStream(String url,
+                                   @Nullable String apiKey,
+                                   JsonNode body,
+                                   boolean mockUserAgent,
+                                   Consumer<HttpHeaders> responseHeaders) {
+        return webClient.post()
+                .uri(url)
+                .headers(h -> h.addAll(postHeaders(apiKey, mockUserAgent, MediaType.TEXT_EVENT_STREAM)))
+                .bodyValue(body)
+                .retrieve()
+                .toEntityFlux(SERVER_SENT_EVENTS)
+                .timeout(RESPONSE_TIMEOUT)
+                .flatMapMany(response -> {
+                    responseHeaders.accept(response.getHeaders());
+                    return null == response.getBody() ? Flux.<ServerSentEvent<String>>empty() : response.getBody();
+                })
+                // between events, as a stalled stream would otherwise hold its rate limit permits forever
+                .timeout(RESPONSE_TIMEOUT)
+                .mapNotNull(ServerSentEvent::data)
+                .onErrorMap(e -> !(e instanceof ClientException), HttpRequestClient::toClientException);
+    }
+
+    private static HttpHeaders postHeaders(@Nullable String apiKey, boolean mockUserAgent, MediaType accept) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.setAccept(List.of(accept));
         headers.setContentType(MediaType.APPLICATION_JSON);
         if (null != apiKey && !apiKey.isBlank()) {
             headers.setBearerAuth(apiKey);
@@ -90,18 +201,15 @@ public class HttpRequestClient {
         if (mockUserAgent) {
             mockUserAgent(headers);
         }
-        try {
-            return webClient.post()
-                    .uri(url)
-                    .headers(h -> h.addAll(headers))
-                    .bodyValue(body)
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .timeout(RESPONSE_TIMEOUT)
-                    .block();
-        } catch (Exception e) {
-            throw new ClientException(e);
+        return headers;
+    }
+
+    private static ClientException toClientException(Throwable e) {
+        if (e instanceof WebClientResponseException responseException
+            && HttpStatus.TOO_MANY_REQUESTS.isSameCodeAs(responseException.getStatusCode())) {
+            return new ThrottledException(responseException.getHeaders(), e);
         }
+        return new ClientException(e);
     }
 
     private static void mockUserAgent(HttpHeaders headers) {
@@ -109,4 +217,19 @@ public class HttpRequestClient {
                 "Mozilla/5.0 (Windows NT 10.0; Win64; x64) " + "AppleWebKit/537.36 (KHTML, like Gecko) "
                 + "Chrome/115.0.0.0 Safari/537.36");
     }
+
+    /**
+     * Maps a response while it is being parsed.
+     *
+     * @param <T> mapped type
+     */
+    @FunctionalInterface
+    public interface XmlStreamMapper<T> {
+
+        /**
+         * @param reader reader positioned at the start of the document
+         * @return the mapped response
+         */
+        T map(XMLStreamReader reader) throws MappingException;
+    }
 }
@@ -0,0 +1,15 @@
+package com.lucas.server.common.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+
+@Getter
+public class ThrottledException extends ClientException {
+
+    private final transient HttpHeaders headers;
+
+    public ThrottledException(HttpHeaders headers, Throwable cause) {
+        super(cause);
+        this.headers = headers;
+    }
+}
@@ -0,0 +1,141 @@
+package com.lucas.server.common.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Delegate for JPA services with unique constraints whose writes are too many for row by row persistence: IDENTITY
+ * generation keeps Hibernate from batching inserts. Rows are written with PostgreSQL {@code INSERT ... ON CONFLICT}
+ * in JDBC batches instead, then read back as managed entities. Stored rows are never overwritten, see
+ * {@link BulkUpsertJpaServiceDelegate} for that.
+ *
+ * @param <T> entity type
+ */
+public class BulkInsertJpaServiceDelegate<T extends JpaEntity> {
+
+    // the insert statement up to its conflict action
+    protected final String insertSql;
+    private final JpaRepository<T, ?> repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Function<T, Object[]> rowMapper;
+    private final int batchSize;
+
+    /**
+     * @param repository    entity repository
+     * @param jdbcTemplate  JDBC template. Joins the ongoing JPA transaction
+     * @param table         table name
+     * @param columns       inserted columns
+     * @param uniqueColumns columns of the unique constraint
+     * @param rowMapper     entity to values of the inserted columns, in order
+     * @param batchSize     statements per JDBC batch
+     */
+    public BulkInsertJpaServiceDelegate(JpaRepository<T, ?> repository,
+                                        JdbcTemplate jdbcTemplate,
+                                        String table,
+                                        List<String> columns,
+                                        List<String> uniqueColumns,
+                                        Function<T, Object[]> rowMapper,
+                                        int batchSize) {
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowMapper = rowMapper;
+        this.batchSize = batchSize;
+        insertSql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + columns.stream().map(_ -> "?").collect(Collectors.joining(", ")) + ") ON CONFLICT ("
+                + String.join(", ", uniqueColumns) + ")";
+    }
+
+    /**
+     * @param existingFinder unique entity finder function. Usually findByPrimaryKey
+     * @param entities       entities
+     * @return the newly saved entities
+     */
+    public Set<T> createIgnoringDuplicates(UnaryOperator<Set<T>> existingFinder, Set<T> entities) {
+        return createIgnoringDuplicates(existingFinder, UnaryOperator.identity(), (saved, _) -> saved, entities);
+    }
+
+    /**
+     * @param existingFinder   unique entity finder function. Usually findByPrimaryKey
+     * @param associationAdder copies the associations the inserted columns lack, such as many-to-many links, from the
+     *                         incoming entity onto the saved one
+     * @param entities         entities
+     * @return the newly saved entities
+     */
+    public Set<T> createIgnoringDuplicates(UnaryOperator<Set<T>> existingFinder,
+                                           BinaryOperator<T> associationAdder,
+                                           Set<T> entities) {
+        return createIgnoringDuplicates(existingFinder, UnaryOperator.identity(), associationAdder, entities);
+    }
+
+    /**
+     * Rows already stored are looked up before writing, as batched statements may not report the rows they affect.
+     * Rows a concurrent writer inserts in between are skipped by the conflict clause but still returned.
+     *
+     * @param existingFinder   unique entity finder function. Usually findByPrimaryKey
+     * @param preparer         completes the entities about to be inserted, e.g. with values derived from the stored
+     *                         rows
+     * @param associationAdder copies the associations the inserted columns lack, such as many-to-many links, from the
+     *                         incoming entity onto the saved one
+     * @param entities         entities
+     * @return the newly saved entities
+     */
+    public Set<T> createIgnoringDuplicates(UnaryOperator<Set<T>> existingFinder,
+                                           UnaryOperator<Set<T>> preparer,
+                                           BinaryOperator<T> associationAdder,
+                                           Set<T> entities) {
+        if (entities.isEmpty()) {
+            return Set.of();
+        }
+        Set<T> pending = new HashSet<>(entities);
+        pending.removeAll(existingFinder.apply(entities));
+        Set<T> prepared = pending.isEmpty() ? pending : preparer.apply(pending);
+        write(insertSql + " DO NOTHING", List.copyOf(prepared));
+        return reconcile(existingFinder, associationAdder, prepared);
+    }
+
+    protected void write(String sql, List<T> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        // pending inserts of referenced entities have to reach the database first
+        repository.flush();
+        jdbcTemplate.batchUpdate(sql, entities, batchSize, (ps, entity) -> {
+            Object[] values = rowMapper.apply(entity);
+            for (int i = 0; i < values.length; i++) {
+                ps.setObject(i + 1, values[i]);
+            }
+        });
+    }
+
+    /**
+     * Reads the written rows back as managed entities. Only what the written columns lack is copied onto them, as
+     * anything else would have Hibernate update the rows again one by one.
+     */
+    protected Set<T> reconcile(UnaryOperator<Set<T>> existingFinder,
+                               BinaryOperator<T> associationAdder,
+                               Set<T> written) {
+        if (written.isEmpty()) {
+            return Set.of();
+        }
+        Map<T, T> writtenMap = written.stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                Function.identity()));
+        List<T> res = new ArrayList<>();
+        for (T existing : existingFinder.apply(written)) {
+            T incoming = writtenMap.get(existing);
+            if (null != incoming) {
+                res.add(associationAdder.apply(existing, incoming));
+            }
+        }
+        return new HashSet<>(res);
+    }
+}
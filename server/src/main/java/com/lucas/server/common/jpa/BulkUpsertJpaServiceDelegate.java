@@ -0,0 +1,84 @@
+package com.lucas.server.common.jpa;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * {@link BulkInsertJpaServiceDelegate} that can also overwrite the stored rows on conflict.
+ *
+ * @param <T> entity type
+ */
+public class BulkUpsertJpaServiceDelegate<T extends JpaEntity> extends BulkInsertJpaServiceDelegate<T> {
+
+    private final EntityManager entityManager;
+    private final String upsertSql;
+
+    /**
+     * @param repository     entity repository
+     * @param entityManager  entity manager. Detaches the managed copies of the overwritten rows
+     * @param jdbcTemplate   JDBC template. Joins the ongoing JPA transaction
+     * @param table          table name
+     * @param columns        inserted columns
+     * @param uniqueColumns  columns of the unique constraint
+     * @param updatedColumns columns overwritten on conflict
+     * @param rowMapper      entity to values of the inserted columns, in order
+     * @param batchSize      statements per JDBC batch
+     */
+    public BulkUpsertJpaServiceDelegate(JpaRepository<T, ?> repository,
+                                        EntityManager entityManager,
+                                        JdbcTemplate jdbcTemplate,
+                                        String table,
+                                        List<String> columns,
+                                        List<String> uniqueColumns,
+                                        List<String> updatedColumns,
+                                        Function<T, Object[]> rowMapper,
+                                        int batchSize) {
+        super(repository, jdbcTemplate, table, columns, uniqueColumns, rowMapper, batchSize);
+        if (updatedColumns.isEmpty()) {
+            throw new IllegalArgumentException("No updated columns");
+        }
+        this.entityManager = entityManager;
+        upsertSql = insertSql + " DO UPDATE SET "
+                + updatedColumns.stream().map(c -> c + " = EXCLUDED." + c).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @param existingFinder unique entity finder function. Usually findByPrimaryKey
+     * @param entities       entities
+     * @return the updated entities as well as the newly saved ones
+     */
+    public Set<T> createOrUpdate(UnaryOperator<Set<T>> existingFinder, Set<T> entities) {
+        return createOrUpdate(existingFinder, (saved, _) -> saved, entities);
+    }
+
+    /**
+     * Managed copies of the rows about to be overwritten are detached first, so they are read back as written instead
+     * of as they were loaded.
+     *
+     * @param existingFinder   unique entity finder function. Usually findByPrimaryKey
+     * @param associationAdder copies the associations the updated columns lack, such as many-to-many links, from the
+     *                         incoming entity onto the saved one
+     * @param entities         entities
+     * @return the updated entities as well as the newly saved ones
+     */
+    public Set<T> createOrUpdate(UnaryOperator<Set<T>> existingFinder,
+                                 BinaryOperator<T> associationAdder,
+                                 Set<T> entities) {
+        if (entities.isEmpty()) {
+            return Set.of();
+        }
+        // changes pending on the detached copies would be lost otherwise
+        entityManager.flush();
+        existingFinder.apply(entities).forEach(entityManager::detach);
+        write(upsertSql, List.copyOf(entities));
+        return reconcile(existingFinder, associationAdder, entities);
+    }
+}
@@ -0,0 +1,127 @@
+package com.lucas.server.common.jpa;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Delegate for JPA services of per symbol time series tables range partitioned by month, as created by the
+ * {@code create_monthly_partitions} database function. Schemas generated by Hibernate are not partitioned, in which
+ * case no partition is created nor dropped.
+ */
+public class MonthlyPartitionJpaServiceDelegate {
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = to_regclass(?)
+            """;
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final Pattern partitionPattern;
+    private final String retentionCutoffSql;
+    private final String oldestDefaultSql;
+    private final String newestDefaultSql;
+
+    /**
+     * @param jdbcTemplate    JDBC template. Joins the ongoing JPA transaction
+     * @param table           partitioned table name
+     * @param partitionColumn date or timestamp column the table is partitioned by
+     * @throws IllegalArgumentException if the table or the column is not a plain lowercase identifier
+     */
+    public MonthlyPartitionJpaServiceDelegate(JdbcTemplate jdbcTemplate, String table, String partitionColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        partitionPattern = Pattern.compile(Pattern.quote(table) + "_p(\\d{4})_(\\d{2})");
+        String quotedColumn = quote(partitionColumn);
+        retentionCutoffSql = "SELECT min(" + quotedColumn + ")::DATE FROM (SELECT " + quotedColumn
+                + ", row_number() OVER (PARTITION BY symbol_id ORDER BY " + quotedColumn + " DESC) AS rn FROM "
+                + quote(table) + ") ranked WHERE rn <= ?";
+        String quotedDefault = quote(table + "_default");
+        oldestDefaultSql = "SELECT min(" + quotedColumn + ")::DATE FROM " + quotedDefault;
+        newestDefaultSql = "SELECT max(" + quotedColumn + ")::DATE FROM " + quotedDefault;
+    }
+
+    /**
+     * The range is widened to the rows the default partition holds, such as backfilled ones older than the first
+     * partition, so that they are moved into partitions of their own.
+     *
+     * @param from first day of the first month
+     * @param to   any day of the last month
+     * @return the number of created partitions. Existing ones are left untouched
+     */
+    public int createPartitions(LocalDate from, LocalDate to) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+        LocalDate oldestDefault = jdbcTemplate.queryForObject(oldestDefaultSql, LocalDate.class);
+        LocalDate newestDefault = jdbcTemplate.queryForObject(newestDefaultSql, LocalDate.class);
+        LocalDate first = null != oldestDefault && oldestDefault.isBefore(from) ? oldestDefault : from;
+        LocalDate last = null != newestDefault && newestDefault.isAfter(to) ? newestDefault : to;
+        Integer res = jdbcTemplate.queryForObject("SELECT create_monthly_partitions(?, ?, ?)",
+                Integer.class,
+                table,
+                first,
+                last);
+        return null == res ? 0 : res;
+    }
+
+    /**
+     * Drops the monthly partitions holding only rows beyond the newest {@code keepCount} of each symbol, which is
+     * cheaper than deleting them.
+     *
+     * @param keepCount         rows kept per symbol
+     * @param partitionReleaser invoked with the quoted name of each partition right before it is dropped, so that rows
+     *                          referencing it can be released
+     * @return the number of dropped rows
+     */
+    public int dropPartitionsBeyondTopPerSymbol(int keepCount, Consumer<String> partitionReleaser) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+        // oldest row kept among all symbols
+        LocalDate cutoff = jdbcTemplate.queryForObject(retentionCutoffSql, LocalDate.class, keepCount);
+        if (null == cutoff) {
+            return 0;
+        }
+        int res = 0;
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, table)) {
+            Matcher matcher = partitionPattern.matcher(partition);
+            // partition names are read from the catalog, yet only the ones matching the naming scheme are ever quoted
+            if (matcher.matches() && !YearMonth.of(Integer.parseInt(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2))).plusMonths(1).atDay(1).isAfter(cutoff)) {
+                String quotedPartition = quote(partition);
+                partitionReleaser.accept(quotedPartition);
+                Integer rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + quotedPartition, Integer.class);
+                jdbcTemplate.execute("DROP TABLE " + quotedPartition);
+                res += null == rows ? 0 : rows;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Identifiers cannot be bound as parameters, so the ones concatenated into statements are restricted to plain
+     * lowercase names and double-quoted.
+     */
+    private static String quote(String identifier) {
+        if (!IDENTIFIER_PATTERN.matcher(identifier).matches()) {
+            throw new IllegalArgumentException(identifier);
+        }
+        return '"' + identifier + '"';
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class,
+                table));
+    }
+}
@@ -0,0 +1,79 @@
+package com.lucas.server.common.pipeline;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Online first-fit packing of items into bins bounded both by item count and by total weight. Items go to the first
+ * open bin with room for them, and a bin is closed as soon as it is full by count. Since items keep arriving, only a
+ * few bins are kept open: when none fits and no more can be opened, the heaviest one is closed to make room. An item
+ * heavier than the whole budget still gets a bin of its own. Both limits are queried on every item.
+ *
+ * @param <T> item type
+ */
+final class BinPacker<T> {
+
+    private final IntSupplier maxSize;
+    private final ToIntFunction<T> weigher;
+    private final IntSupplier maxWeight;
+    private final int maxOpenBins;
+    private final List<Bin<T>> open = new ArrayList<>();
+
+    BinPacker(IntSupplier maxSize, ToIntFunction<T> weigher, IntSupplier maxWeight, int maxOpenBins) {
+        this.maxSize = maxSize;
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+        this.maxOpenBins = maxOpenBins;
+    }
+
+    /**
+     * @return the bins closed by the item, if any
+     */
+    List<List<T>> add(T item) {
+        int weight = weigher.applyAsInt(item);
+        int size = maxSize.getAsInt();
+        long budget = maxWeight.getAsInt();
+        List<List<T>> res = new ArrayList<>();
+        Bin<T> target = open.stream()
+                .filter(b -> size > b.items.size() && budget >= b.weight + weight)
+                .findFirst()
+                .orElse(null);
+        if (null == target) {
+            if (maxOpenBins <= open.size()) {
+                Bin<T> heaviest = open.stream().max(Comparator.comparingLong(b -> b.weight)).orElseThrow();
+                open.remove(heaviest);
+                res.add(heaviest.items);
+            }
+            target = new Bin<>();
+            open.add(target);
+        }
+        target.items.add(item);
+        target.weight += weight;
+        open.removeIf(b -> {
+            if (size <= b.items.size()) {
+                res.add(b.items);
+                return true;
+            }
+            return false;
+        });
+        return res;
+    }
+
+    /**
+     * @return every open bin, closing them
+     */
+    List<List<T>> drain() {
+        List<List<T>> res = open.stream().map(b -> b.items).toList();
+        open.clear();
+        return res;
+    }
+
+    private static final class Bin<T> {
+
+        private final List<T> items = new ArrayList<>();
+        private long weight;
+    }
+}
@@ -0,0 +1,417 @@
+package com.lucas.server.common.pipeline;
+
+import com.lucas.utils.Interrupts;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+import static com.lucas.server.common.Constants.PIPELINE_BATCH_FAILED_WARN;
+import static com.lucas.server.common.Constants.PIPELINE_ITEM_DROPPED_WARN;
+import static com.lucas.server.common.Constants.PIPELINE_STAGE_SUMMARY_INFO;
+
+/**
+ * Runs items through a chain of stages connected by bounded queues, so that a slow stage holds back the ones upstream
+ * instead of letting their output pile up. Each stage takes its items in batches, processes up to its concurrency
+ * limit of batches at once on virtual threads, and retries the items it fails up to its attempt limit, with no effect
+ * on the rest. Items failed on every attempt are logged and dropped. Asynchronous stages hold their concurrency permit
+ * until the returned stage completes rather than while their thread runs.
+ *
+ * @param <I> input item type
+ * @param <O> output item type
+ */
+@Slf4j
+public final class Pipeline<I, O> {
+
+    // upper bound of the delay in noticing a retry while waiting for upstream items
+    private static final long POLL_INTERVAL_MILLIS = 50;
+    // batches being filled at once by a stage, trading fuller batches for later submission
+    private static final int OPEN_BATCHES = 4;
+    private static final Attempt END = new Attempt(null, 0);
+
+    private final String name;
+    private final int queueCapacity;
+    private final PipelineMetrics metrics;
+    private final List<StageDefinition> stages;
+
+    private Pipeline(String name, int queueCapacity, PipelineMetrics metrics, List<StageDefinition> stages) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.metrics = metrics;
+        this.stages = List.copyOf(stages);
+    }
+
+    /**
+     * @param name          pipeline name, tagging its metrics
+     * @param queueCapacity items each stage's queue holds before its upstream blocks
+     * @param metrics       metrics
+     * @return a builder of a pipeline without stages
+     */
+    public static <T> Builder<T, T> builder(String name, int queueCapacity, PipelineMetrics metrics) {
+        return new Builder<>(name, queueCapacity, metrics);
+    }
+
+    /**
+     * Blocks until every item has left the last stage, or been dropped.
+     *
+     * @param inputs items
+     * @return the output of the last stage
+     */
+    @SuppressWarnings("unchecked")
+    public List<O> run(Collection<I> inputs) {
+        Queue<Object> res = new ConcurrentLinkedQueue<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        List<StageRun> runs = new ArrayList<>();
+        Consumer<Object> downstream = res::add;
+        Runnable downstreamEnd = finished::countDown;
+        for (StageDefinition stage : stages.reversed()) {
+            StageRun run = new StageRun(stage, downstream, downstreamEnd);
+            runs.addFirst(run);
+            downstream = run::offer;
+            downstreamEnd = run::end;
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            runs.forEach(run -> executor.execute(() -> run.dispatch(executor)));
+            inputs.forEach(downstream);
+            downstreamEnd.run();
+            Interrupts.runOrThrow(finished::await, e -> log.error(e.getMessage(), e));
+        } finally {
+            executor.close();
+        }
+        runs.forEach(StageRun::logSummary);
+        return res.stream().map(o -> (O) o).toList();
+    }
+
+    /**
+     * @param <I> input item type of the stage
+     * @param <O> output item type of the stage
+     */
+    @FunctionalInterface
+    public interface Stage<I, O> {
+
+        /**
+         * @param items      batch
+         * @param downstream receives the output items, blocking while the next stage's queue is full
+         * @return the items to retry. Throwing retries the whole batch
+         */
+        Collection<I> process(List<I> items, Consumer<O> downstream) throws Exception;
+    }
+
+    /**
+     * @param <I> input item type of the stage
+     * @param <O> output item type of the stage
+     */
+    @FunctionalInterface
+    public interface AsyncStage<I, O> {
+
+        /**
+         * @param items      batch
+         * @param downstream receives the output items, blocking while the next stage's queue is full
+         * @return completes with the items to retry. Throwing or completing exceptionally retries the whole batch
+         */
+        CompletionStage<? extends Collection<I>> process(List<I> items, Consumer<O> downstream) throws Exception;
+    }
+
+    /**
+     * @param <I> input item type of the stage
+     * @param <O> output item type of the stage
+     */
+    @FunctionalInterface
+    public interface ItemStage<I, O> {
+
+        /**
+         * @param item       item. Throwing retries it
+         * @param downstream receives the output items, blocking while the next stage's queue is full
+         */
+        void process(I item, Consumer<O> downstream) throws Exception;
+    }
+
+    /**
+     * @param <I> input item type of the pipeline
+     * @param <O> output item type of the last stage so far
+     */
+    public static final class Builder<I, O> {
+
+        private final String name;
+        private final int queueCapacity;
+        private final PipelineMetrics metrics;
+        private final List<StageDefinition> stages = new ArrayList<>();
+
+        private Builder(String name, int queueCapacity, PipelineMetrics metrics) {
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+            this.metrics = metrics;
+        }
+
+        /**
+         * @param stageName   stage name, tagging its metrics
+         * @param concurrency items processed at once
+         * @param maxAttempts attempts per item
+         * @param stage       processes each item
+         */
+        public <R> Builder<I, R> stage(String stageName, int concurrency, int maxAttempts, ItemStage<O, R> stage) {
+            return batchStage(stageName, concurrency, maxAttempts, () -> 1, (items, downstream) -> {
+                stage.process(items.getFirst(), downstream);
+                return List.of();
+            });
+        }
+
+        /**
+         * @param stageName   stage name, tagging its metrics
+         * @param concurrency batches processed at once
+         * @param maxAttempts attempts per item
+         * @param batchSize   size of the next batch, queried as it is filled. The last batch may be smaller
+         * @param stage       processes each batch
+         */
+        public <R> Builder<I, R> batchStage(String stageName,
+                                            int concurrency,
+                                            int maxAttempts,
+                                            IntSupplier batchSize,
+                                            Stage<O, R> stage) {
+            return batchStage(stageName, concurrency, maxAttempts, batchSize, _ -> 0, () -> Integer.MAX_VALUE, stage);
+        }
+
+        /**
+         * Items are packed into batches bounded by both size and total weight, see {@link BinPacker}.
+         *
+         * @param stageName   stage name, tagging its metrics
+         * @param concurrency batches processed at once
+         * @param maxAttempts attempts per item
+         * @param batchSize   maximum size of a batch, queried as it is filled
+         * @param weigher     weight of each item
+         * @param batchWeight maximum total weight of a batch, queried as it is filled
+         * @param stage       processes each batch
+         */
+        public <R> Builder<I, R> batchStage(String stageName,
+                                            int concurrency,
+                                            int maxAttempts,
+                                            IntSupplier batchSize,
+                                            ToIntFunction<O> weigher,
+                                            IntSupplier batchWeight,
+                                            Stage<O, R> stage) {
+            return asyncBatchStage(stageName,
+                    concurrency,
+                    maxAttempts,
+                    batchSize,
+                    weigher,
+                    batchWeight,
+                    (items, downstream) -> CompletableFuture.completedFuture(stage.process(items, downstream)));
+        }
+
+        /**
+         * Like {@link #batchStage(String, int, int, IntSupplier, ToIntFunction, IntSupplier, Stage)}, but a batch keeps
+         * its permit until the stage it returns completes, so no thread waits on it.
+         *
+         * @param stageName   stage name, tagging its metrics
+         * @param concurrency batches processed at once
+         * @param maxAttempts attempts per item
+         * @param batchSize   maximum size of a batch, queried as it is filled
+         * @param weigher     weight of each item
+         * @param batchWeight maximum total weight of a batch, queried as it is filled
+         * @param stage       starts processing each batch
+         */
+        @SuppressWarnings("unchecked")
+        public <R> Builder<I, R> asyncBatchStage(String stageName,
+                                                 int concurrency,
+                                                 int maxAttempts,
+                                                 IntSupplier batchSize,
+                                                 ToIntFunction<O> weigher,
+                                                 IntSupplier batchWeight,
+                                                 AsyncStage<O, R> stage) {
+            stages.add(new StageDefinition(stageName,
+                    concurrency,
+                    maxAttempts,
+                    batchSize,
+                    (ToIntFunction<Object>) (ToIntFunction<?>) weigher,
+                    batchWeight,
+                    (AsyncStage<Object, Object>) (AsyncStage<?, ?>) stage));
+            return (Builder<I, R>) this;
+        }
+
+        public Pipeline<I, O> build() {
+            return new Pipeline<>(name, queueCapacity, metrics, stages);
+        }
+    }
+
+    private record StageDefinition(String name,
+                                   int concurrency,
+                                   int maxAttempts,
+                                   IntSupplier batchSize,
+                                   ToIntFunction<Object> weigher,
+                                   IntSupplier batchWeight,
+                                   AsyncStage<Object, Object> stage) {
+    }
+
+    private record Attempt(Object item, int number) {
+    }
+
+    /**
+     * A stage within a single run. A dispatcher thread fills batches from its queue, retried items first, and hands
+     * them to workers as permits allow, so it stops draining the queue while the stage is saturated.
+     */
+    private final class StageRun {
+
+        private final StageDefinition definition;
+        private final PipelineMetrics.StageMetrics stageMetrics;
+        private final Consumer<Object> downstream;
+        private final Runnable downstreamEnd;
+        private final BlockingQueue<Attempt> input = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Attempt> retries = new LinkedBlockingQueue<>();
+        private final Semaphore permits;
+        private final BinPacker<Attempt> packer;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger retried = new AtomicInteger();
+        private final AtomicInteger dropped = new AtomicInteger();
+
+        private StageRun(StageDefinition definition, Consumer<Object> downstream, Runnable downstreamEnd) {
+            this.definition = definition;
+            stageMetrics = metrics.forStage(name, definition.name());
+            this.downstream = downstream;
+            this.downstreamEnd = downstreamEnd;
+            permits = new Semaphore(definition.concurrency());
+            packer = new BinPacker<>(definition.batchSize(),
+                    attempt -> definition.weigher().applyAsInt(attempt.item()),
+                    definition.batchWeight(),
+                    OPEN_BATCHES);
+        }
+
+        private void offer(Object item) {
+            stageMetrics.queueDepth().incrementAndGet();
+            Interrupts.runOrThrow(() -> input.put(new Attempt(item, 1)), e -> log.error(e.getMessage(), e));
+        }
+
+        private void end() {
+            Interrupts.runOrThrow(() -> input.put(END), e -> log.error(e.getMessage(), e));
+        }
+
+        private void dispatch(ExecutorService executor) {
+            try {
+                Interrupts.runOrThrow(() -> fillBatches(executor), e -> log.error(e.getMessage(), e));
+            } catch (RuntimeException e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                downstreamEnd.run();
+            }
+        }
+
+        /**
+         * Returns once upstream has ended and every item has been processed or dropped.
+         */
+        private void fillBatches(ExecutorService executor) throws InterruptedException {
+            boolean upstreamEnded = false;
+            while (true) {
+                Attempt next = retries.poll();
+                if (null == next && !upstreamEnded) {
+                    next = input.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (END == next) {
+                        upstreamEnded = true;
+                        next = null;
+                    }
+                } else if (null == next) {
+                    // workers enqueue their retries before leaving, so none can show up once all are gone
+                    if (0 == inFlight.get() && retries.isEmpty()) {
+                        List<List<Attempt>> batches = packer.drain();
+                        if (batches.isEmpty()) {
+                            return;
+                        }
+                        submitAll(batches, executor);
+                        continue;
+                    }
+                    next = retries.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (null != next) {
+                    stageMetrics.queueDepth().decrementAndGet();
+                    submitAll(packer.add(next), executor);
+                }
+            }
+        }
+
+        private void submitAll(List<List<Attempt>> batches, ExecutorService executor) throws InterruptedException {
+            for (List<Attempt> batch : batches) {
+                submit(batch, executor);
+            }
+        }
+
+        private void submit(List<Attempt> batch, ExecutorService executor) throws InterruptedException {
+            permits.acquire();
+            inFlight.incrementAndGet();
+            executor.execute(() -> process(batch).whenComplete((_, _) -> {
+                inFlight.decrementAndGet();
+                permits.release();
+            }));
+        }
+
+        private CompletableFuture<Void> process(List<Attempt> batch) {
+            List<Object> items = batch.stream().map(Attempt::item).toList();
+            long start = System.nanoTime();
+            CompletionStage<? extends Collection<Object>> pending;
+            try {
+                pending = definition.stage().process(items, downstream);
+            } catch (Exception e) {
+                pending = CompletableFuture.failedFuture(e);
+            }
+            return pending.<Void>handle((toRetry, e) -> {
+                Set<Object> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+                if (null == e) {
+                    failed.addAll(toRetry);
+                } else {
+                    log.warn(PIPELINE_BATCH_FAILED_WARN,
+                            name,
+                            definition.name(),
+                            items,
+                            e instanceof CompletionException && null != e.getCause() ? e.getCause() : e);
+                    failed.addAll(items);
+                }
+                stageMetrics.batchDuration().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                settle(batch, failed);
+                return null;
+            }).toCompletableFuture();
+        }
+
+        private void settle(List<Attempt> batch, Set<Object> failed) {
+            for (Attempt attempt : batch) {
+                if (!failed.contains(attempt.item())) {
+                    processed.incrementAndGet();
+                    stageMetrics.processed().increment();
+                } else if (definition.maxAttempts() > attempt.number()) {
+                    retried.incrementAndGet();
+                    stageMetrics.retried().increment();
+                    stageMetrics.queueDepth().incrementAndGet();
+                    retries.add(new Attempt(attempt.item(), attempt.number() + 1));
+                } else {
+                    dropped.incrementAndGet();
+                    stageMetrics.dropped().increment();
+                    log.warn(PIPELINE_ITEM_DROPPED_WARN, name, definition.name(), attempt.item(), attempt.number());
+                }
+            }
+        }
+
+        private void logSummary() {
+            log.info(PIPELINE_STAGE_SUMMARY_INFO, name, definition.name(), processed, retried, dropped);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.lucas.server.common.pipeline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per stage meters of every pipeline, shared by all of their runs: items waiting in the stage's queue, items processed,
+ * retried and dropped, and batch processing time.
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, StageMetrics> stages = new ConcurrentHashMap<>();
+
+    public StageMetrics forStage(String pipeline, String stage) {
+        return stages.computeIfAbsent(pipeline + '/' + stage, _ -> {
+            Tags tags = Tags.of("pipeline", pipeline, "stage", stage);
+            return new StageMetrics(registry.gauge("pipeline.stage.queue.depth", tags, new AtomicInteger()),
+                    registry.counter("pipeline.stage.items", tags.and("outcome", "processed")),
+                    registry.counter("pipeline.stage.items", tags.and("outcome", "retried")),
+                    registry.counter("pipeline.stage.items", tags.and("outcome", "dropped")),
+                    registry.timer("pipeline.stage.batch.duration", tags));
+        });
+    }
+
+    public record StageMetrics(AtomicInteger queueDepth,
+                               Counter processed,
+                               Counter retried,
+                               Counter dropped,
+                               Timer batchDuration) {
+    }
+}
@@ -0,0 +1,176 @@
+package com.lucas.server.components.tradingbot.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.lucas.server.common.Constants.AI_CLIENT_THROTTLED_WARN;
+
+/**
+ * Paces a deployment below its configured rate as its provider asks for it, in front of the fixed sliding window rate
+ * limiters, which still enforce the configured rate. A throttled response halves the rate and pauses requests until the
+ * provider's {@code Retry-After} or rate limit reset. Any other response raises the rate by one request per minute,
+ * back up to the configured one, and pauses requests until the reset if it reports none remaining. Below the
+ * configured rate, requests are evenly spaced.
+ */
+@Slf4j
+public class AdaptiveRateLimiter {
+
+    private static final double MIN_REQUESTS_PER_MINUTE = 1;
+    private static final Duration DEFAULT_PAUSE = Duration.ofSeconds(30);
+    private static final Duration MAX_PAUSE = Duration.ofMinutes(10);
+    // GitHub Models and OpenRouter names, respectively
+    private static final List<String> REMAINING_HEADERS =
+            List.of("x-ratelimit-remaining-requests", "x-ratelimit-remaining");
+    private static final List<String> RESET_HEADERS = List.of("x-ratelimit-reset-requests", "x-ratelimit-reset");
+    // epoch milliseconds, epoch seconds or seconds from now
+    private static final double EPOCH_MILLIS_THRESHOLD = 1e12;
+    private static final double EPOCH_SECONDS_THRESHOLD = 1e9;
+    private static final Pattern DURATION =
+            Pattern.compile("(?:(\\d+)h)?(?:(\\d+)m(?!s))?(?:(\\d+(?:\\.\\d+)?)s)?(?:(\\d+)ms)?");
+
+    private final String name;
+    private final double maxRequestsPerMinute;
+    private final Clock clock;
+    private double requestsPerMinute;
+    private Instant pausedUntil = Instant.EPOCH;
+    private Instant nextPermission = Instant.EPOCH;
+    // pacing in effect before the last permission, restored if that permission goes unused
+    private Instant previousNextPermission = Instant.EPOCH;
+
+    public AdaptiveRateLimiter(String name, int maxRequestsPerMinute) {
+        this(name, maxRequestsPerMinute, Clock.systemUTC());
+    }
+
+    AdaptiveRateLimiter(String name, int maxRequestsPerMinute, Clock clock) {
+        this.name = name;
+        this.maxRequestsPerMinute = maxRequestsPerMinute;
+        this.clock = clock;
+        requestsPerMinute = maxRequestsPerMinute;
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        Instant now = clock.instant();
+        if (now.isBefore(pausedUntil) || now.isBefore(nextPermission)) {
+            return false;
+        }
+        previousNextPermission = nextPermission;
+        if (maxRequestsPerMinute > requestsPerMinute) {
+            nextPermission = now.plusNanos((long) (Duration.ofMinutes(1).toNanos() / requestsPerMinute));
+        }
+        return true;
+    }
+
+    /**
+     * Gives the last acquired permission back, when no request was sent with it, so that it does not space the next
+     * one.
+     */
+    public synchronized void releasePermission() {
+        nextPermission = previousNextPermission;
+    }
+
+    /**
+     * @return the time until a permission could be acquired, zero if it can be already
+     */
+    public synchronized Duration timeUntilPermission() {
+        Instant now = clock.instant();
+        Instant next = pausedUntil.isAfter(nextPermission) ? pausedUntil : nextPermission;
+        return next.isAfter(now) ? Duration.between(now, next) : Duration.ZERO;
+    }
+
+    public synchronized void onResponse(HttpHeaders headers) {
+        requestsPerMinute = Math.min(maxRequestsPerMinute, requestsPerMinute + 1);
+        String remaining = firstHeader(headers, REMAINING_HEADERS);
+        if (null != remaining && 0 >= parseNumber(remaining)) {
+            Instant now = clock.instant();
+            Instant reset = parseInstant(firstHeader(headers, RESET_HEADERS), now);
+            pauseUntil(null == reset ? now.plus(DEFAULT_PAUSE) : reset, now);
+        }
+    }
+
+    public synchronized void onThrottled(HttpHeaders headers) {
+        requestsPerMinute = Math.max(MIN_REQUESTS_PER_MINUTE, requestsPerMinute / 2);
+        Instant now = clock.instant();
+        Instant until = parseInstant(headers.getFirst(HttpHeaders.RETRY_AFTER), now);
+        if (null == until) {
+            until = parseInstant(firstHeader(headers, RESET_HEADERS), now);
+        }
+        pauseUntil(null == until ? now.plus(DEFAULT_PAUSE) : until, now);
+        log.warn(AI_CLIENT_THROTTLED_WARN, name, pausedUntil, requestsPerMinute);
+    }
+
+    public synchronized double getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    private void pauseUntil(Instant until, Instant now) {
+        Instant capped = until.isAfter(now.plus(MAX_PAUSE)) ? now.plus(MAX_PAUSE) : until;
+        if (capped.isAfter(pausedUntil)) {
+            pausedUntil = capped;
+        }
+    }
+
+    private static String firstHeader(HttpHeaders headers, List<String> names) {
+        return names.stream().map(headers::getFirst).filter(v -> null != v && !v.isBlank()).findFirst().orElse(null);
+    }
+
+    /**
+     * @return the number, or NaN if unparseable
+     */
+    private static double parseNumber(String value) {
+        try {
+            return Double.parseDouble(value.strip());
+        } catch (NumberFormatException _) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @param value epoch milliseconds or seconds, seconds from now, a duration such as {@code 1m30s}, or an HTTP date
+     * @return the instant, or null if absent or unparseable
+     */
+    private static Instant parseInstant(String value, Instant now) {
+        if (null == value) {
+            return null;
+        }
+        String stripped = value.strip();
+        double number = parseNumber(stripped);
+        if (!Double.isNaN(number)) {
+            if (EPOCH_MILLIS_THRESHOLD <= number) {
+                return Instant.ofEpochMilli((long) number);
+            }
+            if (EPOCH_SECONDS_THRESHOLD <= number) {
+                return Instant.ofEpochSecond((long) number);
+            }
+            return now.plusMillis((long) (number * 1000));
+        }
+        Matcher matcher = DURATION.matcher(stripped);
+        if (!stripped.isEmpty() && matcher.matches()) {
+            return now.plus(Duration.ofHours(parseLongOrZero(matcher.group(1))))
+                    .plus(Duration.ofMinutes(parseLongOrZero(matcher.group(2))))
+                    .plusMillis((long) (parseOrZero(matcher.group(3)) * 1000))
+                    .plusMillis(parseLongOrZero(matcher.group(4)));
+        }
+        try {
+            return ZonedDateTime.parse(stripped, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (RuntimeException _) {
+            return null;
+        }
+    }
+
+    private static long parseLongOrZero(String group) {
+        return null == group ? 0 : Long.parseLong(group);
+    }
+
+    private static double parseOrZero(String group) {
+        return null == group ? 0 : Double.parseDouble(group);
+    }
+}
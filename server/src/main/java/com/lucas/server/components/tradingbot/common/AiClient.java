@@ -2,6 +2,7 @@ package com.lucas.server.components.tradingbot.common;
 
 import com.lucas.server.common.HttpRequestClient;
 import com.lucas.server.common.exception.ClientException;
+import com.lucas.server.common.exception.ThrottledException;
 import com.lucas.server.components.tradingbot.config.AiProperties;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
 import com.lucas.utils.ratelimiter.DefaultSlidingWindowRateLimiter;
@@ -9,21 +10,30 @@ import com.lucas.utils.ratelimiter.SlidingWindowRateLimiter;
 import jakarta.annotation.Nullable;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.UnaryOperator;
 
+import static com.lucas.server.common.Constants.AI_STREAM_ERROR;
 import static com.lucas.server.common.Constants.AiProvider.GOOGLE;
 import static com.lucas.server.common.Constants.AiProvider.OPENROUTER;
 import static com.lucas.server.common.Constants.CONTENT;
 import static com.lucas.server.common.Constants.PARTS;
 import static com.lucas.server.common.Constants.ROLE;
+import static com.lucas.server.common.Constants.STREAM_DONE;
+import static com.lucas.server.common.Constants.THINK_END;
 import static com.lucas.server.common.Constants.sanitizeHtml;
+import static com.lucas.utils.Utils.EMPTY_STRING;
 
 @RequiredArgsConstructor
 public class AiClient {
@@ -37,11 +47,82 @@ public class AiClient {
     @Getter
     @Nullable
     private final DefaultSlidingWindowRateLimiter apiKeyRateLimiter;
+    @Getter
+    private final AdaptiveRateLimiter adaptiveRateLimiter;
     private final ObjectMapper objectMapper;
     private final HttpRequestClient httpClient;
     private final UnaryOperator<String> responseSanitizer;
+    private final boolean thinkingBlock;
 
     public String complete(OrderedIndexedSet<JsonNode> prompt) throws ClientException {
+        try {
+            return completeAsync(prompt).block();
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            if (cause instanceof ClientException clientException) {
+                throw clientException;
+            }
+            throw new ClientException(cause);
+        }
+    }
+
+    /**
+     * Sends the request once subscribed to, without blocking. Rate limiting is left to the caller.
+     *
+     * @param prompt prompt
+     * @return the sanitized completion, failing with {@link ClientException} if the request fails
+     */
+    public Mono<String> completeAsync(OrderedIndexedSet<JsonNode> prompt) {
+        Map<String, Object> bodyMap = body(prompt);
+        if (GOOGLE == config.provider()) {
+            return post(null, bodyMap).map(response -> responseSanitizer.apply(response.get("candidates")
+                    .get(0)
+                    .get("content")
+                    .get(PARTS)
+                    .get(0)
+                    .get("text")
+                    .asString()));
+        }
+        return post(config.apiKey(), bodyMap).map(response -> responseSanitizer.apply(response.get("choices")
+                .get(0)
+                .get("message")
+                .get(CONTENT)
+                .asString()));
+    }
+
+    /**
+     * Streams the completion as server-sent events once subscribed to, without blocking. Rate limiting is left to the
+     * caller. Unlike {@link #completeAsync(OrderedIndexedSet)}, code fences are left for the caller to skip.
+     *
+     * @param prompt prompt
+     * @return the completion text as it arrives, past the thinking block if the model writes one, failing with
+     * {@link ClientException} if the request fails or the provider reports an error mid-stream
+     */
+    public Flux<String> streamAsync(OrderedIndexedSet<JsonNode> prompt) {
+        Map<String, Object> bodyMap = body(prompt);
+        Flux<JsonNode> texts;
+        if (GOOGLE == config.provider()) {
+            texts = stream(config.url().replace(":generateContent?", ":streamGenerateContent?alt=sse&"), null, bodyMap)
+                    .map(chunk -> chunk.path("candidates").path(0).path("content").path(PARTS).path(0).path("text"));
+        } else {
+            bodyMap.put("stream", true);
+            texts = stream(config.url(), config.apiKey(), bodyMap)
+                    .map(chunk -> chunk.path("choices").path(0).path("delta").path(CONTENT));
+        }
+        // chunks without text, such as the final one carrying the usage, yield nothing
+        Flux<String> res = texts.filter(JsonNode::isString).map(JsonNode::asString);
+        return thinkingBlock ? skipThinking(res) : res;
+    }
+
+    /**
+     * @param completion raw completion text, such as the one streamed
+     * @return the completion sanitized as {@link #completeAsync(OrderedIndexedSet)} does
+     */
+    public String sanitize(String completion) {
+        return responseSanitizer.apply(completion);
+    }
+
+    private Map<String, Object> body(OrderedIndexedSet<JsonNode> prompt) {
         Map<String, Object> bodyMap = new HashMap<>();
 
         if (GOOGLE == config.provider()) {
@@ -72,15 +153,6 @@ public class AiClient {
                 generationConfig.put("temperature", config.temperature());
             }
             bodyMap.put("generationConfig", generationConfig);
-
-            return responseSanitizer.apply(httpClient.post(config.url(), null, objectMapper.valueToTree(bodyMap), true)
-                    .get("candidates")
-                    .get(0)
-                    .get("content")
-                    .get(PARTS)
-                    .get(0)
-                    .get("text")
-                    .asString());
         } else {
             if (OPENROUTER == config.provider() && null != config.fallbackModels() && !config.fallbackModels()
                     .isEmpty()) {
@@ -103,11 +175,62 @@ public class AiClient {
             bodyMap.put("max_tokens", config.maxTokens());
 
             bodyMap.put("temperature", config.temperature());
-
-            return responseSanitizer.apply(httpClient.post(config.url(),
-                    config.apiKey(),
-                    objectMapper.valueToTree(bodyMap),
-                    true).get("choices").get(0).get("message").get(CONTENT).asString());
         }
+        return bodyMap;
+    }
+
+    private Mono<JsonNode> post(@Nullable String apiKey, Map<String, Object> bodyMap) {
+        return httpClient.postAsync(config.url(),
+                        apiKey,
+                        objectMapper.valueToTree(bodyMap),
+                        true,
+                        adaptiveRateLimiter::onResponse)
+                .doOnError(ThrottledException.class, e -> adaptiveRateLimiter.onThrottled(e.getHeaders()));
+    }
+
+    /**
+     * @return each chunk, up to the OpenAI style {@code [DONE]} event
+     */
+    private Flux<JsonNode> stream(String url, @Nullable String apiKey, Map<String, Object> bodyMap) {
+        return httpClient.postStream(url,
+                        apiKey,
+                        objectMapper.valueToTree(bodyMap),
+                        true,
+                        adaptiveRateLimiter::onResponse)
+                .doOnError(ThrottledException.class, e -> adaptiveRateLimiter.onThrottled(e.getHeaders()))
+                .takeWhile(data -> !STREAM_DONE.equals(data))
+                .handle((data, sink) -> {
+                    JsonNode chunk = objectMapper.readTree(data);
+                    if (chunk.has("error")) {
+                        sink.error(new ClientException(MessageFormat.format(AI_STREAM_ERROR,
+                                config.name(),
+                                chunk.get("error")), null));
+                    } else {
+                        sink.next(chunk);
+                    }
+                });
+    }
+
+    /**
+     * Drops the text up to the end of the thinking block, as it may hold JSON drafts. Without one, the whole text is
+     * passed on once the stream completes.
+     */
+    private static Flux<String> skipThinking(Flux<String> texts) {
+        return Flux.defer(() -> {
+            StringBuilder thinking = new StringBuilder();
+            AtomicBoolean thought = new AtomicBoolean();
+            return texts.<String>handle((text, sink) -> {
+                if (thought.get()) {
+                    sink.next(text);
+                    return;
+                }
+                thinking.append(text);
+                int end = thinking.indexOf(THINK_END);
+                if (0 <= end) {
+                    thought.set(true);
+                    sink.next(thinking.substring(end + THINK_END.length()));
+                }
+            }).concatWith(Mono.fromSupplier(() -> thought.get() ? EMPTY_STRING : thinking.toString()));
+        });
     }
 }
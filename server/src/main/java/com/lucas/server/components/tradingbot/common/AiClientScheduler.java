@@ -0,0 +1,178 @@
+package com.lucas.server.components.tradingbot.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.lucas.server.common.Constants.AI_CLIENT_QUARANTINED_WARN;
+import static com.lucas.server.common.Constants.AI_CLIENT_RECOVERED_INFO;
+
+/**
+ * Ranks AI clients by their expected completion time, from exponentially weighted moving averages of their latency,
+ * error rate and mapping failure rate, and of the requests they already have in flight. Clients that fail several times
+ * in a row are quarantined, and once their quarantine is over they get a single probe request: success brings them
+ * back, failure doubles their quarantine.
+ */
+@Component
+@Slf4j
+public class AiClientScheduler {
+
+    private static final double ALPHA = 0.2;
+    // failure probability assumed at most, so that no client is ranked as never completing
+    private static final double MAX_FAILURE_RATE = 0.95;
+    private static final int QUARANTINE_FAILURES = 3;
+    private static final Duration INITIAL_QUARANTINE = Duration.ofMinutes(1);
+    private static final Duration MAX_QUARANTINE = Duration.ofMinutes(30);
+
+    private final Clock clock;
+    private final Map<String, ClientStats> stats = new ConcurrentHashMap<>();
+
+    public AiClientScheduler() {
+        this(Clock.systemUTC());
+    }
+
+    AiClientScheduler(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Quarantined clients are left out, unless due for a probe. If every client is quarantined, none is returned, and
+     * callers are to wait {@link #untilAvailable(Collection)}.
+     *
+     * @param clients clients
+     * @return the clients to try, best first
+     */
+    public List<AiClient> rank(Collection<AiClient> clients) {
+        Instant now = clock.instant();
+        return clients.stream()
+                .filter(c -> statsOf(c).isAvailable(now))
+                .sorted(Comparator.comparingDouble(c -> statsOf(c).expectedCompletionMillis(c)))
+                .toList();
+    }
+
+    /**
+     * @param clients clients
+     * @return the time until the first quarantined client is due for a probe, or zero if any client is ranked already.
+     * Clients whose probe is in flight are due once it completes, which is not known, and count as due already
+     */
+    public Duration untilAvailable(Collection<AiClient> clients) {
+        Instant now = clock.instant();
+        return clients.stream()
+                .map(c -> statsOf(c).isAvailable(now) ? now : statsOf(c).getQuarantinedUntil())
+                .map(until -> until.isAfter(now) ? Duration.between(now, until) : Duration.ZERO)
+                .min(Comparator.naturalOrder())
+                .orElse(Duration.ZERO);
+    }
+
+    /**
+     * Counts a request as in flight until its outcome is recorded, marking it as the probe of a quarantined client.
+     */
+    public void begin(AiClient client) {
+        statsOf(client).begin(clock.instant());
+    }
+
+    public void recordSuccess(AiClient client, Duration latency) {
+        record(client, latency, 0, 0);
+    }
+
+    public void recordError(AiClient client, Duration latency) {
+        record(client, latency, 1, 0);
+    }
+
+    public void recordMappingFailure(AiClient client, Duration latency) {
+        record(client, latency, 0, 1);
+    }
+
+    private void record(AiClient client, Duration latency, int error, int mappingFailure) {
+        ClientStats clientStats = statsOf(client);
+        switch (clientStats.record(latency, error, mappingFailure, clock.instant())) {
+            case QUARANTINED -> log.warn(AI_CLIENT_QUARANTINED_WARN,
+                    client.getConfig().name(),
+                    clientStats.getQuarantinedUntil());
+            case RECOVERED -> log.info(AI_CLIENT_RECOVERED_INFO, client.getConfig().name());
+            case NONE -> {
+                // still healthy, or still quarantined
+            }
+        }
+    }
+
+    private ClientStats statsOf(AiClient client) {
+        return stats.computeIfAbsent(client.getConfig().name(), _ -> new ClientStats());
+    }
+
+    private static final class ClientStats {
+
+        // no latency sample yet ranks the client first, so that it gets one
+        private double latencyMillis;
+        private boolean sampled;
+        private double errorRate;
+        private double mappingFailureRate;
+        private int inFlight;
+        private int consecutiveFailures;
+        private Duration quarantine = INITIAL_QUARANTINE;
+        private Instant quarantinedUntil = Instant.EPOCH;
+        private boolean probing;
+
+        private synchronized boolean isAvailable(Instant now) {
+            return QUARANTINE_FAILURES > consecutiveFailures || (!probing && !now.isBefore(quarantinedUntil));
+        }
+
+        private synchronized Instant getQuarantinedUntil() {
+            return quarantinedUntil;
+        }
+
+        private synchronized double expectedCompletionMillis(AiClient client) {
+            double failureRate = Math.min(MAX_FAILURE_RATE, errorRate + mappingFailureRate);
+            double queued = 1 + (double) inFlight / client.getConfig().concurrentRequests();
+            return latencyMillis * queued / (1 - failureRate);
+        }
+
+        private synchronized void begin(Instant now) {
+            inFlight++;
+            if (QUARANTINE_FAILURES <= consecutiveFailures && !now.isBefore(quarantinedUntil)) {
+                probing = true;
+            }
+        }
+
+        private synchronized Transition record(Duration latency, int error, int mappingFailure, Instant now) {
+            inFlight = Math.max(0, inFlight - 1);
+            double millis = latency.toNanos() / 1e6;
+            latencyMillis = sampled ? ALPHA * millis + (1 - ALPHA) * latencyMillis : millis;
+            sampled = true;
+            errorRate = ALPHA * error + (1 - ALPHA) * errorRate;
+            mappingFailureRate = ALPHA * mappingFailure + (1 - ALPHA) * mappingFailureRate;
+            boolean wasProbing = probing;
+            probing = false;
+            if (0 == error + mappingFailure) {
+                Transition res = QUARANTINE_FAILURES <= consecutiveFailures ? Transition.RECOVERED : Transition.NONE;
+                consecutiveFailures = 0;
+                quarantine = INITIAL_QUARANTINE;
+                return res;
+            }
+            consecutiveFailures++;
+            if (QUARANTINE_FAILURES != consecutiveFailures && !wasProbing) {
+                return Transition.NONE;
+            }
+            if (wasProbing) {
+                Duration doubled = quarantine.multipliedBy(2);
+                quarantine = 0 > MAX_QUARANTINE.compareTo(doubled) ? MAX_QUARANTINE : doubled;
+            }
+            quarantinedUntil = now.plus(quarantine);
+            return Transition.QUARANTINED;
+        }
+    }
+
+    private enum Transition {
+        NONE,
+        QUARANTINED,
+        RECOVERED
+    }
+}
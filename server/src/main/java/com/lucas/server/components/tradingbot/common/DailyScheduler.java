@@ -5,7 +5,6 @@ import com.lucas.server.common.exception.ClientException;
 import com.lucas.server.components.tradingbot.common.jpa.DataManager;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketSnapshotDomain;
-import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
 import com.lucas.server.components.tradingbot.recommendation.dto.RecommendationDomain;
 import com.lucas.utils.Interrupts;
 import com.lucas.utils.exception.MappingException;
@@ -24,6 +23,7 @@ import static com.lucas.server.common.Constants.AMERICA_NY;
 import static com.lucas.server.common.Constants.BUY;
 import static com.lucas.server.common.Constants.DATABASE_MARKET_DATA_PER_SYMBOL;
 import static com.lucas.server.common.Constants.DATABASE_NEWS_PER_SYMBOL;
+import static com.lucas.server.common.Constants.DATABASE_PARTITION_MONTHS_AHEAD;
 import static com.lucas.server.common.Constants.DATABASE_RECOMMENDATIONS_PER_SYMBOL;
 import static com.lucas.server.common.Constants.MAX_RECOMMENDATIONS_COUNT;
 import static com.lucas.server.common.Constants.MarketDataType;
@@ -75,6 +75,12 @@ public class DailyScheduler {
         }
     }
 
+    @Scheduled(cron = "${scheduler.partition-maintenance-cron}", zone = UTC)
+    private void partitionMaintenanceTask() {
+        int createdPartitions = dataManager.createPartitions(DATABASE_PARTITION_MONTHS_AHEAD);
+        log.info(SCHEDULED_TASK_SUCCESS_INFO, "created partitions", createdPartitions);
+    }
+
     @Scheduled(cron = "${scheduler.news-recommendations-cron}", zone = AMERICA_NY)
     private void morningTask() {
         LocalDate nowEt = LocalDate.now(NY_ZONE);
@@ -107,9 +113,8 @@ public class DailyScheduler {
             log.error(e.getMessage(), e);
         }
 
-        Set<MarketDataDomain> removedMds = dataManager.removeOldMarketData(DATABASE_MARKET_DATA_PER_SYMBOL);
-        String message = String.format("removed %d market data", removedMds.size());
-        log.info(SCHEDULED_TASK_SUCCESS_INFO, message, removedMds.stream().map(MarketDataDomain::getSymbol).toList());
+        int removedMds = dataManager.removeOldMarketData(DATABASE_MARKET_DATA_PER_SYMBOL);
+        log.info(SCHEDULED_TASK_SUCCESS_INFO, "removed old market data", removedMds);
     }
 
     @SuppressWarnings("SameParameterValue")
@@ -124,6 +129,7 @@ public class DailyScheduler {
                 true,
                 true,
                 false,
+                false,
                 false);
         String message = String.format("generated %d recommendations", updatedRecommendations.size());
         log.info(SCHEDULED_TASK_SUCCESS_INFO,
@@ -148,16 +154,17 @@ public class DailyScheduler {
                 true);
         publisher.publish("jobs", "job done");
 
-        Set<NewsDomain> removedNews = dataManager.removeOldNews(DATABASE_NEWS_PER_SYMBOL);
-        String message2 = String.format("removed %d news", removedNews.size());
-        log.info(SCHEDULED_TASK_SUCCESS_INFO, message2, removedNews.stream().map(NewsDomain::getSymbols).toList());
+        int removedNews = dataManager.removeOldNews(DATABASE_NEWS_PER_SYMBOL);
+        log.info(SCHEDULED_TASK_SUCCESS_INFO, "removed old news", removedNews);
 
-        Set<RecommendationDomain> removedRecommendations =
-                dataManager.removeOldRecommendations(DATABASE_RECOMMENDATIONS_PER_SYMBOL);
-        String message3 = String.format("removed %d recommendations", removedRecommendations.size());
-        log.info(SCHEDULED_TASK_SUCCESS_INFO,
-                message3,
-                removedRecommendations.stream().map(RecommendationDomain::getSymbol).toList());
+        int removedRecommendations = dataManager.removeOldRecommendations(DATABASE_RECOMMENDATIONS_PER_SYMBOL);
+        log.info(SCHEDULED_TASK_SUCCESS_INFO, "removed old recommendations", removedRecommendations);
+
+        int removedSentiments = dataManager.removeExpiredSentiments();
+        log.info(SCHEDULED_TASK_SUCCESS_INFO, "removed expired sentiments", removedSentiments);
+
+        int removedCompletions = dataManager.removeExpiredCompletions();
+        log.info(SCHEDULED_TASK_SUCCESS_INFO, "removed expired completions", removedCompletions);
     }
 
     @SuppressWarnings("SameParameterValue")
@@ -168,11 +175,8 @@ public class DailyScheduler {
                 message,
                 updatedSnapshots.stream().map(MarketSnapshotDomain::getSymbol).toList());
 
-        Set<MarketSnapshotDomain> removedSnapshots = dataManager.removeOldSnapshots(DATABASE_MARKET_DATA_PER_SYMBOL);
-        String message2 = String.format("removed %d market snapshots", removedSnapshots.size());
-        log.info(SCHEDULED_TASK_SUCCESS_INFO,
-                message2,
-                removedSnapshots.stream().map(MarketSnapshotDomain::getSymbol).toList());
+        int removedSnapshots = dataManager.removeOldSnapshots(DATABASE_MARKET_DATA_PER_SYMBOL);
+        log.info(SCHEDULED_TASK_SUCCESS_INFO, "removed old market snapshots", removedSnapshots);
     }
 
     private void getRecommendations(Set<Long> topRecommendedSymbols,
@@ -187,7 +191,8 @@ public class DailyScheduler {
                 true,
                 true,
                 fetchPremarket,
-                true);
+                true,
+                false);
         String message = String.format("generated %d recommendations", updatedRecommendations.size());
         log.info(SCHEDULED_TASK_SUCCESS_INFO,
                 message,
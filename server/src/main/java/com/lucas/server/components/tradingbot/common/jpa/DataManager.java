@@ -2,19 +2,27 @@ package com.lucas.server.components.tradingbot.common.jpa;
 
 import com.lucas.server.common.exception.ClientException;
 import com.lucas.server.common.exception.IllegalStateException;
+import com.lucas.server.common.pipeline.Pipeline;
+import com.lucas.server.common.pipeline.PipelineMetrics;
 import com.lucas.server.components.tradingbot.common.AiClient;
 import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.config.AiProperties;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketSnapshotDomain;
 import com.lucas.server.components.tradingbot.marketdata.jpa.MarketDataJpaService;
 import com.lucas.server.components.tradingbot.marketdata.jpa.MarketSnapshotJpaService;
+import com.lucas.server.components.tradingbot.marketdata.service.BatchKpiGenerator;
 import com.lucas.server.components.tradingbot.marketdata.service.FinnhubMarketDataClient;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
 import com.lucas.server.components.tradingbot.marketdata.service.TwelveDataMarketDataClient;
 import com.lucas.server.components.tradingbot.marketdata.service.YahooFinanceMarketSnapshotClient;
 import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
 import com.lucas.server.components.tradingbot.news.jpa.NewsJpaService;
 import com.lucas.server.components.tradingbot.news.jpa.NewsPersistenceOrchestrator;
 import com.lucas.server.components.tradingbot.news.service.FinnhubNewsClient;
+import com.lucas.server.components.tradingbot.news.service.NewsDeduplicator;
+import com.lucas.server.components.tradingbot.news.service.NewsSentimentBatcher;
+import com.lucas.server.components.tradingbot.news.service.SentimentCache;
 import com.lucas.server.components.tradingbot.news.service.YahooFinanceNewsClient;
 import com.lucas.server.components.tradingbot.portfolio.dto.PortfolioDomain;
 import com.lucas.server.components.tradingbot.portfolio.jpa.PortfolioJpaService;
@@ -23,17 +31,22 @@ import com.lucas.server.components.tradingbot.portfolio.jpa.PortfolioService;
 import com.lucas.server.components.tradingbot.portfolio.service.PortfolioManager;
 import com.lucas.server.components.tradingbot.recommendation.dto.RecommendationDomain;
 import com.lucas.server.components.tradingbot.recommendation.jpa.RecommendationsJpaService;
+import com.lucas.server.components.tradingbot.recommendation.service.AssetReportSizeEstimator;
+import com.lucas.server.components.tradingbot.recommendation.service.CompletionCache;
 import com.lucas.server.components.tradingbot.recommendation.service.RecommendationChatCompletionClient;
 import com.lucas.utils.Interrupts;
 import com.lucas.utils.exception.MappingException;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
+import jakarta.annotation.Nullable;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -45,6 +58,7 @@ import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
@@ -54,14 +68,21 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 import static com.lucas.server.common.Constants.CLIENT_FAILED_BACKUP_WARN;
@@ -71,11 +92,13 @@ import static com.lucas.server.common.Constants.GENERATION_SUCCESSFUL_INFO;
 import static com.lucas.server.common.Constants.MARKET_CLOSE;
 import static com.lucas.server.common.Constants.MARKET_DATA;
 import static com.lucas.server.common.Constants.MARKET_DATA_RELEVANT_DAYS_COUNT;
+import static com.lucas.server.common.Constants.MARKET_DATA_UP_TO_DATE_INFO;
 import static com.lucas.server.common.Constants.MARKET_SNAPSHOT;
 import static com.lucas.server.common.Constants.MarketDataType;
 import static com.lucas.server.common.Constants.NEWS;
 import static com.lucas.server.common.Constants.NEWS_COUNT;
 import static com.lucas.server.common.Constants.NY_ZONE;
+import static com.lucas.server.common.Constants.PARTIAL_RECOMMENDATIONS_WARN;
 import static com.lucas.server.common.Constants.PortfolioType;
 import static com.lucas.server.common.Constants.RECOMMENDATION;
 import static com.lucas.server.common.Constants.RECOMMENDATION_MAX_ATTEMPTS;
@@ -102,10 +125,25 @@ public class DataManager {
     private final YahooFinanceNewsClient yahooFinanceNewsClient;
     private final YahooFinanceMarketSnapshotClient yahooFinanceMarketSnapshotClient;
     private final FinnhubNewsClient finnhubNewsClient;
+    private final NewsSentimentBatcher sentimentBatcher;
+    private final NewsDeduplicator newsDeduplicator;
+    private final SentimentCache sentimentCache;
+    private final CompletionCache completionCache;
     private final FinnhubMarketDataClient finnhubMarketDataClient;
     private final TwelveDataMarketDataClient twelveDataMarketDataClient;
     private final PortfolioManager portfolioManager;
     private final RecommendationChatCompletionClient recommendationClient;
+    private final BatchKpiGenerator batchKpiGenerator;
+    private final PipelineMetrics pipelineMetrics;
+    private final AssetReportSizeEstimator assetReportSizeEstimator;
+    private final boolean batchKpis;
+    private final boolean concurrentIngestion;
+    private final int persistenceBatchSize;
+    private final boolean incrementalBackfill;
+    private final int retentionChunkSize;
+    private final int pipelineQueueCapacity;
+    private final int aiConcurrency;
+    private final int persistenceConcurrency;
     private final Map<MarketDataType, TypeToMarketDataFunction> typeToRunner;
     private final Map<PortfolioType, PortfolioService> portfolioTypeToService;
 
@@ -123,7 +161,22 @@ public class DataManager {
                        PortfolioJpaService portfolioService,
                        PortfolioMockJpaService portfolioMockService,
                        FinnhubNewsClient newsClient,
-                       PortfolioManager portfolioManager) {
+                       NewsSentimentBatcher sentimentBatcher,
+                       NewsDeduplicator newsDeduplicator,
+                       SentimentCache sentimentCache,
+                       CompletionCache completionCache,
+                       PortfolioManager portfolioManager,
+                       BatchKpiGenerator batchKpiGenerator,
+                       PipelineMetrics pipelineMetrics,
+                       AssetReportSizeEstimator assetReportSizeEstimator,
+                       @Value("${kpi.batch}") boolean batchKpis,
+                       @Value("${market-data.concurrent-ingestion}") boolean concurrentIngestion,
+                       @Value("${market-data.persistence-batch-size}") int persistenceBatchSize,
+                       @Value("${market-data.incremental-backfill}") boolean incrementalBackfill,
+                       @Value("${retention.chunk-size}") int retentionChunkSize,
+                       @Value("${recommendation.pipeline.queue-capacity}") int pipelineQueueCapacity,
+                       @Value("${recommendation.pipeline.ai-concurrency}") int aiConcurrency,
+                       @Value("${recommendation.pipeline.persistence-concurrency}") int persistenceConcurrency) {
         this.symbolService = symbolService;
         this.marketDataService = marketDataService;
         this.marketSnapshotService = marketSnapshotService;
@@ -136,7 +189,22 @@ public class DataManager {
         this.twelveDataMarketDataClient = twelveDataMarketDataClient;
         this.recommendationClient = recommendationClient;
         finnhubNewsClient = newsClient;
+        this.sentimentBatcher = sentimentBatcher;
+        this.newsDeduplicator = newsDeduplicator;
+        this.sentimentCache = sentimentCache;
+        this.completionCache = completionCache;
         this.portfolioManager = portfolioManager;
+        this.batchKpiGenerator = batchKpiGenerator;
+        this.pipelineMetrics = pipelineMetrics;
+        this.assetReportSizeEstimator = assetReportSizeEstimator;
+        this.batchKpis = batchKpis;
+        this.concurrentIngestion = concurrentIngestion;
+        this.persistenceBatchSize = persistenceBatchSize;
+        this.incrementalBackfill = incrementalBackfill;
+        this.retentionChunkSize = retentionChunkSize;
+        this.pipelineQueueCapacity = pipelineQueueCapacity;
+        this.aiConcurrency = aiConcurrency;
+        this.persistenceConcurrency = persistenceConcurrency;
         typeToRunner = Map.of(MarketDataType.LAST,
                 this::retrieveMarketDataWithBackupStrategy,
                 MarketDataType.HISTORIC,
@@ -174,7 +242,8 @@ public class DataManager {
                                                             boolean overwrite,
                                                             boolean onTheFlyNews,
                                                             boolean fetchPreMarket,
-                                                            boolean useOldNews) {
+                                                            boolean useOldNews,
+                                                            boolean bypassCompletionCache) {
         Set<SymbolDomain> symbols = symbolService.findAllById(symbolIds);
         return getRecommendationsInParallel(symbols,
                 clients,
@@ -185,7 +254,8 @@ public class DataManager {
                 false,
                 onTheFlyNews,
                 fetchPreMarket,
-                useOldNews);
+                useOldNews,
+                bypassCompletionCache);
     }
 
     @Transactional
@@ -199,7 +269,8 @@ public class DataManager {
                                                               boolean onlyIfHasNews,
                                                               boolean onTheFlyNews,
                                                               boolean fetchPreMarket,
-                                                              boolean useOldNews) {
+                                                              boolean useOldNews,
+                                                              boolean bypassCompletionCache) {
 
         Set<Long> candidates = symbolService.findAll()
                 .stream()
@@ -231,22 +302,27 @@ public class DataManager {
                 onlyIfHasNews,
                 onTheFlyNews,
                 fetchPreMarket,
-                useOldNews);
+                useOldNews,
+                bypassCompletionCache);
     }
 
-    @Transactional
+    /**
+     * Analyzes the news lacking sentiment in micro-batches. No transaction is held while FinBERT is awaited.
+     */
     public Set<NewsDomain> generateSentiment(Set<String> symbolNames, LocalDateTime from, LocalDateTime to) {
         Set<SymbolDomain> symbols = symbolService.getOrCreateByName(symbolNames);
-        log.info(GENERATION_SUCCESSFUL_INFO, SENTIMENT);
-        return newsService.generateSentiment(symbols.stream()
+        Set<NewsDomain> pending = newsService.findWithoutSentiment(symbols.stream()
                 .map(SymbolDomain::getId)
                 .collect(Collectors.toUnmodifiableSet()), from, to);
+        Set<NewsDomain> res = newsService.updateSentiment(sentimentBatcher.generateSentiment(pending));
+        log.info(GENERATION_SUCCESSFUL_INFO, SENTIMENT);
+        return res;
     }
 
     @Transactional(rollbackFor = {ClientException.class, MappingException.class})
     public Set<NewsDomain> retrieveNewsByName(Set<String> symbolNames) throws ClientException, MappingException {
         Set<SymbolDomain> symbols = symbolService.getOrCreateByName(symbolNames);
-        Set<NewsDomain> news = retrieveYahooNews(symbols);
+        Set<NewsDomain> news = retrieveYahooNews(symbols, null);
         newsPersistenceOrchestrator.persistNews(news);
         return news;
     }
@@ -254,7 +330,7 @@ public class DataManager {
     @Transactional(rollbackFor = {ClientException.class, MappingException.class})
     public Set<NewsDomain> retrieveNewsById(Set<Long> symbolIds) throws ClientException, MappingException {
         Set<SymbolDomain> symbols = symbolService.findAllById(symbolIds);
-        Set<NewsDomain> news = retrieveYahooNews(symbols);
+        Set<NewsDomain> news = retrieveYahooNews(symbols, null);
         newsPersistenceOrchestrator.persistNews(news);
         return news;
     }
@@ -280,18 +356,22 @@ public class DataManager {
         return news;
     }
 
-    @Transactional(rollbackFor = {ClientException.class, MappingException.class})
+    /**
+     * Every persisted chunk commits on its own, so a failure keeps what was ingested before it.
+     */
     public Set<MarketDataDomain> retrieveMarketData(Set<String> symbolNames, MarketDataType type, boolean override)
             throws ClientException, MappingException {
-        Set<SymbolDomain> symbols = symbolService.getOrCreateByName(symbolNames);
+        List<Set<SymbolDomain>> retrievalBatches = partitionForRetrieval(symbolService.getOrCreateByName(symbolNames),
+                type);
+        if (concurrentIngestion) {
+            Set<MarketDataDomain> mds = retrieveMarketDataConcurrently(retrievalBatches, type, override);
+            log.info(GENERATION_SUCCESSFUL_INFO, MARKET_DATA);
+            return mds;
+        }
         Set<MarketDataDomain> mds = new HashSet<>();
-        for (SymbolDomain symbol : symbols) {
-            OrderedIndexedSet<MarketDataDomain> retrieved = typeToRunner.get(type).apply(Set.of(symbol));
-            if (override) {
-                marketDataService.createOrUpdate(retrieved);
-            } else {
-                marketDataService.createIgnoringDuplicates(retrieved);
-            }
+        for (Set<SymbolDomain> retrievalBatch : retrievalBatches) {
+            OrderedIndexedSet<MarketDataDomain> retrieved = typeToRunner.get(type).apply(retrievalBatch);
+            persistMarketData(retrieved, override);
             mds.addAll(retrieved);
         }
         log.info(GENERATION_SUCCESSFUL_INFO, MARKET_DATA);
@@ -355,121 +435,263 @@ public class DataManager {
         return getStand(Set.copyOf(portfolioBySymbol.values()));
     }
 
-    @Transactional
-    public Set<NewsDomain> removeOldNews(int keepCount) {
-        Set<NewsDomain> res = new HashSet<>();
-        Set<SymbolDomain> symbols = symbolService.findAll();
-        for (SymbolDomain symbol : symbols) {
-            Set<Long> keepIds = newsService.getTopForSymbolId(symbol.getId(), keepCount)
-                    .stream()
-                    .map(NewsDomain::getId)
-                    .collect(Collectors.toUnmodifiableSet());
-            Set<NewsDomain> toRemove = newsService.findBySymbolId(symbol.getId())
-                    .stream()
-                    .filter(news -> !keepIds.contains(news.getId()))
-                    .collect(Collectors.toUnmodifiableSet());
-            res.addAll(toRemove);
-            toRemove.forEach(n -> n.getSymbols().removeIf(s -> s.getId().equals(symbol.getId())));
-            newsService.saveAll(toRemove);
-        }
+    /**
+     * Unlinks every symbol from its news beyond the newest {@code keepCount} non-neutral ones, then deletes the news
+     * left without symbols along with their recommendation links.
+     *
+     * @return the number of deleted news
+     */
+    public int removeOldNews(int keepCount) {
+        removeInChunks(chunkSize -> newsService.unlinkOldChunk(keepCount, chunkSize));
+        return removeInChunks(chunkSize -> {
+            Set<Long> orphanedIds = newsService.findOrphanedIds(chunkSize);
+            recommendationsService.unlinkNews(orphanedIds);
+            newsService.deleteAllById(orphanedIds);
+            return orphanedIds.size();
+        });
+    }
 
-        Set<NewsDomain> orphanedNews = newsService.findOrphanedNews();
-        Set<Long> orphanedIds = orphanedNews.stream().map(NewsDomain::getId).collect(Collectors.toUnmodifiableSet());
-        Set<RecommendationDomain> recommendations = recommendationsService.findByNewsId(orphanedIds);
-        recommendations.forEach(r -> r.getNews().removeIf(n -> orphanedIds.contains(n.getId())));
-        recommendationsService.saveAll(recommendations);
-        newsService.deleteAll(orphanedNews);
+    /**
+     * Drops the monthly partitions that only hold old bars, then deletes the remaining ones in chunks.
+     *
+     * @return the number of deleted bars
+     */
+    public int removeOldMarketData(int keepCount) {
+        return marketDataService.dropOldPartitions(keepCount)
+                + removeInChunks(chunkSize -> marketDataService.deleteOldChunk(keepCount, chunkSize));
+    }
 
-        return res;
+    /**
+     * Drops the monthly partitions that only hold old snapshots, then deletes the remaining ones in chunks.
+     *
+     * @return the number of deleted snapshots
+     */
+    public int removeOldSnapshots(int keepCount) {
+        return marketSnapshotService.dropOldPartitions(keepCount)
+                + removeInChunks(chunkSize -> marketSnapshotService.deleteOldChunk(keepCount, chunkSize));
     }
 
-    @Transactional
-    public Set<MarketDataDomain> removeOldMarketData(int keepCount) {
-        Set<MarketDataDomain> res = new HashSet<>();
-        Set<SymbolDomain> symbols = symbolService.findAll();
-        for (SymbolDomain symbol : symbols) {
-            Set<MarketDataDomain> toKeep = marketDataService.getTopForSymbolId(symbol.getId(), keepCount);
-            Set<MarketDataDomain> toRemove = marketDataService.findBySymbolId(symbol.getId())
-                    .stream()
-                    .filter(marketData -> !toKeep.contains(marketData))
-                    .collect(Collectors.toUnmodifiableSet());
-            res.addAll(toRemove);
-        }
-        marketDataService.deleteAll(res);
+    /**
+     * Creates the missing market data and snapshot monthly partitions, from the current month on as well as for the
+     * months of the rows their default partitions hold.
+     *
+     * @param monthsAhead months after the current one to create partitions for
+     * @return the number of created partitions
+     */
+    public int createPartitions(int monthsAhead) {
+        LocalDate from = LocalDate.now(UTC_ZONE);
+        LocalDate to = from.plusMonths(monthsAhead);
+        return marketDataService.createPartitions(from, to) + marketSnapshotService.createPartitions(from, to);
+    }
+
+    /**
+     * @return the number of deleted sentiment cache entries
+     */
+    public int removeExpiredSentiments() {
+        return sentimentCache.removeExpired();
+    }
+
+    /**
+     * @return the number of deleted completion cache entries
+     */
+    public int removeExpiredCompletions() {
+        return completionCache.removeExpired();
+    }
+
+    /**
+     * @return the number of deleted recommendations
+     */
+    public int removeOldRecommendations(int keepCount) {
+        return removeInChunks(chunkSize -> recommendationsService.deleteOldChunk(keepCount, chunkSize));
+    }
+
+    /**
+     * Runs the chunk remover until a chunk comes out short, so no single statement holds locks over the whole table.
+     *
+     * @param chunkRemover removes up to the given number of rows, returning how many it removed
+     * @return the number of removed rows
+     */
+    private int removeInChunks(IntUnaryOperator chunkRemover) {
+        int res = 0;
+        int removed;
+        do {
+            removed = chunkRemover.applyAsInt(retentionChunkSize);
+            res += removed;
+        } while (retentionChunkSize <= removed);
         return res;
     }
 
-    @Transactional
-    public Set<MarketSnapshotDomain> removeOldSnapshots(int keepCount) {
-        Set<MarketSnapshotDomain> res = new HashSet<>();
-        Set<SymbolDomain> symbols = symbolService.findAll();
-        for (SymbolDomain symbol : symbols) {
-            Set<MarketSnapshotDomain> toKeep = marketSnapshotService.getTopForSymbolId(symbol.getId(), keepCount);
-            Set<MarketSnapshotDomain> toRemove = marketSnapshotService.findBySymbolId(symbol.getId())
-                    .stream()
-                    .filter(marketSnapshot -> !toKeep.contains(marketSnapshot))
-                    .collect(Collectors.toUnmodifiableSet());
-            res.addAll(toRemove);
+    /**
+     * Backup clients only get the symbols left without a recommendation, as those streamed before the failure stand.
+     */
+    private CompletableFuture<Set<RecommendationDomain>> getRecommendationsWithBackup(
+            Set<SymbolPayload> buffer,
+            OrderedIndexedSet<AiClient> clients,
+            Deque<AiClient> backupClients,
+            boolean useOldNews,
+            boolean bypassCompletionCache,
+            Set<SymbolDomain> recommended,
+            Consumer<Set<RecommendationDomain>> onRecommendations) {
+        return recommendationClient.getRecommendationsAsync(buffer,
+                        clients,
+                        useOldNews,
+                        bypassCompletionCache,
+                        onRecommendations)
+                .exceptionallyCompose(e -> {
+                    if (backupClients.isEmpty()) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    Set<SymbolPayload> remaining = buffer.stream()
+                            .filter(p -> !recommended.contains(p.getSymbol()))
+                            .collect(Collectors.toUnmodifiableSet());
+                    if (remaining.isEmpty()) {
+                        return CompletableFuture.completedFuture(Set.of());
+                    }
+                    backupClients.add(backupClients.pollFirst());
+                    log.warn(CLIENT_FAILED_BACKUP_WARN,
+                            clients.stream().map(c -> c.getConfig().name()).toList(),
+                            remaining.stream().map(SymbolPayload::getSymbol).toList(),
+                            e);
+                    return recommendationClient.getRecommendationsAsync(remaining,
+                            OrderedIndexedSet.copyOf(backupClients),
+                            useOldNews,
+                            bypassCompletionCache,
+                            onRecommendations);
+                });
+    }
+
+    /**
+     * @return the symbols grouped as the runner of the type retrieves them at once: TwelveData batches, or one by one.
+     * Symbols are grouped in name order, so the same symbols always share a batch
+     */
+    private List<Set<SymbolDomain>> partitionForRetrieval(Set<SymbolDomain> symbols, MarketDataType type) {
+        int size = MarketDataType.REAL_TIME == type ? 1 : Math.max(1, twelveDataMarketDataClient.getBatchSize());
+        List<SymbolDomain> pending = symbols.stream().sorted(Comparator.comparing(SymbolDomain::getName)).toList();
+        List<Set<SymbolDomain>> res = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += size) {
+            res.add(Set.copyOf(pending.subList(from, Math.min(from + size, pending.size()))));
         }
-        marketSnapshotService.deleteAll(res);
         return res;
     }
 
-    @Transactional
-    public Set<RecommendationDomain> removeOldRecommendations(int keepCount) {
-        Set<RecommendationDomain> res = new HashSet<>();
-        Set<SymbolDomain> symbols = symbolService.findAll();
-        for (SymbolDomain symbol : symbols) {
-            Set<RecommendationDomain> toKeep = recommendationsService.getTopForSymbolId(symbol.getId(), keepCount);
-            Set<RecommendationDomain> toRemove = recommendationsService.findBySymbolId(symbol.getId())
-                    .stream()
-                    .filter(recommendation -> !toKeep.contains(recommendation))
-                    .collect(Collectors.toUnmodifiableSet());
-            res.addAll(toRemove);
+    /**
+     * Retrieves every batch of symbols on its own virtual thread, so round-trips overlap as much as the clients' rate
+     * limiters allow, and persists the results in batches of at least {@code persistenceBatchSize} symbols as they
+     * arrive. Batches failing to retrieve are skipped instead of aborting the whole ingestion.
+     */
+    private Set<MarketDataDomain> retrieveMarketDataConcurrently(List<Set<SymbolDomain>> retrievalBatches,
+                                                                 MarketDataType type,
+                                                                 boolean override) {
+        Set<MarketDataDomain> res = new HashSet<>();
+        BlockingQueue<OrderedIndexedSet<MarketDataDomain>> retrievedQueue = new LinkedBlockingQueue<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Set<SymbolDomain> retrievalBatch : retrievalBatches) {
+                executor.submit(() -> {
+                    OrderedIndexedSet<MarketDataDomain> retrieved = retrieveMarketDataOrSkip(retrievalBatch, type);
+                    Interrupts.runOrThrow(() -> retrievedQueue.put(retrieved), e -> log.error(e.getMessage(), e));
+                });
+            }
+
+            OrderedIndexedSet<MarketDataDomain> batch = new OrderedIndexedSetImpl<>();
+            int batchedSymbols = 0;
+            for (int i = 0; i < retrievalBatches.size(); i++) {
+                OrderedIndexedSet<MarketDataDomain> retrieved = Interrupts.callOrSwallow(retrievedQueue::take,
+                        OrderedIndexedSetImpl::new,
+                        e -> log.error(e.getMessage(), e));
+                batch.addAll(Objects.requireNonNull(retrieved));
+                batchedSymbols += retrievalBatches.get(i).size();
+                if (persistenceBatchSize <= batchedSymbols || retrievalBatches.size() - 1 == i) {
+                    persistMarketData(OrderedIndexedSet.copyOf(batch), override);
+                    res.addAll(batch);
+                    batch.clear();
+                    batchedSymbols = 0;
+                }
+            }
         }
-        recommendationsService.deleteAll(res);
         return res;
     }
 
-    private Set<RecommendationDomain> getRecommendationsWithBackup(Set<SymbolPayload> buffer,
-                                                                   OrderedIndexedSet<AiClient> clients,
-                                                                   Deque<AiClient> backupClients,
-                                                                   boolean useOldNews)
-            throws ClientException, MappingException {
+    private OrderedIndexedSet<MarketDataDomain> retrieveMarketDataOrSkip(Set<SymbolDomain> symbols,
+                                                                         MarketDataType type) {
         try {
-            return recommendationClient.getRecommendations(buffer, clients, useOldNews);
-        } catch (ClientException e) {
-            if (backupClients.isEmpty()) {
-                throw e;
-            }
-            backupClients.add(backupClients.pollFirst());
-            log.warn(CLIENT_FAILED_BACKUP_WARN,
-                    clients.stream().map(c -> c.getConfig().name()).toList(),
-                    buffer.stream().map(SymbolPayload::getSymbol).toList(),
-                    e);
-            return recommendationClient.getRecommendations(buffer, OrderedIndexedSet.copyOf(backupClients), useOldNews);
+            return typeToRunner.get(type).apply(symbols);
+        } catch (ClientException | MappingException e) {
+            log.warn(RETRIEVAL_FAILED_WARN, MARKET_DATA, symbols, e);
+        } catch (RuntimeException e) {
+            // the consumer waits for one result per batch, so nothing may escape
+            log.error(e.getMessage(), e);
+        }
+        return new OrderedIndexedSetImpl<>();
+    }
+
+    private void persistMarketData(OrderedIndexedSet<MarketDataDomain> mds, boolean override) {
+        if (!mds.isEmpty()) {
+            marketDataService.createChunk(mds, override);
         }
     }
 
     private OrderedIndexedSet<MarketDataDomain> retrieveMarketDataWithBackupStrategy(Set<SymbolDomain> symbols)
             throws ClientException, MappingException {
         OrderedIndexedSet<MarketDataDomain> res = new OrderedIndexedSetImpl<>();
+        Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> retrieved =
+                twelveDataMarketDataClient.retrieveMarketData(symbols, MarketDataType.LAST);
         for (SymbolDomain symbol : symbols) {
-            try {
-                res.add(twelveDataMarketDataClient.retrieveMarketData(symbol, MarketDataType.LAST).getFirst());
-            } catch (ClientException | MappingException e) {
-                log.warn(CLIENT_FAILED_BACKUP_WARN, twelveDataMarketDataClient.getClass().getSimpleName(), symbol, e);
-                res.add(finnhubMarketDataClient.retrieveMarketData(symbol));
+            OrderedIndexedSet<MarketDataDomain> mds = retrieved.get(symbol);
+            if (null != mds && !mds.isEmpty()) {
+                res.add(mds.getFirst());
+            } else {
+                log.warn(CLIENT_FAILED_BACKUP_WARN, twelveDataMarketDataClient.getClass().getSimpleName(), symbol);
+                try {
+                    res.add(finnhubMarketDataClient.retrieveMarketData(symbol));
+                } catch (ClientException | MappingException e) {
+                    // a failing symbol only loses itself, not the rest of its batch
+                    log.warn(RETRIEVAL_FAILED_WARN, MARKET_DATA, symbol, e);
+                }
             }
         }
         return OrderedIndexedSet.copyOf(res);
     }
 
+    /**
+     * With incremental backfill, symbols already stored are only requested the trading days after their latest bar up
+     * to the last completed one, grouped by that range so they still share requests. Up-to-date symbols are skipped
+     * and symbols without bars get the whole series.
+     */
     private OrderedIndexedSet<MarketDataDomain> retrieveTwelveDataMarketData(Set<SymbolDomain> symbols)
             throws ClientException, MappingException {
         OrderedIndexedSet<MarketDataDomain> res = new OrderedIndexedSetImpl<>();
+        if (!incrementalBackfill) {
+            twelveDataMarketDataClient.retrieveMarketData(symbols, MarketDataType.HISTORIC)
+                    .values()
+                    .forEach(res::addAll);
+            return OrderedIndexedSet.copyOf(res);
+        }
+        LocalDate endDate = toPastOrFutureTradeDate(LocalDate.now(NY_ZONE), 1, d -> d.minusDays(1));
+        Set<SymbolDomain> withoutBars = new HashSet<>();
+        Map<LocalDate, Set<SymbolDomain>> startDateToSymbols = new HashMap<>();
         for (SymbolDomain symbol : symbols) {
-            res.addAll(twelveDataMarketDataClient.retrieveMarketData(symbol, MarketDataType.HISTORIC));
+            Optional<LocalDate> latest = marketDataService.findLatestBySymbolId(symbol.getId())
+                    .map(MarketDataDomain::getDate);
+            if (latest.isEmpty()) {
+                withoutBars.add(symbol);
+                continue;
+            }
+            LocalDate startDate = toPastOrFutureTradeDate(latest.get(), 1, d -> d.plusDays(1));
+            if (startDate.isAfter(endDate)) {
+                log.info(MARKET_DATA_UP_TO_DATE_INFO, symbol, latest.get());
+            } else {
+                startDateToSymbols.computeIfAbsent(startDate, _ -> new HashSet<>()).add(symbol);
+            }
+        }
+        if (!withoutBars.isEmpty()) {
+            twelveDataMarketDataClient.retrieveMarketData(withoutBars, MarketDataType.HISTORIC)
+                    .values()
+                    .forEach(res::addAll);
+        }
+        for (Map.Entry<LocalDate, Set<SymbolDomain>> startDateAndSymbols : startDateToSymbols.entrySet()) {
+            twelveDataMarketDataClient.retrieveMarketData(startDateAndSymbols.getValue(),
+                    startDateAndSymbols.getKey(),
+                    endDate).values().forEach(res::addAll);
         }
         return OrderedIndexedSet.copyOf(res);
     }
@@ -483,8 +705,8 @@ public class DataManager {
                                                                    boolean onlyIfHasNews,
                                                                    boolean onTheFlyNews,
                                                                    boolean fetchPreMarket,
-                                                                   boolean useOldNews) {
-        Set<RecommendationDomain> res = new HashSet<>();
+                                                                   boolean useOldNews,
+                                                                   boolean bypassCompletionCache) {
         Deque<AiClient> mutableClients = new ConcurrentLinkedDeque<>(clients);
         Deque<AiClient> mutableCheekyClients = new ConcurrentLinkedDeque<>(cheekyClients.getClients());
         Deque<AiClient> mutableBackupClients = new ConcurrentLinkedDeque<>(backupClients);
@@ -505,142 +727,132 @@ public class DataManager {
                     .toLocalDateTime();
         }
 
-        Set<SymbolDomain> remainingSymbols = ConcurrentHashMap.newKeySet();
-        remainingSymbols.addAll(symbols);
-
-        int attempts = 0;
-        while (!remainingSymbols.isEmpty() && RECOMMENDATION_MAX_ATTEMPTS > attempts) {
-            BlockingQueue<SymbolPayload> payloadQueue = new LinkedBlockingQueue<>();
-            int payloadsSubmitted = 0;
-            BlockingQueue<Set<RecommendationDomain>> resultsQueue = new LinkedBlockingQueue<>();
-            int submitted = 0;
-            log.info(RETRIEVING_DATA_INFO, RECOMMENDATION, remainingSymbols.size());
-            // fixed payload computer size to not overwhelm Hikari
-            int poolSize = getFinnhubRateLimiterNames().size();
-            // ExecutorService::close would block until tasks finish, so only a single try-with-resources
-            try (ExecutorService payloadComputationExecutor = Executors.newFixedThreadPool(poolSize);
-                 ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
-                for (SymbolDomain symbol : Set.copyOf(remainingSymbols)) {
-                    payloadComputationExecutor.submit(() -> {
-                        try {
-                            OrderedIndexedSet<MarketDataDomain> marketData =
-                                    marketDataService.getTopForSymbolId(symbol.getId(),
-                                            MARKET_DATA_RELEVANT_DAYS_COUNT);
-                            if (marketData.isEmpty()) {
-                                remainingSymbols.remove(symbol);
-                                Interrupts.runOrThrow(() -> payloadQueue.put(SymbolPayload.empty()),
-                                        e -> log.error(e.getMessage(), e));
-                                return;
-                            }
-                            OrderedIndexedSet<NewsDomain> news =
-                                    provideNews(onTheFlyNews, useOldNews, symbol, startUtc);
-                            if (onlyIfHasNews && news.isEmpty()) {
-                                remainingSymbols.remove(symbol);
-                                Interrupts.runOrThrow(() -> payloadQueue.put(SymbolPayload.empty()),
-                                        e -> log.error(e.getMessage(), e));
-                                return;
-                            }
-                            PortfolioDomain portfolio = portfolioService.findBySymbol(symbol)
-                                    .orElseGet(() -> new PortfolioDomain().setSymbol(symbol));
-
-                            SymbolPayload payload = new SymbolPayload(symbol, marketData, portfolio).setNews(news)
-                                    .setPremarket(providePremarket(fetchPreMarket, symbol));
-                            Interrupts.runOrThrow(() -> payloadQueue.put(payload), e -> log.error(e.getMessage(), e));
-                        } catch (Exception e) {
-                            log.error(e.getMessage(), e);
-                        }
-                    });
-                    payloadsSubmitted++;
-                }
+        Set<Long> symbolIds = symbols.stream().map(SymbolDomain::getId).collect(Collectors.toUnmodifiableSet());
+        Map<Long, ReportKpis> kpisBySymbolId = batchKpis ? batchKpiGenerator.computeReportKpis(symbolIds) : Map.of();
+        // news retrieved on the fly are only stored while computing each payload
+        Map<Long, OrderedIndexedSet<NewsDomain>> storedNews =
+                onTheFlyNews ? Map.of() : newsService.getTopForSymbolIds(symbolIds, NEWS_COUNT);
+        Supplier<Deque<AiClient>> currentClients = () -> !mutableCheekyClients.isEmpty()
+                                                         && 0 < cheekyClients.getRemaining()
+                ? mutableCheekyClients
+                : mutableClients;
+        // fixed payload computer size to not overwhelm Hikari
+        int poolSize = getFinnhubRateLimiterNames().size();
+        // the stages reading the database run at the same time, so they split the payload computer size
+        int dbStageSize = Math.max(1, poolSize / 2);
+        // symbols left out on purpose are not reported as failed
+        Set<SymbolDomain> skipped = ConcurrentHashMap.newKeySet();
 
-                Set<SymbolPayload> recommendationBuffer = new HashSet<>();
-                for (int i = 0; i < payloadsSubmitted; i++) {
-                    SymbolPayload payload = Interrupts.callOrSwallow(payloadQueue::take,
-                            SymbolPayload::empty,
-                            e -> log.error(e.getMessage(), e));
-                    if (null == Objects.requireNonNull(payload).getSymbol()) {
-                        continue;
+        log.info(RETRIEVING_DATA_INFO, RECOMMENDATION, symbols.size());
+        Set<RecommendationDomain> res = new HashSet<>(Pipeline.<SymbolDomain>builder(RECOMMENDATION,
+                        pipelineQueueCapacity,
+                        pipelineMetrics)
+                .<SymbolPayload>stage("market-data", dbStageSize, RECOMMENDATION_MAX_ATTEMPTS, (symbol, downstream) -> {
+                    OrderedIndexedSet<MarketDataDomain> marketData =
+                            marketDataService.getTopForSymbolId(symbol.getId(), MARKET_DATA_RELEVANT_DAYS_COUNT);
+                    if (marketData.isEmpty()) {
+                        skipped.add(symbol);
+                        return;
                     }
-                    recommendationBuffer.add(payload);
-
-                    boolean withCheekyClients = !mutableCheekyClients.isEmpty() && 0 < cheekyClients.getRemaining();
-                    Deque<AiClient> clientsRef = withCheekyClients ? mutableCheekyClients : mutableClients;
-                    int minChunkSize = clientsRef.stream().mapToInt(c -> c.getConfig().chunkSize()).min().orElseThrow();
-                    if (recommendationBuffer.size() == minChunkSize) {
-                        submitChunk(Set.copyOf(recommendationBuffer),
-                                OrderedIndexedSet.copyOf(clientsRef),
-                                mutableBackupClients,
-                                executor,
-                                resultsQueue,
-                                overwrite,
-                                useOldNews);
-                        if (withCheekyClients) {
-                            cheekyClients.decrementRemaining();
-                        }
-                        submitted++;
-                        clientsRef.add(clientsRef.pollFirst());
-                        recommendationBuffer.clear();
+                    PortfolioDomain portfolio = portfolioService.findBySymbol(symbol)
+                            .orElseGet(() -> new PortfolioDomain().setSymbol(symbol));
+                    downstream.accept(new SymbolPayload(symbol, marketData, portfolio));
+                })
+                .<SymbolPayload>stage("news", dbStageSize, RECOMMENDATION_MAX_ATTEMPTS, (payload, downstream) -> {
+                    OrderedIndexedSet<NewsDomain> news =
+                            provideNews(onTheFlyNews, useOldNews, payload.getSymbol(), startUtc, storedNews);
+                    if (onlyIfHasNews && news.isEmpty()) {
+                        skipped.add(payload.getSymbol());
+                        return;
                     }
-                }
-                if (!recommendationBuffer.isEmpty()) {
-                    boolean withCheekyClients = !mutableCheekyClients.isEmpty() && 0 < cheekyClients.getRemaining();
-                    Deque<AiClient> clientsRef = withCheekyClients ? mutableCheekyClients : mutableClients;
-                    submitChunk(Set.copyOf(recommendationBuffer),
-                            OrderedIndexedSet.copyOf(clientsRef),
-                            mutableBackupClients,
-                            executor,
-                            resultsQueue,
-                            overwrite,
-                            useOldNews);
-                    if (withCheekyClients) {
-                        cheekyClients.decrementRemaining();
-                    }
-                    submitted++;
-                    clientsRef.add(clientsRef.pollFirst());
-                }
-            }
-
-            for (int i = 0; i < submitted; i++) {
-                Set<RecommendationDomain> fetched =
-                        Interrupts.callOrSwallow(resultsQueue::take, Set::of, e -> log.error(e.getMessage(), e));
-                if (!Objects.requireNonNull(fetched).isEmpty()) {
-                    res.addAll(fetched);
-                    Set<SymbolDomain> fetchedSymbols = fetched.stream()
-                            .map(RecommendationDomain::getSymbol)
-                            .collect(Collectors.toUnmodifiableSet());
-                    remainingSymbols.removeIf(fetchedSymbols::contains);
-                }
-            }
-            attempts++;
-        }
+                    downstream.accept(payload.setNews(news));
+                })
+                .<SymbolPayload>stage("premarket", poolSize, RECOMMENDATION_MAX_ATTEMPTS,
+                        (payload, downstream) -> downstream.accept(payload.setPremarket(
+                                providePremarket(fetchPreMarket, payload.getSymbol()))))
+                .<SymbolPayload>stage("report", poolSize, RECOMMENDATION_MAX_ATTEMPTS,
+                        (payload, downstream) -> downstream.accept(payload.setKpis(
+                                kpisBySymbolId.get(payload.getSymbol().getId()))))
+                .<Set<RecommendationDomain>>asyncBatchStage("ai",
+                        aiConcurrency,
+                        RECOMMENDATION_MAX_ATTEMPTS,
+                        () -> minOf(currentClients.get(), AiProperties.DeploymentProperties::chunkSize),
+                        assetReportSizeEstimator::estimateTokens,
+                        () -> minOf(currentClients.get(), AiProperties.DeploymentProperties::promptTokenBudget),
+                        (payloads, downstream) -> {
+                            Deque<AiClient> clientsRef;
+                            synchronized (cheekyClients) {
+                                clientsRef = currentClients.get();
+                                if (clientsRef == mutableCheekyClients) {
+                                    cheekyClients.decrementRemaining();
+                                }
+                            }
+                            return getRecommendationsOrMissing(payloads,
+                                    OrderedIndexedSet.copyOf(clientsRef),
+                                    mutableBackupClients,
+                                    useOldNews,
+                                    bypassCompletionCache,
+                                    downstream);
+                        })
+                .<RecommendationDomain>stage("persistence",
+                        persistenceConcurrency,
+                        RECOMMENDATION_MAX_ATTEMPTS,
+                        (partial, downstream) -> persistRecommendations(partial, overwrite).forEach(downstream))
+                .build()
+                .run(symbols));
 
-        if (!remainingSymbols.isEmpty()) {
-            log.warn(RETRIEVAL_FAILED_WARN, RECOMMENDATION, remainingSymbols);
+        Set<SymbolDomain> recommended =
+                res.stream().map(RecommendationDomain::getSymbol).collect(Collectors.toUnmodifiableSet());
+        List<SymbolDomain> failed =
+                symbols.stream().filter(s -> !recommended.contains(s) && !skipped.contains(s)).toList();
+        if (!failed.isEmpty()) {
+            log.warn(RETRIEVAL_FAILED_WARN, RECOMMENDATION, failed);
         }
         return res;
     }
 
+    private static int minOf(Collection<AiClient> clients, ToIntFunction<AiProperties.DeploymentProperties> property) {
+        return clients.stream().mapToInt(c -> property.applyAsInt(c.getConfig())).min().orElseThrow();
+    }
+
     private OrderedIndexedSet<NewsDomain> provideNews(boolean onTheFlyNews,
                                                       boolean useOldNews,
                                                       SymbolDomain symbol,
-                                                      LocalDateTime startUtc) {
+                                                      LocalDateTime startUtc,
+                                                      Map<Long, OrderedIndexedSet<NewsDomain>> storedNews) {
+        Map<Long, OrderedIndexedSet<NewsDomain>> topNews = storedNews;
         if (onTheFlyNews) {
             Set<SymbolDomain> symbols = Set.of(symbol);
-            Set<NewsDomain> news = new HashSet<>();
+            Set<NewsDomain> retrieved = new HashSet<>();
             try {
-                news.addAll(retrieveNewsByDateRange(symbols, startUtc.toLocalDate(), LocalDate.now(UTC_ZONE), false));
+                retrieved.addAll(retrieveNewsByDateRange(symbols,
+                        startUtc.toLocalDate(),
+                        LocalDate.now(UTC_ZONE),
+                        false));
             } catch (ClientException | MappingException e) {
                 log.warn(RETRIEVAL_FAILED_WARN, NEWS, symbol, e);
             }
             try {
-                news.addAll(retrieveYahooNews(symbols));
+                retrieved.addAll(retrieveYahooNews(symbols, startUtc));
             } catch (ClientException | MappingException e) {
                 log.warn(RETRIEVAL_FAILED_WARN, NEWS, symbol, e);
             }
-            newsPersistenceOrchestrator.persistNews(news);
+            // the same story is often returned by both providers
+            Set<NewsDomain> news = newsDeduplicator.collapse(retrieved);
+            // batched along with the news of the symbols being prepared concurrently
+            Set<Long> analyzed = newsService.findExternalIdsWithSentiment(news.stream()
+                    .map(NewsDomain::getExternalId)
+                    .collect(Collectors.toUnmodifiableSet()));
+            // the analyzed copies take precedence, the rest is persisted as retrieved
+            Set<NewsDomain> withSentiment = new HashSet<>(sentimentBatcher.generateSentiment(news.stream()
+                    .filter(n -> !analyzed.contains(n.getExternalId()))
+                    .toList()));
+            withSentiment.addAll(news);
+            newsPersistenceOrchestrator.persistNews(withSentiment);
+            topNews = newsService.getTopForSymbolIds(Set.of(symbol.getId()), NEWS_COUNT);
         }
 
-        return newsService.getTopForSymbolId(symbol.getId(), NEWS_COUNT)
+        return topNews.getOrDefault(symbol.getId(), OrderedIndexedSet.of())
                 .stream()
                 .filter(n -> useOldNews || n.getDate().isAfter(startUtc))
                 .collect(OrderedIndexedSet.toUnmodifiableOrderedIndexedSet());
@@ -657,63 +869,85 @@ public class DataManager {
         return null;
     }
 
-    private void submitChunk(Set<SymbolPayload> buffer,
-                             OrderedIndexedSet<AiClient> clients,
-                             Deque<AiClient> backupClients,
-                             ExecutorService executor,
-                             BlockingQueue<Set<RecommendationDomain>> resultsQueue,
-                             boolean overwrite,
-                             boolean useOldNews) {
-        executor.submit(() -> {
-            try {
-                Set<RecommendationDomain> partial =
-                        getRecommendationsWithBackup(buffer, clients, backupClients, useOldNews);
-                log.info(GENERATION_SUCCESSFUL_INFO, RECOMMENDATION);
-                Set<NewsDomain> mergedNews = Set.copyOf(partial.stream()
-                        .flatMap(r -> r.getNews().stream())
-                        .collect(Collectors.toUnmodifiableMap(NewsDomain::getId, Function.identity(), (a, b) -> {
-                            a.getSymbols().addAll(b.getSymbols());
-                            return a;
-                        }))
-                        .values());
-                Map<Long, NewsDomain> persistedNews;
-                persistedNews = newsPersistenceOrchestrator.persistNews(mergedNews)
-                        .stream()
-                        .collect(Collectors.toUnmodifiableMap(NewsDomain::getExternalId, Function.identity()));
-                partial.forEach(r -> r.setNews(r.getNews()
-                        .stream()
-                        .map(n -> persistedNews.get(n.getExternalId()))
-                        .collect(Collectors.toUnmodifiableSet())));
-                Set<RecommendationDomain> finalPartial;
-                if (overwrite) {
-                    finalPartial = recommendationsService.createOrUpdate(partial);
-                } else {
-                    finalPartial = partial;
-                    recommendationsService.createIgnoringDuplicates(partial);
-                }
-                Interrupts.runOrThrow(() -> resultsQueue.put(finalPartial), e -> log.error(e.getMessage(), e));
-            } catch (ClientException | MappingException e) {
-                log.warn(RETRIEVAL_FAILED_WARN,
-                        RECOMMENDATION,
-                        buffer.stream().map(SymbolPayload::getSymbol).toList(),
-                        e);
-                Interrupts.runOrThrow(() -> resultsQueue.put(Set.of()), ie -> log.error(ie.getMessage(), ie));
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-            }
-        });
+    /**
+     * If the completion fails after some recommendations arrived, only the rest is retried rather than the whole batch.
+     *
+     * @param downstream receives the recommendations, if any, as they arrive
+     * @return the payloads left without recommendation
+     */
+    private CompletableFuture<List<SymbolPayload>> getRecommendationsOrMissing(
+            List<SymbolPayload> payloads,
+            OrderedIndexedSet<AiClient> clients,
+            Deque<AiClient> backupClients,
+            boolean useOldNews,
+            boolean bypassCompletionCache,
+            Consumer<Set<RecommendationDomain>> downstream) {
+        Set<SymbolDomain> recommended = ConcurrentHashMap.newKeySet();
+        return getRecommendationsWithBackup(Set.copyOf(payloads),
+                clients,
+                backupClients,
+                useOldNews,
+                bypassCompletionCache,
+                recommended,
+                partial -> {
+                    partial.forEach(r -> recommended.add(r.getSymbol()));
+                    if (!partial.isEmpty()) {
+                        downstream.accept(partial);
+                    }
+                }).handle((_, e) -> {
+                    if (null != e && recommended.isEmpty()) {
+                        throw e instanceof CompletionException completionException
+                                ? completionException
+                                : new CompletionException(e);
+                    }
+                    List<SymbolPayload> missing =
+                            payloads.stream().filter(p -> !recommended.contains(p.getSymbol())).toList();
+                    if (null == e) {
+                        log.info(GENERATION_SUCCESSFUL_INFO, RECOMMENDATION);
+                    } else {
+                        log.warn(PARTIAL_RECOMMENDATIONS_WARN,
+                                missing.stream().map(SymbolPayload::getSymbol).toList(),
+                                e);
+                    }
+                    return missing;
+                });
     }
 
-    private Set<NewsDomain> retrieveYahooNews(Set<SymbolDomain> symbols) throws ClientException, MappingException {
+    private Set<RecommendationDomain> persistRecommendations(Set<RecommendationDomain> partial, boolean overwrite) {
+        Set<NewsDomain> mergedNews = Set.copyOf(partial.stream()
+                .flatMap(r -> r.getNews().stream())
+                .collect(Collectors.toUnmodifiableMap(NewsDomain::getId, Function.identity(), (a, b) -> {
+                    a.getSymbols().addAll(b.getSymbols());
+                    return a;
+                }))
+                .values());
+        Map<Long, NewsDomain> persistedNews = newsPersistenceOrchestrator.persistNews(mergedNews)
+                .stream()
+                .collect(Collectors.toUnmodifiableMap(NewsDomain::getExternalId, Function.identity()));
+        partial.forEach(r -> r.setNews(r.getNews()
+                .stream()
+                .map(n -> persistedNews.get(n.getExternalId()))
+                .collect(Collectors.toUnmodifiableSet())));
+        if (overwrite) {
+            return recommendationsService.createOrUpdate(partial);
+        }
+        recommendationsService.createIgnoringDuplicates(partial);
+        return partial;
+    }
+
+    private Set<NewsDomain> retrieveYahooNews(Set<SymbolDomain> symbols, @Nullable LocalDateTime since)
+            throws ClientException, MappingException {
         Map<Long, NewsDomain> newsByExternalId = new HashMap<>();
         for (SymbolDomain symbol : symbols) {
-            Set<NewsDomain> updated = yahooFinanceNewsClient.retrieveNews(symbol);
+            Set<NewsDomain> updated = null == since
+                    ? yahooFinanceNewsClient.retrieveNews(symbol)
+                    : yahooFinanceNewsClient.retrieveNews(symbol, since);
             for (NewsDomain news : updated) {
                 newsByExternalId.computeIfAbsent(news.getExternalId(), _ -> news).addSymbol(symbol);
             }
         }
         log.info(GENERATION_SUCCESSFUL_INFO, NEWS);
-        return Set.copyOf(newsByExternalId.values());
+        return Set.copyOf(newsDeduplicator.collapse(newsByExternalId.values()));
     }
 
     private Set<NewsDomain> retrieveNewsByDateRange(Set<SymbolDomain> symbols,
@@ -727,10 +961,10 @@ public class DataManager {
                 newsByExternalId.computeIfAbsent(news.getExternalId(), _ -> news).addSymbol(symbol);
             }
         }
-        Set<NewsDomain> res = newsByExternalId.values()
+        Set<NewsDomain> res = Set.copyOf(newsDeduplicator.collapse(newsByExternalId.values()
                 .stream()
                 .filter(n -> withYahooNews || !"Yahoo".equals(n.getSource()))
-                .collect(Collectors.toUnmodifiableSet());
+                .toList()));
         log.info(GENERATION_SUCCESSFUL_INFO, NEWS);
         return res;
     }
@@ -745,7 +979,7 @@ public class DataManager {
             }
         }
         log.info(GENERATION_SUCCESSFUL_INFO, MARKET_SNAPSHOT);
-        return marketSnapshotService.saveAll(mss);
+        return marketSnapshotService.createOrUpdate(mss);
     }
 
     private OrderedIndexedSet<PortfolioManager.SymbolStand> getStand(Set<PortfolioDomain> portfolio) {
@@ -784,8 +1018,10 @@ public class DataManager {
     @RequiredArgsConstructor
     @Getter
     @Accessors(chain = true)
+    @ToString(onlyExplicitlyIncluded = true)
     public static class SymbolPayload {
 
+        @ToString.Include
         private final SymbolDomain symbol;
         private final OrderedIndexedSet<MarketDataDomain> marketData;
         private final PortfolioDomain portfolio;
@@ -793,10 +1029,8 @@ public class DataManager {
         private MarketSnapshotDomain premarket;
         @Setter
         private OrderedIndexedSet<NewsDomain> news;
-
-        public static SymbolPayload empty() {
-            return new SymbolPayload(null, null, null);
-        }
+        @Setter
+        private ReportKpis kpis;
     }
 
     @Getter
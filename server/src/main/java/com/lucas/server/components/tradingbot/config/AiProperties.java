@@ -32,7 +32,9 @@ public class AiProperties {
                                        Integer requestsPerMinute,
                                        Integer concurrentRequests,
                                        Integer chunkSize,
+                                       Integer promptTokenBudget,
                                        Boolean fixMe,
+                                       Boolean stream,
                                        Constants.AiProvider provider,
                                        List<String> fallbackModels) {
 
@@ -75,9 +77,15 @@ public class AiProperties {
             if (null == fixMe) {
                 fixMe = false;
             }
+            if (null == stream) {
+                stream = false;
+            }
             if (null == chunkSize) {
                 chunkSize = 5;
             }
+            if (null == promptTokenBudget) {
+                promptTokenBudget = 6000;
+            }
             if (null == maxTokens) {
                 maxTokens = 8000;
             }
@@ -2,10 +2,13 @@ package com.lucas.server.components.tradingbot.config;
 
 import com.lucas.server.common.Constants;
 import com.lucas.server.common.HttpRequestClient;
+import com.lucas.server.components.tradingbot.common.AdaptiveRateLimiter;
 import com.lucas.server.components.tradingbot.common.AiClient;
 import com.lucas.utils.ratelimiter.CompletionSlidingWindowRateLimiter;
 import com.lucas.utils.ratelimiter.DefaultSlidingWindowRateLimiter;
 import com.lucas.utils.ratelimiter.SlidingWindowRateLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,6 +27,7 @@ import java.util.stream.Collectors;
 import static com.lucas.server.common.Constants.AiProvider.GITHUB;
 import static com.lucas.server.common.Constants.AiProvider.GOOGLE;
 import static com.lucas.server.common.Constants.AiProvider.OPENROUTER;
+import static com.lucas.server.common.Constants.THINK_END;
 import static com.lucas.server.common.Constants.TWELVEDATA_RATE_LIMITER;
 import static com.lucas.server.common.Constants.YAHOO_FINANCE_RATE_LIMITER;
 import static com.lucas.server.common.Constants.getFinnhubRateLimiterNames;
@@ -33,15 +37,17 @@ import static com.lucas.utils.Utils.EMPTY_STRING;
 @Configuration
 public class HttpClientConfig {
 
-    private static final Map<Constants.AiProvider, Function<AiProperties.DeploymentProperties, SlidingWindowRateLimiter>>
-            providerToPerMinuteRateLimiter = Map.of(OPENROUTER,
+    private static final Map<Constants.AiProvider,
+            Function<AiProperties.DeploymentProperties, SlidingWindowRateLimiter>> providerToPerMinuteRateLimiter =
+            Map.of(OPENROUTER,
             config -> new DefaultSlidingWindowRateLimiter(config.requestsPerMinute(), Duration.ofMinutes(1)),
             GOOGLE,
             config -> new DefaultSlidingWindowRateLimiter(config.requestsPerMinute(), Duration.ofMinutes(1)),
             GITHUB,
             config -> new CompletionSlidingWindowRateLimiter(config.requestsPerMinute(), Duration.ofMinutes(1)));
-    private static final Map<Constants.AiProvider, Function<AiProperties.DeploymentProperties, SlidingWindowRateLimiter>>
-            providerToConcurrentRateLimiter = Map.of(OPENROUTER,
+    private static final Map<Constants.AiProvider,
+            Function<AiProperties.DeploymentProperties, SlidingWindowRateLimiter>> providerToConcurrentRateLimiter =
+            Map.of(OPENROUTER,
             config -> new DefaultSlidingWindowRateLimiter(config.concurrentRequests(), Duration.ofSeconds(1)),
             GOOGLE,
             config -> new DefaultSlidingWindowRateLimiter(config.concurrentRequests(), Duration.ofSeconds(1)),
@@ -71,7 +77,8 @@ public class HttpClientConfig {
     @Bean
     public Map<String, AiClient> clients(HttpRequestClient httpClient,
                                          AiProperties aiProps,
-                                         ObjectMapper objectMapper) {
+                                         ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry) {
         Map<String, DefaultSlidingWindowRateLimiter> rateLimiters = aiProps.getDeployments()
                 .stream()
                 .filter(d -> GITHUB.equals(d.provider()))
@@ -87,9 +94,11 @@ public class HttpClientConfig {
                                 providerToPerMinuteRateLimiter.get(config.provider()).apply(config),
                                 providerToConcurrentRateLimiter.get(config.provider()).apply(config),
                                 rateLimiters.get(config.apiKey()),
+                                adaptiveRateLimiter(config.name(), config.requestsPerMinute(), meterRegistry),
                                 objectMapper,
                                 httpClient,
-                                sanitizer(getModelsWithThinkingBlock().contains(config.name())))));
+                                sanitizer(getModelsWithThinkingBlock().contains(config.name())),
+                                getModelsWithThinkingBlock().contains(config.name()))));
         res.putAll(aiProps.getDeployments()
                 .stream()
                 .filter(d -> d.name().contains(SPECIALIST))
@@ -100,21 +109,37 @@ public class HttpClientConfig {
                             baseClient.getMoreRestrictiveRateLimiter(),
                             baseClient.getLessRestrictiveRateLimiter(),
                             baseClient.getApiKeyRateLimiter(),
+                            baseClient.getAdaptiveRateLimiter(),
                             objectMapper,
                             httpClient,
-                            sanitizer(getModelsWithThinkingBlock().contains(baseName)));
+                            sanitizer(getModelsWithThinkingBlock().contains(baseName)),
+                            getModelsWithThinkingBlock().contains(baseName));
                 })));
 
         return Map.copyOf(res);
     }
 
+    /**
+     * @return a limiter publishing its effective rate, shared by the deployment's specialist
+     */
+    private static AdaptiveRateLimiter adaptiveRateLimiter(String name,
+                                                           int requestsPerMinute,
+                                                           MeterRegistry meterRegistry) {
+        AdaptiveRateLimiter res = new AdaptiveRateLimiter(name, requestsPerMinute);
+        Gauge.builder("ai.client.requests.per.minute", res, AdaptiveRateLimiter::getRequestsPerMinute)
+                .description("Rate currently allowed by the provider's throttling")
+                .tag("client", name)
+                .register(meterRegistry);
+        return res;
+    }
+
     private static UnaryOperator<String> sanitizer(boolean stripThinking) {
         return raw -> {
             String result = raw;
             if (stripThinking) {
-                int end = result.indexOf("</think>");
+                int end = result.indexOf(THINK_END);
                 if (0 <= end) {
-                    result = result.substring(end + "</think>".length());
+                    result = result.substring(end + THINK_END.length());
                 }
             }
 
@@ -4,6 +4,7 @@ import com.lucas.server.common.controller.ControllerUtil;
 import com.lucas.server.common.exception.ClientException;
 import com.lucas.server.components.tradingbot.common.jpa.DataManager;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.service.KpiCache;
 import com.lucas.utils.exception.MappingException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -30,13 +31,16 @@ public class MarketDataController {
 
     private final ControllerUtil controllerUtil;
     private final DataManager jpaService;
+    private final KpiCache kpiCache;
     private final String apiKey;
 
     public MarketDataController(ControllerUtil controllerUtil,
                                 DataManager jpaService,
+                                KpiCache kpiCache,
                                 @Value("${security.api-key}") String apiKey) {
         this.controllerUtil = controllerUtil;
         this.jpaService = jpaService;
+        this.kpiCache = kpiCache;
         this.apiKey = apiKey;
     }
 
@@ -114,9 +118,15 @@ public class MarketDataController {
         }
     }
 
+    @GetMapping("/kpi-cache")
+    public ResponseEntity<KpiCache.Stats> kpiCacheStats(HttpServletRequest request) {
+        return controllerUtil.<KpiCache.Stats>getUnauthorizedResponseIfInvalidUser(request.getCookies())
+                .orElseGet(() -> ResponseEntity.ok(kpiCache.getStats()));
+    }
+
     @DeleteMapping("/purge")
-    public ResponseEntity<Set<MarketDataDomain>> purge(HttpServletRequest request, @RequestParam int toKeep) {
-        return controllerUtil.<Set<MarketDataDomain>>getUnauthorizedResponseIfInvalidUser(request.getCookies())
+    public ResponseEntity<Integer> purge(HttpServletRequest request, @RequestParam int toKeep) {
+        return controllerUtil.<Integer>getUnauthorizedResponseIfInvalidUser(request.getCookies())
                 .orElseGet(() -> ResponseEntity.ok(jpaService.removeOldMarketData(toKeep)));
     }
 }
@@ -52,6 +52,12 @@ public class MarketDataDomain implements DomainEntity {
     private BigDecimal previousAtr;
     private BigDecimal previousAverageGain;
     private BigDecimal previousAverageLoss;
+    private BigDecimal ema12;
+    private BigDecimal ema20;
+    private BigDecimal ema26;
+    private BigDecimal macd;
+    private BigDecimal signalLine;
+    private Long obv;
 
     public static MarketDataDomain from(MarketSnapshotDomain snapshot) {
         return new MarketDataDomain().setId(snapshot.getId())
@@ -102,4 +102,21 @@ public class MarketData implements JpaEntity {
 
     @Column(name = "previous_average_loss", precision = 15, scale = 4)
     private BigDecimal previousAverageLoss;
+
+    @Column(precision = 19, scale = 8)
+    private BigDecimal ema12;
+
+    @Column(precision = 19, scale = 8)
+    private BigDecimal ema20;
+
+    @Column(precision = 19, scale = 8)
+    private BigDecimal ema26;
+
+    @Column(precision = 19, scale = 8)
+    private BigDecimal macd;
+
+    @Column(name = "signal_line", precision = 19, scale = 8)
+    private BigDecimal signalLine;
+
+    private Long obv;
 }
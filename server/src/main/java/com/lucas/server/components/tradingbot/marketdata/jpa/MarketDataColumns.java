@@ -0,0 +1,70 @@
+package com.lucas.server.components.tradingbot.marketdata.jpa;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Flat projection of the market data columns the KPI computation needs, without the symbol and recommendation graphs.
+ */
+public interface MarketDataColumns {
+
+    /**
+     * @return the symbol id
+     */
+    Long getSymbolId();
+
+    /**
+     * @return the trade date
+     */
+    LocalDate getDate();
+
+    /**
+     * @return the closing price
+     */
+    BigDecimal getPrice();
+
+    /**
+     * @return the previous closing price, if known
+     */
+    BigDecimal getPreviousClose();
+
+    /**
+     * @return the traded volume, if known
+     */
+    Long getVolume();
+
+    /**
+     * @return the stored ATR14, if computed
+     */
+    BigDecimal getAtr();
+
+    /**
+     * @return the stored average gain, if computed
+     */
+    BigDecimal getAverageGain();
+
+    /**
+     * @return the stored average loss, if computed
+     */
+    BigDecimal getAverageLoss();
+
+    /**
+     * @return the stored EMA20, if computed
+     */
+    BigDecimal getEma20();
+
+    /**
+     * @return the stored MACD line, if computed
+     */
+    BigDecimal getMacd();
+
+    /**
+     * @return the stored signal line, if computed
+     */
+    BigDecimal getSignalLine();
+
+    /**
+     * @return the stored running OBV, if computed
+     */
+    Long getObv();
+}
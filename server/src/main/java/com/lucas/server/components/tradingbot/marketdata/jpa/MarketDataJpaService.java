@@ -1,80 +1,138 @@
 package com.lucas.server.components.tradingbot.marketdata.jpa;
 
+import com.lucas.server.common.jpa.BulkUpsertJpaServiceDelegate;
 import com.lucas.server.common.jpa.GenericJpaServiceDelegate;
-import com.lucas.server.common.jpa.UniqueConstraintWearyJpaServiceDelegate;
+import com.lucas.server.common.jpa.MonthlyPartitionJpaServiceDelegate;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
 import com.lucas.server.components.tradingbot.marketdata.mapper.MarketDataMapper;
+import com.lucas.server.components.tradingbot.marketdata.service.KpiCache;
 import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
 
 @Service
 public class MarketDataJpaService
         extends GenericJpaServiceDelegate<MarketData, MarketDataDomain, MarketDataRepository> {
 
-    private final UniqueConstraintWearyJpaServiceDelegate<MarketData> delegate;
+    private static final List<String> COLUMNS = List.of("symbol_id",
+            "trade_date",
+            "open",
+            "high",
+            "low",
+            "price",
+            "volume",
+            "previous_close",
+            "change",
+            "change_percent",
+            "atr",
+            "average_gain",
+            "average_loss",
+            "previous_atr",
+            "previous_average_gain",
+            "previous_average_loss",
+            "ema12",
+            "ema20",
+            "ema26",
+            "macd",
+            "signal_line",
+            "obv");
+    private static final List<String> UPDATED_COLUMNS = COLUMNS.subList(2, COLUMNS.size());
+
+    private final BulkUpsertJpaServiceDelegate<MarketData> delegate;
+    private final MonthlyPartitionJpaServiceDelegate partitionDelegate;
+    private final JdbcTemplate jdbcTemplate;
     private final MarketDataKpiGenerator kpiGenerator;
+    private final KpiCache kpiCache;
 
     public MarketDataJpaService(MarketDataRepository repository,
                                 MarketDataMapper mapper,
-                                MarketDataKpiGenerator kpiGenerator) {
+                                MarketDataKpiGenerator kpiGenerator,
+                                KpiCache kpiCache,
+                                EntityManager entityManager,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${bulk-upsert.batch-size}") int batchSize) {
         super(repository, mapper);
-        delegate = new UniqueConstraintWearyJpaServiceDelegate<>(repository);
+        delegate = new BulkUpsertJpaServiceDelegate<>(repository,
+                entityManager,
+                jdbcTemplate,
+                "market_data",
+                COLUMNS,
+                List.of("symbol_id", "trade_date"),
+                UPDATED_COLUMNS,
+                md -> new Object[]{md.getSymbol().getId(), md.getDate(), md.getOpen(), md.getHigh(), md.getLow(),
+                        md.getPrice(), md.getVolume(), md.getPreviousClose(), md.getChange(), md.getChangePercent(),
+                        md.getAtr(), md.getAverageGain(), md.getAverageLoss(), md.getPreviousAtr(),
+                        md.getPreviousAverageGain(), md.getPreviousAverageLoss(), md.getEma12(), md.getEma20(),
+                        md.getEma26(), md.getMacd(), md.getSignalLine(), md.getObv()},
+                batchSize);
+        partitionDelegate = new MonthlyPartitionJpaServiceDelegate(jdbcTemplate, "market_data", "trade_date");
+        this.jdbcTemplate = jdbcTemplate;
         this.kpiGenerator = kpiGenerator;
+        this.kpiCache = kpiCache;
     }
 
     /**
-     * Saves all entities first, then updates them one by one (oldest first) with KPI computation.
+     * Computes the derived fields of the new entities on top of the stored ones, oldest first, then saves them in JDBC
+     * batches.
      */
     @Transactional
     public Set<MarketDataDomain> createIgnoringDuplicates(OrderedIndexedSet<MarketDataDomain> dtos) {
         Set<MarketData> entitySet = dtos.stream().map(mapper::toEntity).collect(Collectors.toSet());
-        Set<MarketData> saved = delegate.createIgnoringDuplicates(this::findUnique, entitySet);
-        for (MarketDataDomain md : saved.stream()
-                .sorted(Comparator.comparing(MarketData::getDate))
-                .map(mapper::toDto)
-                .toList()) {
-            kpiGenerator.computeDerivedFields(md);
-            repository.saveAndFlush(mapper.toEntity(md));
-        }
+        Set<MarketData> saved = delegate.createIgnoringDuplicates(this::findUnique,
+                this::withDerivedFields,
+                (savedEntity, _) -> savedEntity,
+                entitySet);
+        invalidateKpis(saved);
         return saved.stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
     }
 
     /**
-     * Saves or updates all entities first, then updates them one by one (oldest first) with KPI computation.
+     * Computes the derived fields of all entities on top of the stored ones, oldest first, then saves or updates them
+     * in JDBC batches.
      */
     @SuppressWarnings("UnusedReturnValue")
     @Transactional
     public Set<MarketDataDomain> createOrUpdate(OrderedIndexedSet<MarketDataDomain> dtos) {
-        Set<MarketData> entitySet = dtos.stream().map(mapper::toEntity).collect(Collectors.toSet());
-        Set<MarketData> saved = delegate.createOrUpdate(this::findUnique,
-                (oldEntity, newEntity) -> oldEntity.setOpen(newEntity.getOpen())
-                        .setHigh(newEntity.getHigh())
-                        .setLow(newEntity.getLow())
-                        .setPrice(newEntity.getPrice())
-                        .setVolume(newEntity.getVolume())
-                        .setPreviousClose(newEntity.getPreviousClose())
-                        .setChange(newEntity.getChange())
-                        .setChangePercent(newEntity.getChangePercent()),
-                entitySet);
-        for (MarketDataDomain md : saved.stream()
-                .sorted(Comparator.comparing(MarketData::getDate))
-                .map(mapper::toDto)
-                .toList()) {
-            kpiGenerator.computeDerivedFields(md);
-            repository.saveAndFlush(mapper.toEntity(md));
-        }
+        Set<MarketData> entitySet = withDerivedFields(dtos.stream()
+                .map(mapper::toEntity)
+                .collect(Collectors.toSet()));
+        Set<MarketData> saved = delegate.createOrUpdate(this::findUnique, entitySet);
+        invalidateKpis(saved);
         return saved.stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
     }
 
+    /**
+     * Saves a chunk of an ingestion, committing it on its own so locks are held briefly and a later failing chunk
+     * does not roll it back.
+     *
+     * @param override whether stored bars are updated instead of kept
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Set<MarketDataDomain> createChunk(OrderedIndexedSet<MarketDataDomain> dtos, boolean override) {
+        return override ? createOrUpdate(dtos) : createIgnoringDuplicates(dtos);
+    }
+
     // TODO: batch
     @Transactional(readOnly = true)
     public OrderedIndexedSet<MarketDataDomain> getTopForSymbolId(Long symbolId, int limit) {
@@ -95,6 +153,91 @@ public class MarketDataJpaService
         return repository.findTopBySymbol_IdOrderByDateDesc(id).map(mapper::toDto);
     }
 
+    /**
+     * Deletes a chunk of the bars beyond the newest {@code keepCount} of each symbol, committing it on its own
+     * so locks are held briefly.
+     *
+     * @return the number of deleted bars
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int deleteOldChunk(int keepCount, int chunkSize) {
+        return repository.deleteBeyondTopPerSymbol(keepCount, chunkSize);
+    }
+
+    /**
+     * Drops the monthly partitions holding only bars beyond the newest {@code keepCount} of each symbol. Their
+     * recommendations are unlinked first, as deleting the bars would.
+     *
+     * @return the number of dropped bars
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int dropOldPartitions(int keepCount) {
+        return partitionDelegate.dropPartitionsBeyondTopPerSymbol(keepCount, partition -> jdbcTemplate.update(
+                "UPDATE recommendation SET market_data_id = NULL WHERE market_data_id IN (SELECT id FROM "
+                        + partition + ")"));
+    }
+
+    /**
+     * @return the number of created monthly partitions
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int createPartitions(LocalDate from, LocalDate to) {
+        return partitionDelegate.createPartitions(from, to);
+    }
+
+    /**
+     * Written bars change the KPIs of every history reaching them, so the cached ones from the oldest written date on
+     * are dropped. Until the write commits other readers still see the previous bars, so they are dropped only after
+     * it does.
+     */
+    private void invalidateKpis(Set<MarketData> written) {
+        Map<Long, LocalDate> oldestBySymbolId = written.stream()
+                .collect(Collectors.toMap(md -> md.getSymbol().getId(),
+                        MarketData::getDate,
+                        BinaryOperator.minBy(Comparator.naturalOrder())));
+        if (oldestBySymbolId.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            oldestBySymbolId.forEach(kpiCache::invalidate);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                oldestBySymbolId.forEach(kpiCache::invalidate);
+            }
+        });
+    }
+
+    /**
+     * Every entity reads the entries before it, so besides the lookback the stored ones the entities replace or sit
+     * between are loaded too, bounded by the days the entities span.
+     */
+    private Set<MarketData> withDerivedFields(Set<MarketData> entities) {
+        Set<MarketData> res = new HashSet<>();
+        entities.stream()
+                .collect(Collectors.groupingBy(md -> md.getSymbol().getId()))
+                .forEach((symbolId, symbolEntities) -> {
+                    List<MarketDataDomain> dtos = symbolEntities.stream().map(mapper::toDto).toList();
+                    LocalDate oldest = dtos.stream().map(MarketDataDomain::getDate).min(Comparator.naturalOrder())
+                            .orElseThrow();
+                    LocalDate newest = dtos.stream().map(MarketDataDomain::getDate).max(Comparator.naturalOrder())
+                            .orElseThrow();
+                    int limit = MarketDataKpiGenerator.DERIVED_FIELDS_LOOKBACK
+                            + (int) ChronoUnit.DAYS.between(oldest, newest);
+                    List<MarketDataDomain> stored = repository.findBySymbol_IdAndDateBefore(symbolId,
+                                    newest,
+                                    PageRequest.of(0, limit, Sort.by("date").descending()))
+                            .stream()
+                            .map(mapper::toDto)
+                            .toList();
+                    kpiGenerator.computeDerivedFields(dtos, stored);
+                    dtos.stream().map(mapper::toEntity).forEach(res::add);
+                });
+        return res;
+    }
+
     private Set<MarketData> findUnique(Set<MarketData> marketDataEntities) {
         return repository.findBySymbol_IdInAndDateIn(marketDataEntities.stream()
                         .map(md -> md.getSymbol().getId())
@@ -3,9 +3,12 @@ package com.lucas.server.components.tradingbot.marketdata.jpa;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -14,11 +17,54 @@ public interface MarketDataRepository extends JpaRepository<MarketData, Long> {
 
     OrderedIndexedSetImpl<MarketData> findTop14BySymbol_IdAndDateBeforeOrderByDateDesc(Long id, LocalDate date);
 
+    OrderedIndexedSetImpl<MarketData> findTop25BySymbol_IdAndDateBeforeOrderByDateDesc(Long id, LocalDate date);
+
     OrderedIndexedSetImpl<MarketData> findBySymbol_Id(Long symbolId, PageRequest page);
 
+    OrderedIndexedSetImpl<MarketData> findBySymbol_IdAndDateBefore(Long symbolId, LocalDate date, PageRequest page);
+
     Set<MarketData> findBySymbol_Id(Long id);
 
     Set<MarketData> findBySymbol_IdInAndDateIn(Set<Long> symbolIds, Set<LocalDate> dates);
 
     Optional<MarketData> findTopBySymbol_IdOrderByDateDesc(Long id);
+
+    /**
+     * Reads each symbol's newest bars in descending date order, so the monthly partitions are scanned newest first and
+     * the older ones are never reached.
+     */
+    @Query(value = """
+            SELECT md.symbol_id AS "symbolId",
+                   md.trade_date AS "date",
+                   md.price AS "price",
+                   md.previous_close AS "previousClose",
+                   md.volume AS "volume",
+                   md.atr AS "atr",
+                   md.average_gain AS "averageGain",
+                   md.average_loss AS "averageLoss",
+                   md.ema20 AS "ema20",
+                   md.macd AS "macd",
+                   md.signal_line AS "signalLine",
+                   md.obv AS "obv"
+            FROM symbol s
+            CROSS JOIN LATERAL (SELECT *
+                                FROM market_data
+                                WHERE symbol_id = s.id
+                                ORDER BY trade_date DESC
+                                LIMIT :limit) md
+            WHERE s.id IN (:symbolIds)
+            ORDER BY md.symbol_id, md.trade_date DESC
+            """, nativeQuery = true)
+    List<MarketDataColumns> findTopColumnsBySymbolIds(Set<Long> symbolIds, int limit);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM market_data
+            WHERE id IN (SELECT id
+                         FROM (SELECT id, row_number() OVER (PARTITION BY symbol_id ORDER BY trade_date DESC) AS rn
+                               FROM market_data) ranked
+                         WHERE rn > :keepCount
+                         LIMIT :chunkSize)
+            """, nativeQuery = true)
+    int deleteBeyondTopPerSymbol(int keepCount, int chunkSize);
 }
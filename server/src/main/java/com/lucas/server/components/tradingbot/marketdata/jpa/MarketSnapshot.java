@@ -11,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -30,7 +31,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Accessors(chain = true)
 @Entity
-@Table(name = "market_snapshot")
+@Table(name = "market_snapshot", uniqueConstraints = @UniqueConstraint(columnNames = {"symbol_id", "date"}))
 // TODO: reference this entity in MarketDataDomain entities
 public class MarketSnapshot implements JpaEntity {
 
@@ -1,13 +1,21 @@
 package com.lucas.server.components.tradingbot.marketdata.jpa;
 
+import com.lucas.server.common.jpa.BulkUpsertJpaServiceDelegate;
 import com.lucas.server.common.jpa.GenericJpaServiceDelegate;
+import com.lucas.server.common.jpa.MonthlyPartitionJpaServiceDelegate;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketSnapshotDomain;
 import com.lucas.server.components.tradingbot.marketdata.mapper.MarketSnapshotMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -15,8 +23,35 @@ import java.util.stream.Collectors;
 public class MarketSnapshotJpaService
         extends GenericJpaServiceDelegate<MarketSnapshot, MarketSnapshotDomain, MarketSnapshotRepository> {
 
-    public MarketSnapshotJpaService(MarketSnapshotRepository repository, MarketSnapshotMapper mapper) {
+    private final BulkUpsertJpaServiceDelegate<MarketSnapshot> delegate;
+    private final MonthlyPartitionJpaServiceDelegate partitionDelegate;
+
+    public MarketSnapshotJpaService(MarketSnapshotRepository repository,
+                                    MarketSnapshotMapper mapper,
+                                    EntityManager entityManager,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${bulk-upsert.batch-size}") int batchSize) {
         super(repository, mapper);
+        delegate = new BulkUpsertJpaServiceDelegate<>(repository,
+                entityManager,
+                jdbcTemplate,
+                "market_snapshot",
+                List.of("symbol_id", "date", "open", "high", "low", "price", "volume"),
+                List.of("symbol_id", "date"),
+                List.of("open", "high", "low", "price", "volume"),
+                ms -> new Object[]{ms.getSymbol().getId(), ms.getDate(), ms.getOpen(), ms.getHigh(), ms.getLow(),
+                        ms.getPrice(), ms.getVolume()},
+                batchSize);
+        partitionDelegate = new MonthlyPartitionJpaServiceDelegate(jdbcTemplate, "market_snapshot", "date");
+    }
+
+    @Transactional
+    public Set<MarketSnapshotDomain> createOrUpdate(Set<MarketSnapshotDomain> dtos) {
+        Set<MarketSnapshot> entitySet = dtos.stream().map(mapper::toEntity).collect(Collectors.toSet());
+        return delegate.createOrUpdate(this::findUnique, entitySet)
+                .stream()
+                .map(mapper::toDto)
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     // TODO: batch
@@ -33,4 +68,41 @@ public class MarketSnapshotJpaService
     public Set<MarketSnapshotDomain> findBySymbolId(Long id) {
         return repository.findBySymbol_Id(id).stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
     }
+
+    /**
+     * Deletes a chunk of the snapshots beyond the newest {@code keepCount} of each symbol, committing it on its own
+     * so locks are held briefly.
+     *
+     * @return the number of deleted snapshots
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int deleteOldChunk(int keepCount, int chunkSize) {
+        return repository.deleteBeyondTopPerSymbol(keepCount, chunkSize);
+    }
+
+    /**
+     * Drops the monthly partitions holding only snapshots beyond the newest {@code keepCount} of each symbol.
+     *
+     * @return the number of dropped snapshots
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int dropOldPartitions(int keepCount) {
+        return partitionDelegate.dropPartitionsBeyondTopPerSymbol(keepCount, _ -> {
+        });
+    }
+
+    /**
+     * @return the number of created monthly partitions
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int createPartitions(LocalDate from, LocalDate to) {
+        return partitionDelegate.createPartitions(from, to);
+    }
+
+    private Set<MarketSnapshot> findUnique(Set<MarketSnapshot> snapshots) {
+        return repository.findBySymbol_IdInAndDateIn(snapshots.stream()
+                        .map(ms -> ms.getSymbol().getId())
+                        .collect(Collectors.toUnmodifiableSet()),
+                snapshots.stream().map(MarketSnapshot::getDate).collect(Collectors.toSet()));
+    }
 }
@@ -3,6 +3,8 @@ package com.lucas.server.components.tradingbot.marketdata.jpa;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -15,5 +17,18 @@ public interface MarketSnapshotRepository extends JpaRepository<MarketSnapshot,
 
     Set<MarketSnapshot> findBySymbol_Id(Long id);
 
+    Set<MarketSnapshot> findBySymbol_IdInAndDateIn(Set<Long> symbolIds, Set<LocalDateTime> dates);
+
     Set<MarketSnapshot> findAllBySymbol_IdInAndDateBetween(Set<Long> symbolIds, LocalDateTime from, LocalDateTime to);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM market_snapshot
+            WHERE id IN (SELECT id
+                         FROM (SELECT id, row_number() OVER (PARTITION BY symbol_id ORDER BY date DESC) AS rn
+                               FROM market_snapshot) ranked
+                         WHERE rn > :keepCount
+                         LIMIT :chunkSize)
+            """, nativeQuery = true)
+    int deleteBeyondTopPerSymbol(int keepCount, int chunkSize);
 }
@@ -39,7 +39,13 @@ public class MarketDataMapper implements EntityMapper<MarketData, MarketDataDoma
                 entity.getAverageLoss(),
                 entity.getPreviousAtr(),
                 entity.getPreviousAverageGain(),
-                entity.getPreviousAverageLoss());
+                entity.getPreviousAverageLoss(),
+                entity.getEma12(),
+                entity.getEma20(),
+                entity.getEma26(),
+                entity.getMacd(),
+                entity.getSignalLine(),
+                entity.getObv());
     }
 
     @Override
@@ -63,7 +69,13 @@ public class MarketDataMapper implements EntityMapper<MarketData, MarketDataDoma
                 .setAverageLoss(dto.getAverageLoss())
                 .setPreviousAtr(dto.getPreviousAtr())
                 .setPreviousAverageGain(dto.getPreviousAverageGain())
-                .setPreviousAverageLoss(dto.getPreviousAverageLoss());
+                .setPreviousAverageLoss(dto.getPreviousAverageLoss())
+                .setEma12(dto.getEma12())
+                .setEma20(dto.getEma20())
+                .setEma26(dto.getEma26())
+                .setMacd(dto.getMacd())
+                .setSignalLine(dto.getSignalLine())
+                .setObv(dto.getObv());
 
         if (null != dto.getRecommendations()) {
             dto.getRecommendations()
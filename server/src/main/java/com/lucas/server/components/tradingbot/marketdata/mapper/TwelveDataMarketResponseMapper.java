@@ -50,6 +50,21 @@ public class TwelveDataMarketResponseMapper implements Mapper<JsonNode, MarketDa
         }
     }
 
+    /**
+     * @param json      response to a request for one or more symbols
+     * @param symbol    requested symbol to extract
+     * @param batchSize number of symbols requested. Responses to batched requests are keyed by symbol name
+     * @return the part of the response concerning the symbol
+     * @throws MappingException if the response has no entry for the symbol or the entry is an error
+     */
+    public JsonNode demultiplex(JsonNode json, SymbolDomain symbol, int batchSize) throws MappingException {
+        JsonNode node = 1 == batchSize ? json : json.get(symbol.getName());
+        if (null == node || !node.isObject() || "error".equals(node.path("status").asString(null))) {
+            throw new MappingException(MessageFormat.format(MAPPING_ERROR, MARKET_DATA));
+        }
+        return node;
+    }
+
     public OrderedIndexedSet<MarketDataDomain> mapAll(JsonNode json, SymbolDomain symbol) throws MappingException {
         try {
             if (!symbol.getName().equals(json.at("/meta/symbol").asString(null))) {
@@ -0,0 +1,205 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.components.tradingbot.marketdata.jpa.MarketDataColumns;
+import com.lucas.server.components.tradingbot.marketdata.jpa.MarketDataRepository;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.lucas.server.common.Constants.MARKET_DATA_RELEVANT_DAYS_COUNT;
+
+/**
+ * Cross-sectional counterpart of {@link PrimitiveKpiGenerator}. Loads the last
+ * {@link com.lucas.server.common.Constants#MARKET_DATA_RELEVANT_DAYS_COUNT} entries of many symbols in a single query
+ * into day-major column arrays ({@code column[day * symbols + symbol]}, newest day first), so every indicator is a
+ * sequence of flat loops over contiguous symbols that the JIT can vectorize. Only symbols lacking the stored
+ * indicator state are computed, as {@link ReportKpiProvider} serves that state first.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchKpiGenerator {
+
+    private final MarketDataRepository repository;
+
+    /**
+     * @param symbolIds symbols to compute the KPIs for
+     * @return the KPIs featured in the asset report by symbol id. Non computable ones are null, symbols without any
+     *         market data or with complete stored indicator state are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, ReportKpis> computeReportKpis(Set<Long> symbolIds) {
+        if (symbolIds.isEmpty()) {
+            return Map.of();
+        }
+        List<MarketDataColumns> rows = repository.findTopColumnsBySymbolIds(symbolIds, MARKET_DATA_RELEVANT_DAYS_COUNT)
+                .stream()
+                .collect(Collectors.groupingBy(MarketDataColumns::getSymbolId, LinkedHashMap::new, Collectors.toList()))
+                .values()
+                .stream()
+                .filter(history -> !hasStoredState(history))
+                .flatMap(List::stream)
+                .toList();
+        Map<Long, Integer> symbolToColumn = new HashMap<>();
+        rows.forEach(row -> symbolToColumn.putIfAbsent(row.getSymbolId(), symbolToColumn.size()));
+        Columns columns = Columns.of(rows, symbolToColumn, MARKET_DATA_RELEVANT_DAYS_COUNT);
+        int symbols = symbolToColumn.size();
+
+        double[] ema20 = new double[symbols];
+        ema(columns.prices(), symbols, 0, 20, ema20);
+        double[] macdHistory = new double[9 * symbols];
+        double[] fast = new double[symbols];
+        double[] slow = new double[symbols];
+        for (int day = 0; day < 9; day++) {
+            ema(columns.prices(), symbols, day, 12, fast);
+            ema(columns.prices(), symbols, day, 26, slow);
+            int base = day * symbols;
+            for (int s = 0; s < symbols; s++) {
+                macdHistory[base + s] = fast[s] - slow[s];
+            }
+        }
+        double[] signal = new double[symbols];
+        ema(macdHistory, symbols, 0, 9, signal);
+        double[] obv = obv(columns, symbols, 20);
+        double[] rsi = new double[symbols];
+        double[] relativeAtr = new double[symbols];
+        for (int s = 0; s < symbols; s++) {
+            double averageGain = columns.averageGains()[s];
+            double averageLoss = columns.averageLosses()[s];
+            rsi[s] = 0 == averageLoss && !Double.isNaN(averageGain)
+                    ? 100
+                    : 100 - 100 / (averageGain / averageLoss + 1);
+            relativeAtr[s] = columns.atrs()[s] / columns.prices()[s] * 100;
+        }
+
+        Map<Long, ReportKpis> res = new HashMap<>();
+        symbolToColumn.forEach((symbolId, s) -> res.put(symbolId, new ReportKpis(toDecimal(ema20[s]),
+                toDecimal(macdHistory[s]),
+                toDecimal(signal[s]),
+                toDecimal(rsi[s]),
+                toDecimal(relativeAtr[s]),
+                Double.isNaN(obv[s]) ? null : BigDecimal.valueOf((long) obv[s]))));
+        return res;
+    }
+
+    /**
+     * Mirrors {@link MarketDataKpiGenerator#readReportKpis(com.lucas.utils.orderedindexedset.OrderedIndexedSet)}.
+     *
+     * @param history one symbol's entries, newest first
+     * @return whether the report KPIs can be read from the stored indicator state
+     */
+    private static boolean hasStoredState(List<MarketDataColumns> history) {
+        MarketDataColumns current = history.getFirst();
+        return 20 < history.size()
+                && Stream.of(current.getEma20(), current.getMacd(), current.getSignalLine()).allMatch(Objects::nonNull)
+                && null != current.getObv()
+                && null != history.get(20).getObv();
+    }
+
+    /**
+     * Windowed EMA, seeded with the n-average and smoothed over the n - 1 newest values, for every symbol at once.
+     * Missing values are NaN and propagate to the result.
+     *
+     * @param columns day-major values, newest day first
+     * @param symbols number of symbols
+     * @param offset  newest day to consider
+     * @param n       size
+     * @param out     one result per symbol
+     */
+    private static void ema(double[] columns, int symbols, int offset, int n, double[] out) {
+        int oldest = offset + n - 1;
+        double k = 2.0 / (n + 1);
+        Arrays.fill(out, 0);
+        for (int day = offset; day <= oldest; day++) {
+            int base = day * symbols;
+            for (int s = 0; s < symbols; s++) {
+                out[s] += columns[base + s];
+            }
+        }
+        for (int s = 0; s < symbols; s++) {
+            out[s] /= n;
+        }
+        for (int day = oldest - 1; day >= offset; day--) {
+            int base = day * symbols;
+            for (int s = 0; s < symbols; s++) {
+                out[s] += (columns[base + s] - out[s]) * k;
+            }
+        }
+    }
+
+    /**
+     * @return On‑Balance Volume accumulated over the n newest days per symbol. NaN if any previous close is missing
+     */
+    private static double[] obv(Columns columns, int symbols, int n) {
+        double[] obv = new double[symbols];
+        for (int day = 0; day < n; day++) {
+            int base = day * symbols;
+            for (int s = 0; s < symbols; s++) {
+                double change = columns.prices()[base + s] - columns.previousCloses()[base + s];
+                obv[s] += Math.signum(change) * columns.volumes()[base + s];
+            }
+        }
+        return obv;
+    }
+
+    private static BigDecimal toDecimal(double value) {
+        return PrimitiveKpiGenerator.toDecimal(OptionalDouble.of(value));
+    }
+
+    /**
+     * Day-major columns. Days a symbol has no entry for are NaN, so they poison every window reaching them.
+     */
+    private record Columns(double[] prices,
+                           double[] previousCloses,
+                           double[] volumes,
+                           double[] atrs,
+                           double[] averageGains,
+                           double[] averageLosses) {
+
+        static Columns of(List<MarketDataColumns> rows, Map<Long, Integer> symbolToColumn, int days) {
+            int symbols = symbolToColumn.size();
+            double[] prices = new double[days * symbols];
+            double[] previousCloses = new double[days * symbols];
+            double[] volumes = new double[days * symbols];
+            double[] atrs = new double[symbols];
+            double[] averageGains = new double[symbols];
+            double[] averageLosses = new double[symbols];
+            Arrays.fill(prices, Double.NaN);
+            Arrays.fill(previousCloses, Double.NaN);
+            int[] filledDays = new int[symbols];
+            for (MarketDataColumns row : rows) {
+                int s = symbolToColumn.get(row.getSymbolId());
+                int day = filledDays[s]++;
+                if (days <= day) {
+                    continue;
+                }
+                int index = day * symbols + s;
+                prices[index] = row.getPrice().doubleValue();
+                previousCloses[index] = toDouble(row.getPreviousClose());
+                volumes[index] = null == row.getVolume() ? 0 : row.getVolume();
+                if (0 == day) {
+                    atrs[s] = toDouble(row.getAtr());
+                    averageGains[s] = toDouble(row.getAverageGain());
+                    averageLosses[s] = toDouble(row.getAverageLoss());
+                }
+            }
+            return new Columns(prices, previousCloses, volumes, atrs, averageGains, averageLosses);
+        }
+
+        private static double toDouble(BigDecimal value) {
+            return null == value ? Double.NaN : value.doubleValue();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.common.BoundedLruMap;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of report KPIs keyed by symbol id and newest bar date, so the several recommendation passes of a
+ * morning compute them once per symbol. Entries are invalidated whenever a write of a bar of the symbol at or before
+ * their date commits.
+ */
+@Component
+public class KpiCache {
+
+    private final BoundedLruMap<Key, ReportKpis> entries;
+    // loads in flight, dropped by the invalidations they overlap so they do not store what they read before them
+    private final Map<Key, Object> loads = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public KpiCache(@Value("${kpi.cache.max-entries}") int maxEntries) {
+        entries = new BoundedLruMap<>(maxEntries);
+    }
+
+    /**
+     * @param symbolId symbol id. Null bypasses the cache
+     * @param date     date of the newest bar the KPIs are computed for. Null bypasses the cache
+     * @param loader   KPI computation, invoked on misses
+     * @return the cached KPIs, loading them if absent
+     */
+    public ReportKpis get(Long symbolId, LocalDate date, Supplier<ReportKpis> loader) {
+        if (null == symbolId || null == date) {
+            return loader.get();
+        }
+        Key key = new Key(symbolId, date);
+        Object load = new Object();
+        synchronized (entries) {
+            ReportKpis cached = entries.get(key);
+            if (null != cached) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            loads.put(key, load);
+        }
+        misses.incrementAndGet();
+        ReportKpis kpis = null;
+        try {
+            kpis = loader.get();
+            return kpis;
+        } finally {
+            synchronized (entries) {
+                if (loads.remove(key, load) && null != kpis) {
+                    entries.put(key, kpis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every entry of the symbol whose history may contain a bar dated from the given date on. Loads of the
+     * symbol in flight are not cached.
+     *
+     * @param symbolId symbol id
+     * @param from     date of the oldest written bar
+     */
+    public void invalidate(Long symbolId, LocalDate from) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.symbolId().equals(symbolId) && !key.date().isBefore(from));
+            loads.keySet().removeIf(key -> key.symbolId().equals(symbolId) && !key.date().isBefore(from));
+        }
+    }
+
+    /**
+     * Drops every entry and resets the counters. Loads in flight are kept, as they may still overlap an invalidation.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            hits.set(0);
+            misses.set(0);
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(entries.size(), hits.get(), misses.get(), entries.getEvictions());
+        }
+    }
+
+    private record Key(Long symbolId, LocalDate date) {
+    }
+
+    public record Stats(int size, long hits, long misses, long evictions) {
+    }
+}
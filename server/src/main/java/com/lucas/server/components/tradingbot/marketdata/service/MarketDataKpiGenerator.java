@@ -12,9 +12,16 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -30,15 +37,57 @@ import static com.lucas.utils.Utils.computeIfAbsent;
 @Slf4j
 public class MarketDataKpiGenerator {
 
+    // previous entries the derived fields of an entry may read, as the 26-EMA is seeded from 25 of them
+    public static final int DERIVED_FIELDS_LOOKBACK = 25;
+
     private final MarketDataRepository repository;
     private final MarketDataMapper marketDataMapper;
 
     @SuppressWarnings("UnusedReturnValue")
     @Transactional(readOnly = true)
     public MarketDataDomain computeDerivedFields(MarketDataDomain md) {
-        List<MarketDataDomain> previous14 = new ArrayList<>(repository.findTop14BySymbol_IdAndDateBeforeOrderByDateDesc(
-                md.getSymbol().getId(),
-                md.getDate()).stream().map(marketDataMapper::toDto).toList());
+        return computeDerivedFields(md,
+                repository.findTop14BySymbol_IdAndDateBeforeOrderByDateDesc(md.getSymbol().getId(), md.getDate())
+                        .stream()
+                        .map(marketDataMapper::toDto)
+                        .toList(),
+                () -> repository.findTop25BySymbol_IdAndDateBeforeOrderByDateDesc(md.getSymbol().getId(), md.getDate())
+                        .stream()
+                        .map(marketDataMapper::toDto)
+                        .toList());
+    }
+
+    /**
+     * Computes the derived fields of many entries of one symbol in memory, oldest first, each on top of the entries
+     * preceding it.
+     *
+     * @param entries new entries of one symbol
+     * @param stored  the symbol's stored entries preceding the newest new entry. At least the
+     *                {@value #DERIVED_FIELDS_LOOKBACK} before the oldest one are needed to seed the indicator state
+     */
+    public void computeDerivedFields(Collection<MarketDataDomain> entries, Collection<MarketDataDomain> stored) {
+        NavigableMap<LocalDate, MarketDataDomain> known = new TreeMap<>();
+        stored.forEach(md -> known.put(md.getDate(), md));
+        for (MarketDataDomain md : entries.stream().sorted(Comparator.comparing(MarketDataDomain::getDate)).toList()) {
+            List<MarketDataDomain> previous = known.headMap(md.getDate(), false)
+                    .descendingMap()
+                    .values()
+                    .stream()
+                    .limit(DERIVED_FIELDS_LOOKBACK)
+                    .toList();
+            computeDerivedFields(md, previous.subList(0, Math.min(14, previous.size())), () -> previous);
+            known.put(md.getDate(), md);
+        }
+    }
+
+    /**
+     * @param previous14 up to 14 previous entries, newest first
+     * @param previous25 up to {@value #DERIVED_FIELDS_LOOKBACK} previous entries, newest first. Only read to seed the
+     *                   indicator state
+     */
+    private MarketDataDomain computeDerivedFields(MarketDataDomain md,
+                                                  List<MarketDataDomain> previous14,
+                                                  Supplier<List<MarketDataDomain>> previous25) {
         if (previous14.isEmpty()) {
             log.warn(NON_COMPUTABLE_KPI_WARN, "anything", md);
             return md;
@@ -49,13 +98,15 @@ public class MarketDataKpiGenerator {
         computeIfAbsent(md::getPreviousAtr, md::setPreviousAtr, previous::getAtr);
         computeIfAbsent(md::getPreviousAverageGain, md::setPreviousAverageGain, previous::getAverageGain);
         computeIfAbsent(md::getPreviousAverageLoss, md::setPreviousAverageLoss, previous::getAverageLoss);
+        computeIndicatorState(md, previous14, previous25);
         if (14 > previous14.size()) {
             log.warn(NON_COMPUTABLE_KPI_WARN, "RSI, ATR", previous14);
             return md;
         }
-        previous14.removeLast();
-        previous14.addFirst(md);
-        OrderedIndexedSet<MarketDataDomain> newSet = OrderedIndexedSet.copyOf(previous14);
+        List<MarketDataDomain> current14 = new ArrayList<>(previous14);
+        current14.removeLast();
+        current14.addFirst(md);
+        OrderedIndexedSet<MarketDataDomain> newSet = OrderedIndexedSet.copyOf(current14);
         if (null == md.getAverageGain() || null == md.getAverageLoss()) {
             computeGainsAndLoses(newSet);
         }
@@ -205,25 +256,19 @@ public class MarketDataKpiGenerator {
             return Optional.empty();
         }
 
-        List<BigDecimal> dailyReturns = new ArrayList<>();
+        StreamingStatistics dailyReturns = new StreamingStatistics();
         for (MarketData md : cropped) {
-            dailyReturns.add(md.getPrice()
+            dailyReturns.accept(md.getPrice()
                     .subtract(md.getPreviousClose())
-                    .divide(md.getPreviousClose(), 8, RoundingMode.HALF_UP));
+                    .divide(md.getPreviousClose(), 8, RoundingMode.HALF_UP)
+                    .doubleValue());
         }
+        double standardDeviation = dailyReturns.getPopulationStandardDeviation();
 
-        BigDecimal totalSquaredDeviation = dailyReturns.stream()
-                .map(r -> r.subtract(computeMean(dailyReturns)).pow(2))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal variance =
-                totalSquaredDeviation.divide(BigDecimal.valueOf(dailyReturns.size()), 8, RoundingMode.HALF_UP);
-        BigDecimal standardDeviation = BigDecimal.valueOf(Math.sqrt(variance.doubleValue()));
-
-        if (0 == standardDeviation.compareTo(BigDecimal.ZERO)) {
+        if (0 == standardDeviation) {
             log.warn(KPI_RETURNED_ZERO_WARN, VOLATILITY, cropped);
         }
-        return Optional.of(standardDeviation.multiply(BigDecimal.valueOf(Math.sqrt(252)))
-                .multiply(BigDecimal.valueOf(100))
+        return Optional.of(BigDecimal.valueOf(standardDeviation * Math.sqrt(252) * 100)
                 .setScale(4, RoundingMode.HALF_UP));
     }
 
@@ -265,6 +310,117 @@ public class MarketDataKpiGenerator {
         return Optional.of(obv);
     }
 
+    /**
+     * @param history list of at least 34 consecutive MarketData entries, newest first
+     * @return the KPIs featured in the asset report. Non computable ones are null
+     */
+    public ReportKpis computeReportKpis(OrderedIndexedSet<MarketDataDomain> history) {
+        MarketDataDomain current = history.getFirst();
+        return new ReportKpis(computeEma(history, 20).orElse(null),
+                computeMacdLine(history, 12, 26).orElse(null),
+                computeSignalLine(history, 9, 12, 26).orElse(null),
+                computeRsi(current),
+                computeRelativeAtr(current),
+                computeObv(history, 20).orElse(null));
+    }
+
+    /**
+     * @param history list of at least 21 consecutive MarketData entries, newest first
+     * @return the KPIs featured in the asset report, read from the stored indicator state. Empty if incomplete
+     */
+    public Optional<ReportKpis> readReportKpis(OrderedIndexedSet<MarketDataDomain> history) {
+        MarketDataDomain current = history.getFirst();
+        if (20 >= history.size()
+                || Stream.of(current.getEma20(), current.getMacd(), current.getSignalLine()).anyMatch(Objects::isNull)
+                || null == current.getObv()
+                || null == history.get(20).getObv()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ReportKpis(current.getEma20().setScale(4, RoundingMode.HALF_UP),
+                current.getMacd().setScale(4, RoundingMode.HALF_UP),
+                current.getSignalLine().setScale(4, RoundingMode.HALF_UP),
+                computeRsi(current),
+                computeRelativeAtr(current),
+                BigDecimal.valueOf(current.getObv() - history.get(20).getObv())));
+    }
+
+    /**
+     * Rolls EMA12, EMA20, EMA26, MACD, signal line and running OBV forward from the previous entry. Each EMA is seeded
+     * with its windowed value once enough history exists, and the signal line with the first 9 stored MACD values.
+     *
+     * @param md         current entry
+     * @param previous14 up to 14 previous entries, newest first
+     * @param previous25 up to 25 previous entries, newest first
+     */
+    private void computeIndicatorState(MarketDataDomain md,
+                                       List<MarketDataDomain> previous14,
+                                       Supplier<List<MarketDataDomain>> previous25) {
+        MarketDataDomain previous = previous14.getFirst();
+        List<MarketDataDomain> previousEntries = previous14;
+        if (14 == previous14.size()
+                && Stream.of(previous.getEma12(), previous.getEma20(), previous.getEma26()).anyMatch(Objects::isNull)) {
+            previousEntries = previous25.get();
+        }
+        List<MarketDataDomain> history = Stream.concat(Stream.of(md), previousEntries.stream()).toList();
+
+        md.setEma12(rollEma(history, 12, previous.getEma12()));
+        md.setEma20(rollEma(history, 20, previous.getEma20()));
+        md.setEma26(rollEma(history, 26, previous.getEma26()));
+        md.setMacd(null == md.getEma12() || null == md.getEma26() ? null : md.getEma12().subtract(md.getEma26()));
+        md.setSignalLine(rollSignalLine(history, 9, previous.getSignalLine()));
+        md.setObv(rollObv(md, previous.getObv()));
+    }
+
+    /**
+     * @param history     current and previous entries, newest first
+     * @param n           size
+     * @param previousEma previous n-EMA, if any
+     * @return n-EMA of closing prices, or null while the history is not long enough to seed it
+     */
+    private BigDecimal rollEma(List<MarketDataDomain> history, int n, BigDecimal previousEma) {
+        if (null != previousEma) {
+            return rollValuesEma(previousEma, history.getFirst().getPrice(), n);
+        }
+        if (history.size() < n) {
+            return null;
+        }
+        return computeValuesEma(history.subList(0, n).reversed().stream().map(MarketDataDomain::getPrice).toList());
+    }
+
+    /**
+     * @param history        current and previous entries, newest first
+     * @param n              signal line size
+     * @param previousSignal previous signal line, if any
+     * @return n-EMA of the MACD line, or null while there are not n consecutive MACD values to seed it
+     */
+    private BigDecimal rollSignalLine(List<MarketDataDomain> history, int n, BigDecimal previousSignal) {
+        BigDecimal macd = history.getFirst().getMacd();
+        if (null == macd) {
+            return null;
+        }
+        if (null != previousSignal) {
+            return rollValuesEma(previousSignal, macd, n);
+        }
+        if (history.size() < n || !history.subList(0, n).stream().allMatch(md -> null != md.getMacd())) {
+            return null;
+        }
+        return computeValuesEma(history.subList(0, n).reversed().stream().map(MarketDataDomain::getMacd).toList());
+    }
+
+    /**
+     * @param md          current entry
+     * @param previousObv previous running OBV. The count starts over if absent
+     * @return running On‑Balance Volume (OBV)
+     */
+    private Long rollObv(MarketDataDomain md, Long previousObv) {
+        long obv = null == previousObv ? 0 : previousObv;
+        if (null == md.getVolume() || null == md.getPreviousClose()) {
+            return obv;
+        }
+        int direction = md.getPrice().compareTo(md.getPreviousClose());
+        return 0 < direction ? obv + md.getVolume() : 0 > direction ? obv - md.getVolume() : obv;
+    }
+
     /**
      * @param history list of 14 consecutive MarketData entries. The previousClose param allows for not 14 + 1 needed.
      */
@@ -362,4 +518,17 @@ public class MarketDataKpiGenerator {
         }
         return average;
     }
+
+    private BigDecimal rollValuesEma(BigDecimal previousEma, BigDecimal value, int n) {
+        BigDecimal k = BigDecimal.valueOf(2).divide(BigDecimal.valueOf(n + 1L), 8, RoundingMode.HALF_UP);
+        return value.subtract(previousEma).multiply(k).add(previousEma).setScale(8, RoundingMode.HALF_UP);
+    }
+
+    public record ReportKpis(BigDecimal ema20,
+                             BigDecimal macdLine1226,
+                             BigDecimal macdSignalLine9,
+                             BigDecimal rsi14,
+                             BigDecimal atr14,
+                             BigDecimal obv20) {
+    }
 }
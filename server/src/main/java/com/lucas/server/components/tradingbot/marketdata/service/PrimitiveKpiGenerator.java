@@ -0,0 +1,219 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+import static com.lucas.server.common.Constants.NON_COMPUTABLE_KPI_WARN;
+import static com.lucas.server.common.Constants.OBV;
+import static com.lucas.server.common.Constants.VOLATILITY;
+
+/**
+ * Primitive counterpart of {@link MarketDataKpiGenerator}. Same formulas, but over {@code double} arrays (newest
+ * first) without intermediate rounding. Results are only rounded to 4 decimals when converted back to BigDecimal.
+ */
+@SuppressWarnings("LoggingSimilarMessage")
+@Component
+@Slf4j
+public class PrimitiveKpiGenerator {
+
+    /**
+     * @param history list of at least 34 consecutive MarketData entries, newest first
+     * @return the KPIs featured in the asset report. Non computable ones are null
+     */
+    public ReportKpis computeReportKpis(OrderedIndexedSet<MarketDataDomain> history) {
+        Series series = Series.of(history);
+        MarketDataDomain current = history.getFirst();
+        OptionalLong obv = computeObv(series, 20);
+        return new ReportKpis(toDecimal(computeEma(series, 20)),
+                toDecimal(computeMacdLine(series, 12, 26)),
+                toDecimal(computeSignalLine(series, 9, 12, 26)),
+                toDecimal(computeRsi(current)),
+                toDecimal(computeRelativeAtr(current)),
+                obv.isPresent() ? BigDecimal.valueOf(obv.getAsLong()) : null);
+    }
+
+    /**
+     * @param series price series
+     * @param n      size
+     * @return exponential moving n‑average of closing prices (EMA)
+     */
+    public OptionalDouble computeEma(Series series, int n) {
+        if (series.size() < n) {
+            log.warn(NON_COMPUTABLE_KPI_WARN, "exponential moving average", series);
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(ema(series.prices(), 0, n));
+    }
+
+    /**
+     * @param series      price series
+     * @param fastEmaSize fast ema size
+     * @param slowEmaSize slow ema size
+     * @return MACD line = EMA(fastEmaSize) − EMA(slowEmaSize) of closing prices
+     */
+    public OptionalDouble computeMacdLine(Series series, int fastEmaSize, int slowEmaSize) {
+        if (series.size() < slowEmaSize) {
+            log.warn(NON_COMPUTABLE_KPI_WARN, "MACD", series);
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(macd(series.prices(), 0, fastEmaSize, slowEmaSize));
+    }
+
+    /**
+     * @param series      price series
+     * @param n           signal line size
+     * @param fastEmaSize fast ema size
+     * @param slowEmaSize slow ema size
+     * @return signal line = n‑day EMA of the MACD line
+     */
+    public OptionalDouble computeSignalLine(Series series, int n, int fastEmaSize, int slowEmaSize) {
+        if (series.size() < slowEmaSize + (n - 1)) {
+            log.warn(NON_COMPUTABLE_KPI_WARN, "signal line", series);
+            return OptionalDouble.empty();
+        }
+        double[] macdHistory = new double[n];
+        for (int i = 0; i < n; i++) {
+            macdHistory[i] = macd(series.prices(), i, fastEmaSize, slowEmaSize);
+        }
+        return OptionalDouble.of(ema(macdHistory, 0, n));
+    }
+
+    public OptionalDouble computeRsi(MarketDataDomain md) {
+        if (null == md.getAverageGain() || null == md.getAverageLoss()) {
+            return OptionalDouble.empty();
+        }
+        double averageGain = md.getAverageGain().doubleValue();
+        double averageLoss = md.getAverageLoss().doubleValue();
+        if (0 == averageLoss) {
+            return OptionalDouble.of(100);
+        }
+        return OptionalDouble.of(100 - 100 / (averageGain / averageLoss + 1));
+    }
+
+    public OptionalDouble computeRelativeAtr(MarketDataDomain md) {
+        if (null == md.getAtr()) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(md.getAtr().doubleValue() / md.getPrice().doubleValue() * 100);
+    }
+
+    /**
+     * @param series price series. The previous closes allow for not n + 1 needed.
+     * @param n      size
+     * @return annualized volatility in percent (std dev of daily returns)
+     */
+    public OptionalDouble computeVolatility(Series series, int n) {
+        if (series.size() < n || !series.hasPreviousCloses(n)) {
+            log.warn(NON_COMPUTABLE_KPI_WARN, VOLATILITY, series);
+            return OptionalDouble.empty();
+        }
+        double[] prices = series.prices();
+        double[] previousCloses = series.previousCloses();
+        StreamingStatistics dailyReturns = new StreamingStatistics();
+        for (int i = 0; i < n; i++) {
+            dailyReturns.accept((prices[i] - previousCloses[i]) / previousCloses[i]);
+        }
+        return OptionalDouble.of(dailyReturns.getPopulationStandardDeviation() * Math.sqrt(252) * 100);
+    }
+
+    /**
+     * @param series price series. The previous closes allow for not n + 1 needed.
+     * @param n      size
+     * @return On‑Balance Volume (OBV) accumulated over n periods
+     */
+    public OptionalLong computeObv(Series series, int n) {
+        if (series.size() < n || !series.hasPreviousCloses(n)) {
+            log.warn(NON_COMPUTABLE_KPI_WARN, OBV, series);
+            return OptionalLong.empty();
+        }
+        double[] prices = series.prices();
+        double[] previousCloses = series.previousCloses();
+        long[] volumes = series.volumes();
+        long obv = 0;
+        for (int i = 0; i < n; i++) {
+            if (prices[i] > previousCloses[i]) {
+                obv += volumes[i];
+            } else if (prices[i] < previousCloses[i]) {
+                obv -= volumes[i];
+            }
+        }
+        return OptionalLong.of(obv);
+    }
+
+    /**
+     * @param newestFirst values, newest first
+     * @param offset      index of the newest value to consider
+     * @param n           size
+     * @return EMA seeded with the n-average, then smoothed over the n - 1 newest values
+     */
+    private static double ema(double[] newestFirst, int offset, int n) {
+        int oldest = offset + n - 1;
+        double k = 2.0 / (n + 1);
+        double sum = 0;
+        for (int i = offset; i <= oldest; i++) {
+            sum += newestFirst[i];
+        }
+        double average = sum / n;
+        for (int i = oldest - 1; i >= offset; i--) {
+            average += (newestFirst[i] - average) * k;
+        }
+        return average;
+    }
+
+    private static double macd(double[] prices, int offset, int fastEmaSize, int slowEmaSize) {
+        return ema(prices, offset, fastEmaSize) - ema(prices, offset, slowEmaSize);
+    }
+
+    static BigDecimal toDecimal(OptionalDouble value) {
+        if (value.isEmpty() || !Double.isFinite(value.getAsDouble())) {
+            return null;
+        }
+        return BigDecimal.valueOf(value.getAsDouble()).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Column view of a market data history, newest first. Missing previous closes are NaN, missing volumes are 0.
+     */
+    public record Series(double[] prices, double[] previousCloses, long[] volumes) {
+
+        public static Series of(OrderedIndexedSet<MarketDataDomain> history) {
+            int size = history.size();
+            double[] prices = new double[size];
+            double[] previousCloses = new double[size];
+            long[] volumes = new long[size];
+            for (int i = 0; i < size; i++) {
+                MarketDataDomain md = history.get(i);
+                prices[i] = md.getPrice().doubleValue();
+                previousCloses[i] = null == md.getPreviousClose() ? Double.NaN : md.getPreviousClose().doubleValue();
+                volumes[i] = null == md.getVolume() ? 0 : md.getVolume();
+            }
+            return new Series(prices, previousCloses, volumes);
+        }
+
+        public int size() {
+            return prices.length;
+        }
+
+        boolean hasPreviousCloses(int n) {
+            for (int i = 0; i < n; i++) {
+                if (Double.isNaN(previousCloses[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Series[size=" + size() + "]";
+        }
+    }
+}
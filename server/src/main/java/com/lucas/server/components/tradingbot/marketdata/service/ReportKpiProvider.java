@@ -0,0 +1,93 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.common.Constants.KpiEngine;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static com.lucas.server.common.Constants.KPI_DRIFT_TOLERANCE;
+import static com.lucas.server.common.Constants.KPI_ENGINE_DRIFT_WARN;
+import static com.lucas.server.common.Constants.OBV;
+
+/**
+ * Provides the report KPIs from the stored indicator state. Histories without it fall back to the configured engine.
+ * Results are cached per symbol and newest bar date.
+ * In parity mode both engines run, the BigDecimal result is returned and every KPI differing by more than
+ * {@link com.lucas.server.common.Constants#KPI_DRIFT_TOLERANCE} is reported.
+ */
+@Component
+@Slf4j
+public class ReportKpiProvider {
+
+    private final MarketDataKpiGenerator kpiGenerator;
+    private final PrimitiveKpiGenerator primitiveKpiGenerator;
+    private final KpiCache kpiCache;
+    private final KpiEngine engine;
+
+    public ReportKpiProvider(MarketDataKpiGenerator kpiGenerator,
+                             PrimitiveKpiGenerator primitiveKpiGenerator,
+                             KpiCache kpiCache,
+                             @Value("${kpi.engine}") KpiEngine engine) {
+        this.kpiGenerator = kpiGenerator;
+        this.primitiveKpiGenerator = primitiveKpiGenerator;
+        this.kpiCache = kpiCache;
+        this.engine = engine;
+    }
+
+    public ReportKpis provide(OrderedIndexedSet<MarketDataDomain> history) {
+        return provide(history, null);
+    }
+
+    /**
+     * @param history     list of consecutive MarketData entries, newest first
+     * @param precomputed KPIs computed beforehand, e.g. in batch. Used if there is no stored indicator state
+     * @return the KPIs featured in the asset report
+     */
+    public ReportKpis provide(OrderedIndexedSet<MarketDataDomain> history, ReportKpis precomputed) {
+        MarketDataDomain current = history.getFirst();
+        return kpiCache.get(null == current.getSymbol() ? null : current.getSymbol().getId(),
+                current.getDate(),
+                () -> kpiGenerator.readReportKpis(history)
+                        .or(() -> Optional.ofNullable(precomputed))
+                        .orElseGet(() -> compute(history)));
+    }
+
+    public ReportKpis compute(OrderedIndexedSet<MarketDataDomain> history) {
+        return switch (engine) {
+            case BIG_DECIMAL -> kpiGenerator.computeReportKpis(history);
+            case PRIMITIVE -> primitiveKpiGenerator.computeReportKpis(history);
+            case PARITY -> {
+                ReportKpis reference = kpiGenerator.computeReportKpis(history);
+                ReportKpis candidate = primitiveKpiGenerator.computeReportKpis(history);
+                MarketDataDomain current = history.getFirst();
+                reportDrift("EMA20", current, reference.ema20(), candidate.ema20());
+                reportDrift("MACD", current, reference.macdLine1226(), candidate.macdLine1226());
+                reportDrift("signal line", current, reference.macdSignalLine9(), candidate.macdSignalLine9());
+                reportDrift("RSI", current, reference.rsi14(), candidate.rsi14());
+                reportDrift("ATR", current, reference.atr14(), candidate.atr14());
+                reportDrift(OBV, current, reference.obv20(), candidate.obv20());
+                yield reference;
+            }
+        };
+    }
+
+    /**
+     * @return whether the values drift beyond the tolerance. Also logs a warning if so
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    boolean reportDrift(String kpi, MarketDataDomain current, BigDecimal reference, BigDecimal candidate) {
+        boolean drift = null == reference || null == candidate
+                ? reference != candidate
+                : 0 < reference.subtract(candidate).abs().compareTo(KPI_DRIFT_TOLERANCE);
+        if (drift) {
+            log.warn(KPI_ENGINE_DRIFT_WARN, kpi, current, reference, candidate);
+        }
+        return drift;
+    }
+}
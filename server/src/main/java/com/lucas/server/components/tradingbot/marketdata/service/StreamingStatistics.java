@@ -0,0 +1,36 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import lombok.Getter;
+
+/**
+ * Single-pass accumulator of count, sum, min, max, mean and variance (Welford), fed one value at a time.
+ */
+@Getter
+public class StreamingStatistics {
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double mean;
+    private double sumOfSquaredDeviations;
+
+    public StreamingStatistics accept(double value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquaredDeviations += delta * (value - mean);
+        return this;
+    }
+
+    public double getPopulationVariance() {
+        return 0 == count ? Double.NaN : sumOfSquaredDeviations / count;
+    }
+
+    public double getPopulationStandardDeviation() {
+        return Math.sqrt(getPopulationVariance());
+    }
+}
@@ -8,21 +8,32 @@ import com.lucas.server.components.tradingbot.marketdata.mapper.TwelveDataMarket
 import com.lucas.utils.exception.MappingException;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
 import com.lucas.utils.ratelimiter.DefaultSlidingWindowRateLimiter;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.RetryCallback;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 import tools.jackson.databind.JsonNode;
 
+import java.time.LocalDate;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
+import static com.lucas.server.common.Constants.CLIENT_FAILED_BACKUP_WARN;
 import static com.lucas.server.common.Constants.MARKET_DATA;
 import static com.lucas.server.common.Constants.MarketDataType;
 import static com.lucas.server.common.Constants.QUOTE;
 import static com.lucas.server.common.Constants.REQUEST_MAX_ATTEMPTS;
+import static com.lucas.server.common.Constants.RETRIEVAL_FAILED_WARN;
 import static com.lucas.server.common.Constants.RETRIEVING_DATA_INFO;
 import static com.lucas.server.common.Constants.SYMBOL;
 import static com.lucas.server.common.Constants.TIME_SERIES;
@@ -32,6 +43,9 @@ import static com.lucas.server.common.Constants.TWELVEDATA_RATE_LIMITER;
 @Slf4j
 public class TwelveDataMarketDataClient {
 
+    private static final int TIME_SERIES_MAX_OUTPUT_SIZE = 5000;
+    // the default backoff of @Retryable
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
     private static final EnumMap<MarketDataType, String> typeToEndpoint =
             new EnumMap<>(Map.of(MarketDataType.LAST, QUOTE, MarketDataType.HISTORIC, TIME_SERIES));
     private static final Map<MarketDataType, UnaryOperator<UriComponentsBuilder>> typeToBuilderCustomizer =
@@ -41,19 +55,30 @@ public class TwelveDataMarketDataClient {
                     builder -> builder.queryParam("interval", "1day")));
     private final HttpRequestClient httpRequestClient;
     private final DefaultSlidingWindowRateLimiter rateLimiter;
+    private final TwelveDataMarketResponseMapper mapper;
     private final String endpoint;
     private final String apiKey;
+    @Getter
+    private final int batchSize;
     private final Map<MarketDataType, TwelveDataMarketDataClient.JsonToMarketDataFunction> typeToMapper;
+    private final RetryTemplate retryTemplate = RetryTemplate.builder()
+            .maxAttempts(REQUEST_MAX_ATTEMPTS)
+            .retryOn(List.of(ClientException.class, MappingException.class))
+            .fixedBackoff(RETRY_BACKOFF_MILLIS)
+            .build();
 
     public TwelveDataMarketDataClient(HttpRequestClient httpRequestClient,
                                       Map<String, DefaultSlidingWindowRateLimiter> rateLimiters,
                                       TwelveDataMarketResponseMapper mapper,
                                       @Value("${twelve-data.endpoint}") String endpoint,
-                                      @Value("${twelve-data.api-key}") String apiKey) {
+                                      @Value("${twelve-data.api-key}") String apiKey,
+                                      @Value("${twelve-data.batch-size}") int batchSize) {
         this.httpRequestClient = httpRequestClient;
         rateLimiter = rateLimiters.get(TWELVEDATA_RATE_LIMITER);
+        this.mapper = mapper;
         this.endpoint = endpoint;
         this.apiKey = apiKey;
+        this.batchSize = batchSize;
         typeToMapper = new EnumMap<>(Map.of(MarketDataType.LAST,
                 (s, j) -> OrderedIndexedSet.of(mapper.map(j, s)),
                 MarketDataType.HISTORIC,
@@ -63,16 +88,107 @@ public class TwelveDataMarketDataClient {
     @Retryable(retryFor = {ClientException.class, MappingException.class}, maxAttempts = REQUEST_MAX_ATTEMPTS)
     public OrderedIndexedSet<MarketDataDomain> retrieveMarketData(SymbolDomain symbol, MarketDataType type)
             throws ClientException, MappingException {
+        return typeToMapper.get(type).apply(symbol, request(List.of(symbol), type, UnaryOperator.identity()));
+    }
+
+    /**
+     * Retrieves the symbols in batches of {@code batchSize}, charging the rate limiter once per batch. Symbols the
+     * batched response lacks or fails to map fall back to single requests. Both are retried as the single symbol
+     * retrieval is.
+     *
+     * @param symbols symbols to retrieve
+     * @param type    market data type
+     * @return market data by symbol. Symbols failing both ways are absent
+     */
+    public Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> retrieveMarketData(Set<SymbolDomain> symbols,
+                                                                                     MarketDataType type) {
+        return retrieveBatched(symbols, type, UnaryOperator.identity());
+    }
+
+    /**
+     * Retrieves the daily time series of the symbols between the given dates only, batched as
+     * {@link #retrieveMarketData(Set, MarketDataType)} does.
+     *
+     * @param symbols   symbols to retrieve
+     * @param startDate first date to retrieve
+     * @param endDate   last date to retrieve. Bars after it are dropped, so a session still in progress is never
+     *                  returned
+     * @return market data by symbol. Symbols failing both ways are absent
+     */
+    public Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> retrieveMarketData(Set<SymbolDomain> symbols,
+                                                                                     LocalDate startDate,
+                                                                                     LocalDate endDate) {
+        // the end date is pushed a day forward so it is covered whether the provider treats it as inclusive or not
+        Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> res = retrieveBatched(symbols,
+                MarketDataType.HISTORIC,
+                builder -> builder.queryParam("start_date", startDate)
+                        .queryParam("end_date", endDate.plusDays(1))
+                        .queryParam("outputsize", TIME_SERIES_MAX_OUTPUT_SIZE));
+        res.replaceAll((_, mds) -> mds.stream()
+                .filter(md -> !md.getDate().isAfter(endDate))
+                .collect(OrderedIndexedSet.toUnmodifiableOrderedIndexedSet()));
+        return res;
+    }
+
+    private Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> retrieveBatched(
+            Set<SymbolDomain> symbols, MarketDataType type, UnaryOperator<UriComponentsBuilder> customizer) {
+        Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> res = new HashMap<>();
+        List<SymbolDomain> pending = List.copyOf(symbols);
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<SymbolDomain> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            Set<SymbolDomain> failed = new HashSet<>(batch);
+            try {
+                JsonNode json = withRetries(_ -> request(batch, type, customizer));
+                for (SymbolDomain symbol : batch) {
+                    try {
+                        res.put(symbol, typeToMapper.get(type)
+                                .apply(symbol, mapper.demultiplex(json, symbol, batch.size())));
+                        failed.remove(symbol);
+                    } catch (MappingException e) {
+                        log.warn(CLIENT_FAILED_BACKUP_WARN, "Batched request", symbol, e);
+                    }
+                }
+            } catch (ClientException | MappingException e) {
+                log.warn(CLIENT_FAILED_BACKUP_WARN, "Batched request", batch, e);
+            }
+            for (SymbolDomain symbol : failed) {
+                try {
+                    res.put(symbol, withRetries(_ -> typeToMapper.get(type)
+                            .apply(symbol, request(List.of(symbol), type, customizer))));
+                } catch (ClientException | MappingException e) {
+                    log.warn(RETRIEVAL_FAILED_WARN, MARKET_DATA, symbol, e);
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Explicit counterpart of {@link Retryable}, which calls from within this class bypass.
+     */
+    private <T> T withRetries(RetryCallback<T, Exception> callback) throws ClientException, MappingException {
+        try {
+            return retryTemplate.execute(callback);
+        } catch (ClientException | MappingException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // the callbacks only throw the exceptions above
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JsonNode request(List<SymbolDomain> symbols,
+                             MarketDataType type,
+                             UnaryOperator<UriComponentsBuilder> customizer) throws ClientException {
         rateLimiter.acquirePermission();
-        log.info(RETRIEVING_DATA_INFO, MARKET_DATA, symbol);
-        String url = typeToBuilderCustomizer.get(type)
-                .apply(UriComponentsBuilder.fromUriString(endpoint + typeToEndpoint.get(type)))
-                .queryParam(SYMBOL, symbol.getName())
+        log.info(RETRIEVING_DATA_INFO, MARKET_DATA, symbols);
+        String url = customizer.apply(typeToBuilderCustomizer.get(type)
+                        .apply(UriComponentsBuilder.fromUriString(endpoint + typeToEndpoint.get(type))))
+                .queryParam(SYMBOL, symbols.stream().map(SymbolDomain::getName).collect(Collectors.joining(",")))
                 .queryParam("apikey", apiKey)
                 .build()
                 .toUriString();
-
-        return typeToMapper.get(type).apply(symbol, httpRequestClient.get(url, false));
+        return httpRequestClient.get(url, false);
     }
 
     @FunctionalInterface
@@ -94,8 +94,8 @@ public class NewsController {
     }
 
     @DeleteMapping("/purge")
-    public ResponseEntity<Set<NewsDomain>> purge(HttpServletRequest request, @RequestParam int toKeep) {
-        return controllerUtil.<Set<NewsDomain>>getUnauthorizedResponseIfInvalidUser(request.getCookies())
+    public ResponseEntity<Integer> purge(HttpServletRequest request, @RequestParam int toKeep) {
+        return controllerUtil.<Integer>getUnauthorizedResponseIfInvalidUser(request.getCookies())
                 .orElseGet(() -> ResponseEntity.ok(jpaService.removeOldNews(toKeep)));
     }
 }
@@ -0,0 +1,30 @@
+package com.lucas.server.components.tradingbot.news.dto;
+
+import com.lucas.server.common.dto.DomainEntity;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString(onlyExplicitlyIncluded = true)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Accessors(chain = true)
+public class NewsSentimentDomain implements DomainEntity {
+    @EqualsAndHashCode.Include
+    @ToString.Include
+    private String contentHash;
+    @ToString.Include
+    private String sentiment;
+    private BigDecimal sentimentConfidence;
+    private LocalDateTime analyzedAt;
+}
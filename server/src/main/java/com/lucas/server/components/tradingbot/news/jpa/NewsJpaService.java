@@ -1,82 +1,159 @@
 package com.lucas.server.components.tradingbot.news.jpa;
 
+import com.lucas.server.common.jpa.BulkInsertJpaServiceDelegate;
 import com.lucas.server.common.jpa.GenericJpaServiceDelegate;
-import com.lucas.server.common.jpa.UniqueConstraintWearyJpaServiceDelegate;
 import com.lucas.server.common.mapper.EntityMapper;
-import com.lucas.server.components.tradingbot.common.jpa.Symbol;
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
 import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
-import com.lucas.server.components.tradingbot.news.service.NewsSentimentClient;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static com.lucas.server.common.Constants.RETRIEVAL_FAILED_WARN;
-import static com.lucas.server.common.Constants.SENTIMENT;
 
 @Service
-@Slf4j
 public class NewsJpaService extends GenericJpaServiceDelegate<News, NewsDomain, NewsRepository> {
 
-    private final UniqueConstraintWearyJpaServiceDelegate<News> delegate;
-    private final NewsSentimentClient sentimentClient;
+    private static final String LINK_SYMBOLS_SQL =
+            "INSERT INTO news_symbol (news_id, symbol_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private final BulkInsertJpaServiceDelegate<News> delegate;
+    private final JdbcTemplate jdbcTemplate;
 
     public NewsJpaService(NewsRepository repository,
                           EntityMapper<News, NewsDomain> mapper,
-                          NewsSentimentClient sentimentClient) {
+                          JdbcTemplate jdbcTemplate,
+                          @Value("${bulk-upsert.batch-size}") int batchSize) {
         super(repository, mapper);
-        delegate = new UniqueConstraintWearyJpaServiceDelegate<>(repository);
-        this.sentimentClient = sentimentClient;
+        this.jdbcTemplate = jdbcTemplate;
+        delegate = new BulkInsertJpaServiceDelegate<>(repository,
+                jdbcTemplate,
+                "news",
+                List.of("external_id", "publication_date", "headline", "summary", "url", "source", "category",
+                        "image_url", "sentiment", "sentiment_confidence"),
+                List.of("external_id"),
+                n -> new Object[]{n.getExternalId(), n.getDate(), n.getHeadline(), n.getSummary(), n.getUrl(),
+                        n.getSource(), n.getCategory(), n.getImage(), n.getSentiment(), n.getSentimentConfidence()},
+                batchSize);
     }
 
-    // TODO: batch
     @Transactional(readOnly = true)
     public OrderedIndexedSet<NewsDomain> getTopForSymbolId(Long symbolId, int limit) {
-        return repository.findBySymbols_IdAndSentimentNotOrSymbols_IdAndSentimentIsNull(symbolId,
-                        "neutral",
-                        symbolId,
-                        PageRequest.of(0, limit, Sort.by("date").descending()))
+        return getTopForSymbolIds(Set.of(symbolId), limit).getOrDefault(symbolId, OrderedIndexedSet.of());
+    }
+
+    /**
+     * @param symbolIds symbol ids
+     * @param limit     news per symbol
+     * @return the newest non-neutral news of each symbol having any, newest first
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, OrderedIndexedSet<NewsDomain>> getTopForSymbolIds(Set<Long> symbolIds, int limit) {
+        if (symbolIds.isEmpty()) {
+            return Map.of();
+        }
+        List<SymbolNewsIds> ranked = repository.findTopIdsBySymbolIds(symbolIds, limit);
+        Map<Long, NewsDomain> newsById = repository.findAllById(ranked.stream()
+                        .map(SymbolNewsIds::getNewsId)
+                        .collect(Collectors.toUnmodifiableSet()))
                 .stream()
-                .map(mapper::toDto)
-                .collect(OrderedIndexedSet.toUnmodifiableOrderedIndexedSet());
+                .collect(Collectors.toUnmodifiableMap(News::getId, mapper::toDto));
+        return ranked.stream().collect(Collectors.groupingBy(SymbolNewsIds::getSymbolId,
+                Collectors.mapping(row -> newsById.get(row.getNewsId()),
+                        OrderedIndexedSet.toUnmodifiableOrderedIndexedSet())));
     }
 
-    // Commit on finish so that nested threads that lost transactional context can see changes
+    /**
+     * Safe under concurrency without any lock: news and their symbol links are inserted ignoring the rows another
+     * transaction inserted first. Rows are written in a consistent order so that concurrent transactions lock them in
+     * the same order too. Commits on finish so that nested threads that lost transactional context can see changes.
+     *
+     * @param dtos news
+     * @return the stored news, with both their stored and incoming symbols
+     */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public Set<NewsDomain> createOrUpdate(Set<NewsDomain> entities) {
-        Set<News> entitySet = entities.stream().map(mapper::toEntity).collect(Collectors.toSet());
-        return delegate.createOrUpdate(allEntities -> repository.findByExternalIdIn(allEntities.stream()
-                .map(News::getExternalId)
-                .collect(Collectors.toUnmodifiableSet())), (oldEntity, newEntity) -> {
-            for (Symbol symbol : newEntity.getSymbols()) {
-                oldEntity.getSymbols().add(symbol);
+    public Set<NewsDomain> createOrUpdate(Set<NewsDomain> dtos) {
+        Map<Long, NewsDomain> dtoByExternalId =
+                dtos.stream().collect(Collectors.toUnmodifiableMap(NewsDomain::getExternalId, Function.identity()));
+        Set<News> entitySet = dtos.stream()
+                .sorted(Comparator.comparing(NewsDomain::getExternalId))
+                .map(mapper::toEntity)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        delegate.createIgnoringDuplicates(this::findExisting, entitySet);
+        List<Object[]> links = new ArrayList<>();
+        Set<NewsDomain> res = new HashSet<>();
+        for (News news : findExisting(entitySet).stream().sorted(Comparator.comparing(News::getId)).toList()) {
+            NewsDomain incoming = dtoByExternalId.get(news.getExternalId());
+            if (null == news.getSentiment() && null != incoming.getSentiment()) {
+                news.setSentiment(incoming.getSentiment()).setSentimentConfidence(incoming.getSentimentConfidence());
             }
-            return oldEntity;
-        }, entitySet).stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
+            // links are written below rather than through the entity, which would fail on concurrent inserts
+            NewsDomain dto = mapper.toDto(news);
+            incoming.getSymbols()
+                    .stream()
+                    .sorted(Comparator.comparing(SymbolDomain::getId))
+                    .filter(symbol -> dto.getSymbols().add(symbol))
+                    .forEach(symbol -> links.add(new Object[]{news.getId(), symbol.getId()}));
+            res.add(dto);
+        }
+        jdbcTemplate.batchUpdate(LINK_SYMBOLS_SQL, links);
+        return Collections.unmodifiableSet(res);
     }
 
-    @Transactional
-    public Set<NewsDomain> generateSentiment(Set<Long> symbolIds, LocalDateTime from, LocalDateTime to) {
+    private Set<News> findExisting(Set<News> entities) {
+        return repository.findByExternalIdIn(entities.stream()
+                .map(News::getExternalId)
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    @Transactional(readOnly = true)
+    public Set<NewsDomain> findWithoutSentiment(Set<Long> symbolIds, LocalDateTime from, LocalDateTime to) {
         return repository.findAllBySymbols_IdInAndDateBetween(symbolIds, from, to)
                 .stream()
                 .filter(news -> null == news.getSentiment() || null == news.getSentimentConfidence())
-                .flatMap(newsEntity -> {
-                    try {
-                        NewsDomain newsDto = mapper.toDto(newsEntity);
-                        return Stream.of(sentimentClient.generateSentiment(newsDto));
-                    } catch (Exception _) {
-                        log.warn(RETRIEVAL_FAILED_WARN, SENTIMENT, newsEntity);
-                        return Stream.empty();
-                    }
-                })
+                .map(mapper::toDto)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @param externalIds external ids
+     * @return the external ids of the stored news whose sentiment is already known
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findExternalIdsWithSentiment(Set<Long> externalIds) {
+        return repository.findByExternalIdIn(externalIds)
+                .stream()
+                .filter(news -> null != news.getSentiment() && null != news.getSentimentConfidence())
+                .map(News::getExternalId)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @param dtos news with their sentiment set
+     * @return the updated news
+     */
+    @Transactional
+    public Set<NewsDomain> updateSentiment(Set<NewsDomain> dtos) {
+        Map<Long, NewsDomain> dtoById =
+                dtos.stream().collect(Collectors.toUnmodifiableMap(NewsDomain::getId, Function.identity()));
+        return repository.findAllById(dtoById.keySet())
+                .stream()
+                .map(news -> news.setSentiment(dtoById.get(news.getId()).getSentiment())
+                        .setSentimentConfidence(dtoById.get(news.getId()).getSentimentConfidence()))
+                .map(mapper::toDto)
                 .collect(Collectors.toUnmodifiableSet());
     }
 
@@ -88,8 +165,24 @@ public class NewsJpaService extends GenericJpaServiceDelegate<News, NewsDomain,
                 .collect(Collectors.toUnmodifiableSet());
     }
 
+    /**
+     * Unlinks a chunk of the news beyond the newest {@code keepCount} non-neutral ones of each symbol, committing it on
+     * its own so locks are held briefly.
+     *
+     * @return the number of removed news-symbol links
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int unlinkOldChunk(int keepCount, int chunkSize) {
+        return repository.unlinkBeyondTopPerSymbol(keepCount, chunkSize);
+    }
+
     @Transactional(readOnly = true)
-    public Set<NewsDomain> findOrphanedNews() {
-        return repository.findBySymbolsIsEmpty().stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
+    public Set<Long> findOrphanedIds(int chunkSize) {
+        return repository.findOrphanedIds(chunkSize);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void deleteAllById(Set<Long> ids) {
+        repository.deleteAllByIdInBatch(ids);
     }
 }
@@ -7,8 +7,8 @@ import org.springframework.stereotype.Service;
 import java.util.Set;
 
 /**
- * Small coordinator that acquires a JVM-wide lock before delegating
- * to the transactional NewsJpaService.
+ * Small coordinator delegating to the transactional NewsJpaService. No lock is taken, as its writes tolerate the
+ * concurrent insertion of the same news, so news of unrelated symbols are persisted in parallel.
  */
 @Service
 @RequiredArgsConstructor
@@ -16,7 +16,7 @@ public class NewsPersistenceOrchestrator {
 
     private final NewsJpaService newsJpaService;
 
-    public synchronized Set<NewsDomain> persistNews(Set<NewsDomain> entities) {
+    public Set<NewsDomain> persistNews(Set<NewsDomain> entities) {
         if (entities.isEmpty()) {
             return entities;
         }
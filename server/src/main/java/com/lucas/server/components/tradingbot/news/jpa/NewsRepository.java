@@ -1,7 +1,8 @@
 package com.lucas.server.components.tradingbot.news.jpa;
 
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -11,10 +12,24 @@ import java.util.Set;
 @Repository
 public interface NewsRepository extends JpaRepository<News, Long> {
 
-    List<News> findBySymbols_IdAndSentimentNotOrSymbols_IdAndSentimentIsNull(Long symbolId1,
-                                                                             String sentiment,
-                                                                             Long symbolId2,
-                                                                             Pageable pageable);
+    /**
+     * Reads the newest {@code limit} non-neutral news of each symbol in a single query, newest first.
+     */
+    @Query(value = """
+            SELECT s.id AS "symbolId",
+                   top.id AS "newsId"
+            FROM symbol s
+            CROSS JOIN LATERAL (SELECT n.id, n.publication_date
+                                FROM news_symbol ns
+                                JOIN news n ON n.id = ns.news_id
+                                WHERE ns.symbol_id = s.id
+                                  AND (n.sentiment = 'neutral') IS NOT TRUE
+                                ORDER BY n.publication_date DESC
+                                LIMIT :limit) top
+            WHERE s.id IN (:symbolIds)
+            ORDER BY s.id, top.publication_date DESC
+            """, nativeQuery = true)
+    List<SymbolNewsIds> findTopIdsBySymbolIds(Set<Long> symbolIds, int limit);
 
     Set<News> findByExternalIdIn(Set<Long> externalIds);
 
@@ -22,5 +37,32 @@ public interface NewsRepository extends JpaRepository<News, Long> {
 
     Set<News> findBySymbols_Id(Long symbolId);
 
-    Set<News> findBySymbolsIsEmpty();
+    /**
+     * Unlinks news from every symbol they are not among the newest {@code keepCount} non-neutral news of, mirroring
+     * {@link #findTopIdsBySymbolIds}.
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM news_symbol
+            WHERE (news_id, symbol_id) IN (SELECT news_id, symbol_id
+                                           FROM (SELECT ns.news_id,
+                                                        ns.symbol_id,
+                                                        (n.sentiment = 'neutral') IS TRUE AS neutral,
+                                                        row_number() OVER (PARTITION BY ns.symbol_id
+                                                            ORDER BY (n.sentiment = 'neutral') IS TRUE,
+                                                                     n.publication_date DESC) AS rn
+                                                 FROM news_symbol ns
+                                                 JOIN news n ON n.id = ns.news_id) ranked
+                                           WHERE neutral OR rn > :keepCount
+                                           LIMIT :chunkSize)
+            """, nativeQuery = true)
+    int unlinkBeyondTopPerSymbol(int keepCount, int chunkSize);
+
+    @Query(value = """
+            SELECT n.id
+            FROM news n
+            WHERE NOT EXISTS (SELECT 1 FROM news_symbol ns WHERE ns.news_id = n.id)
+            LIMIT :chunkSize
+            """, nativeQuery = true)
+    Set<Long> findOrphanedIds(int chunkSize);
 }
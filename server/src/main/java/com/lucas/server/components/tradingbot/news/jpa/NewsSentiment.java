@@ -0,0 +1,45 @@
+package com.lucas.server.components.tradingbot.news.jpa;
+
+import com.lucas.server.common.jpa.JpaEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString(onlyExplicitlyIncluded = true)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Accessors(chain = true)
+@Entity
+@Table(name = "news_sentiment")
+public class NewsSentiment implements JpaEntity {
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    @EqualsAndHashCode.Include
+    @ToString.Include
+    private String contentHash;
+
+    @Column(nullable = false, length = 8)
+    @ToString.Include
+    private String sentiment;
+
+    @Column(name = "sentiment_confidence", nullable = false, precision = 15, scale = 4)
+    private BigDecimal sentimentConfidence;
+
+    @Column(name = "analyzed_at", nullable = false)
+    private LocalDateTime analyzedAt;
+}
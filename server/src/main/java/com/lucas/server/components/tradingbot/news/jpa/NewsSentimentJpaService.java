@@ -0,0 +1,72 @@
+package com.lucas.server.components.tradingbot.news.jpa;
+
+import com.lucas.server.common.jpa.BulkUpsertJpaServiceDelegate;
+import com.lucas.server.common.jpa.GenericJpaServiceDelegate;
+import com.lucas.server.components.tradingbot.news.dto.NewsSentimentDomain;
+import com.lucas.server.components.tradingbot.news.mapper.NewsSentimentMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class NewsSentimentJpaService
+        extends GenericJpaServiceDelegate<NewsSentiment, NewsSentimentDomain, NewsSentimentRepository> {
+
+    private final BulkUpsertJpaServiceDelegate<NewsSentiment> delegate;
+
+    public NewsSentimentJpaService(NewsSentimentRepository repository,
+                                   NewsSentimentMapper mapper,
+                                   EntityManager entityManager,
+                                   JdbcTemplate jdbcTemplate,
+                                   @Value("${bulk-upsert.batch-size}") int batchSize) {
+        super(repository, mapper);
+        delegate = new BulkUpsertJpaServiceDelegate<>(repository,
+                entityManager,
+                jdbcTemplate,
+                "news_sentiment",
+                List.of("content_hash", "sentiment", "sentiment_confidence", "analyzed_at"),
+                List.of("content_hash"),
+                List.of("sentiment", "sentiment_confidence", "analyzed_at"),
+                ns -> new Object[]{ns.getContentHash(), ns.getSentiment(), ns.getSentimentConfidence(),
+                        ns.getAnalyzedAt()},
+                batchSize);
+    }
+
+    @Transactional
+    public Set<NewsSentimentDomain> createOrUpdate(Set<NewsSentimentDomain> dtos) {
+        Set<NewsSentiment> entitySet = dtos.stream().map(mapper::toEntity).collect(Collectors.toSet());
+        return delegate.createOrUpdate(entities -> new HashSet<>(repository.findAllById(entities.stream()
+                        .map(NewsSentiment::getContentHash)
+                        .collect(Collectors.toUnmodifiableSet()))),
+                entitySet).stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @param contentHashes content hashes
+     * @param threshold     entries analyzed until then are expired
+     * @return the unexpired entries
+     */
+    @Transactional(readOnly = true)
+    public Set<NewsSentimentDomain> findUnexpired(Set<String> contentHashes, LocalDateTime threshold) {
+        return repository.findByContentHashInAndAnalyzedAtAfter(contentHashes, threshold)
+                .stream()
+                .map(mapper::toDto)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @return the number of deleted entries
+     */
+    @Transactional
+    public int deleteExpired(LocalDateTime threshold) {
+        return repository.deleteAnalyzedUntil(threshold);
+    }
+}
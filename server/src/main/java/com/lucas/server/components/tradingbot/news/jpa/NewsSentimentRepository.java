@@ -0,0 +1,22 @@
+package com.lucas.server.components.tradingbot.news.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+@Repository
+public interface NewsSentimentRepository extends JpaRepository<NewsSentiment, String> {
+
+    Set<NewsSentiment> findByContentHashInAndAnalyzedAtAfter(Set<String> contentHashes, LocalDateTime threshold);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM news_sentiment
+            WHERE analyzed_at <= :threshold
+            """, nativeQuery = true)
+    int deleteAnalyzedUntil(LocalDateTime threshold);
+}
@@ -0,0 +1,17 @@
+package com.lucas.server.components.tradingbot.news.jpa;
+
+/**
+ * Flat projection of a news-symbol link, ranked among the news of its symbol.
+ */
+public interface SymbolNewsIds {
+
+    /**
+     * @return the symbol id
+     */
+    Long getSymbolId();
+
+    /**
+     * @return the news id
+     */
+    Long getNewsId();
+}
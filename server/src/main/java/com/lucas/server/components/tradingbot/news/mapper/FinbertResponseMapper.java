@@ -8,6 +8,8 @@ import tools.jackson.databind.JsonNode;
 
 import java.math.BigDecimal;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.lucas.server.common.Constants.MAPPING_ERROR;
 import static com.lucas.server.common.Constants.SENTIMENT;
@@ -20,6 +22,22 @@ public class FinbertResponseMapper implements Mapper<JsonNode, NewsDomain> {
         return news.setSentiment(sentiment.getSentiment()).setSentimentConfidence(sentiment.getSentimentConfidence());
     }
 
+    /**
+     * @param json array of results of a batch request, in the order of the articles sent
+     * @param news the articles sent
+     * @return the articles, with their sentiment set
+     */
+    public List<NewsDomain> mapAll(JsonNode json, List<NewsDomain> news) throws MappingException {
+        if (null == json || !json.isArray() || json.size() != news.size()) {
+            throw new MappingException(MessageFormat.format(MAPPING_ERROR, SENTIMENT));
+        }
+        List<NewsDomain> res = new ArrayList<>();
+        for (int i = 0; i < news.size(); i++) {
+            res.add(map(json.get(i), news.get(i)));
+        }
+        return res;
+    }
+
     @Override
     public NewsDomain map(JsonNode json) throws MappingException {
         try {
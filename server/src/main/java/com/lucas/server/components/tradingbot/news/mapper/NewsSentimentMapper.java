@@ -0,0 +1,32 @@
+package com.lucas.server.components.tradingbot.news.mapper;
+
+import com.lucas.server.common.mapper.EntityMapper;
+import com.lucas.server.components.tradingbot.news.dto.NewsSentimentDomain;
+import com.lucas.server.components.tradingbot.news.jpa.NewsSentiment;
+import org.springframework.stereotype.Component;
+
+@Component
+public class NewsSentimentMapper implements EntityMapper<NewsSentiment, NewsSentimentDomain> {
+
+    @Override
+    public NewsSentimentDomain toDto(NewsSentiment entity) {
+        if (null == entity) {
+            return null;
+        }
+        return new NewsSentimentDomain(entity.getContentHash(),
+                entity.getSentiment(),
+                entity.getSentimentConfidence(),
+                entity.getAnalyzedAt());
+    }
+
+    @Override
+    public NewsSentiment toEntity(NewsSentimentDomain dto) {
+        if (null == dto) {
+            return null;
+        }
+        return new NewsSentiment().setContentHash(dto.getContentHash())
+                .setSentiment(dto.getSentiment())
+                .setSentimentConfidence(dto.getSentimentConfidence())
+                .setAnalyzedAt(dto.getAnalyzedAt());
+    }
+}
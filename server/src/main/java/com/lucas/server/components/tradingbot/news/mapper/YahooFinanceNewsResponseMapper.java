@@ -4,17 +4,21 @@ import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
 import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
 import com.lucas.utils.Mapper;
 import com.lucas.utils.exception.MappingException;
+import jakarta.annotation.Nullable;
 import org.flywaydb.core.internal.util.StringUtils;
 import org.springframework.stereotype.Component;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.text.MessageFormat;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
@@ -23,18 +27,36 @@ import static com.lucas.server.common.Constants.NEWS;
 import static com.lucas.server.common.Constants.NO_YAHOO_NEWS_ERROR;
 
 @Component
-public class YahooFinanceNewsResponseMapper implements Mapper<Element, NewsDomain> {
+public class YahooFinanceNewsResponseMapper implements Mapper<XMLStreamReader, NewsDomain> {
 
-    public Set<NewsDomain> mapAll(Document document, SymbolDomain symbol) throws MappingException {
-        try {
-            NodeList items = document.getElementsByTagName("item");
-            if (null == items || 0 == items.getLength()) {
-                throw new MappingException(MessageFormat.format(NO_YAHOO_NEWS_ERROR, document));
-            }
+    private static final String ITEM = "item";
+    private static final Set<String> FIELDS = Set.of("guid", "pubDate", "title", "description", "link");
 
+    /**
+     * Items are listed newest first, so reading stops at the first one published before {@code since}.
+     *
+     * @param reader reader positioned before the first item
+     * @param symbol symbol
+     * @param since  oldest publication date kept, or null to keep every item
+     * @return the news
+     */
+    public Set<NewsDomain> mapAll(XMLStreamReader reader, SymbolDomain symbol, @Nullable LocalDateTime since)
+            throws MappingException {
+        try {
+            boolean found = false;
             Set<NewsDomain> newsList = new HashSet<>();
-            for (int i = 0; i < items.getLength(); i++) {
-                newsList.add(map((Element) items.item(i)).addSymbol(symbol));
+            while (reader.hasNext()) {
+                if (XMLStreamConstants.START_ELEMENT == reader.next() && ITEM.equals(reader.getLocalName())) {
+                    found = true;
+                    NewsDomain news = map(reader);
+                    if (null != since && news.getDate().isBefore(since)) {
+                        break;
+                    }
+                    newsList.add(news.addSymbol(symbol));
+                }
+            }
+            if (!found) {
+                throw new MappingException(MessageFormat.format(NO_YAHOO_NEWS_ERROR, symbol));
             }
             return newsList;
         } catch (Exception e) {
@@ -42,21 +64,59 @@ public class YahooFinanceNewsResponseMapper implements Mapper<Element, NewsDomai
         }
     }
 
+    /**
+     * @param item reader positioned at the start of an item, left at its end
+     */
     @Override
-    public NewsDomain map(Element item) throws MappingException {
+    public NewsDomain map(XMLStreamReader item) throws MappingException {
         try {
-            UUID uuid = UUID.fromString(item.getElementsByTagName("guid").item(0).getTextContent());
+            Map<String, String> fields = new HashMap<>();
+            int event = item.next();
+            while (XMLStreamConstants.END_ELEMENT != event || !ITEM.equals(item.getLocalName())) {
+                if (XMLStreamConstants.START_ELEMENT == event) {
+                    if (isField(item)) {
+                        fields.putIfAbsent(item.getLocalName(), item.getElementText());
+                    } else {
+                        skipElement(item);
+                    }
+                }
+                event = item.next();
+            }
+            UUID uuid = UUID.fromString(fields.get("guid"));
             return new NewsDomain().setExternalId(uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits())
-                    .setDate(LocalDateTime.from(ZonedDateTime.parse(item.getElementsByTagName("pubDate")
-                            .item(0)
-                            .getTextContent(), DateTimeFormatter.RFC_1123_DATE_TIME)))
-                    .setHeadline(item.getElementsByTagName("title").item(0).getTextContent())
-                    .setSummary(StringUtils.left(item.getElementsByTagName("description").item(0).getTextContent(),
-                            1024))
-                    .setUrl(item.getElementsByTagName("link").item(0).getTextContent())
+                    .setDate(LocalDateTime.from(ZonedDateTime.parse(fields.get("pubDate"),
+                            DateTimeFormatter.RFC_1123_DATE_TIME)))
+                    .setHeadline(Objects.requireNonNull(fields.get("title")))
+                    .setSummary(StringUtils.left(fields.get("description"), 1024))
+                    .setUrl(Objects.requireNonNull(fields.get("link")))
                     .setSource("Yahoo Finance RSS");
         } catch (Exception e) {
             throw new MappingException(MessageFormat.format(MAPPING_ERROR, NEWS), e);
         }
     }
+
+    /**
+     * Extension elements such as {@code media:title} share their local name with the fields, hence the namespace check.
+     */
+    private static boolean isField(XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return (null == namespace || namespace.isEmpty()) && FIELDS.contains(reader.getLocalName());
+    }
+
+    /**
+     * Elements other than the fields may hold element children, so their text cannot be read as a whole.
+     *
+     * @param reader reader positioned at the start of an element, left at its end
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (0 < depth) {
+            int event = reader.next();
+            if (XMLStreamConstants.START_ELEMENT == event) {
+                depth++;
+            } else if (XMLStreamConstants.END_ELEMENT == event) {
+                depth--;
+            }
+        }
+    }
 }
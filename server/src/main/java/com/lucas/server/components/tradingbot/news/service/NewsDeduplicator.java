@@ -0,0 +1,150 @@
+package com.lucas.server.components.tradingbot.news.service;
+
+import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Collapses near-duplicate articles, such as the copies of a story syndicated by several providers under different ids
+ * and urls, by the SimHash of the word pairs of their headline and summary. Fingerprints are split into one band more
+ * than the allowed distance, so any two fingerprints within it share at least one whole band, and only articles
+ * sharing a band are compared.
+ */
+@Component
+public class NewsDeduplicator {
+
+    // weight of the headline relative to the summary
+    private static final int HEADLINE_SHARE = 2;
+
+    private final int maxDistance;
+    private final int bands;
+
+    public NewsDeduplicator(@Value("${news.near-duplicate-max-distance}") int maxDistance) {
+        this.maxDistance = maxDistance;
+        bands = maxDistance + 1;
+    }
+
+    /**
+     * The oldest article of each cluster, ties broken by external id, is kept as the canonical one and gets the
+     * symbols of all of its copies.
+     *
+     * @param news articles
+     * @return the canonical articles
+     */
+    public Set<NewsDomain> collapse(Collection<NewsDomain> news) {
+        Map<Band, List<Fingerprinted>> candidatesByBand = new HashMap<>();
+        Set<NewsDomain> res = new HashSet<>();
+        for (NewsDomain article : news.stream()
+                .sorted(Comparator.comparing(NewsDomain::getDate).thenComparing(NewsDomain::getExternalId))
+                .toList()) {
+            long fingerprint = fingerprint(article);
+            NewsDomain canonical = findCanonical(candidatesByBand, fingerprint);
+            if (null != canonical) {
+                canonical.getSymbols().addAll(article.getSymbols());
+                continue;
+            }
+            Fingerprinted fingerprinted = new Fingerprinted(article, fingerprint);
+            for (int b = 0; b < bands; b++) {
+                candidatesByBand.computeIfAbsent(band(fingerprint, b), _ -> new ArrayList<>()).add(fingerprinted);
+            }
+            res.add(article);
+        }
+        return res;
+    }
+
+    /**
+     * The headline outweighs the summary whatever their lengths, as some providers attach the same boilerplate summary
+     * to unrelated articles.
+     *
+     * @return the 64-bit SimHash of the normalized word pairs of the headline and summary
+     */
+    private static long fingerprint(NewsDomain news) {
+        long[] headlineShingles = shingles(news.getHeadline());
+        long[] summaryShingles = shingles(Objects.requireNonNullElse(news.getSummary(), ""));
+        // each side adds up to its share of the total weight
+        long headlineWeight = 0 == summaryShingles.length ? 1 : (long) HEADLINE_SHARE * summaryShingles.length;
+        long summaryWeight = headlineShingles.length;
+        long[] weights = new long[Long.SIZE];
+        addWeights(weights, headlineShingles, headlineWeight);
+        addWeights(weights, summaryShingles, summaryWeight);
+        long res = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (0 < weights[bit]) {
+                res |= 1L << bit;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return the hashes of the normalized word pairs of the text, or of its only word
+     */
+    private static long[] shingles(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").strip();
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        String[] words = normalized.split(" ");
+        int shingleSize = Math.min(2, words.length);
+        long[] res = new long[words.length - shingleSize + 1];
+        for (int i = 0; i < res.length; i++) {
+            long second = 2 == shingleSize ? words[i + 1].hashCode() & 0xFFFFFFFFL : 0;
+            res[i] = mix((long) words[i].hashCode() << 32 ^ second);
+        }
+        return res;
+    }
+
+    private static void addWeights(long[] weights, long[] hashes, long weight) {
+        for (long hash : hashes) {
+            for (int bit = 0; bit < Long.SIZE; bit++) {
+                weights[bit] += 0 == (hash >>> bit & 1) ? -weight : weight;
+            }
+        }
+    }
+
+    private NewsDomain findCanonical(Map<Band, List<Fingerprinted>> candidatesByBand, long fingerprint) {
+        for (int b = 0; b < bands; b++) {
+            for (Fingerprinted candidate : candidatesByBand.getOrDefault(band(fingerprint, b), List.of())) {
+                if (maxDistance >= Long.bitCount(candidate.fingerprint() ^ fingerprint)) {
+                    return candidate.news();
+                }
+            }
+        }
+        return null;
+    }
+
+    private Band band(long fingerprint, int band) {
+        int from = band * Long.SIZE / bands;
+        int width = (band + 1) * Long.SIZE / bands - from;
+        return new Band(band, fingerprint >>> from & (Long.SIZE == width ? -1L : (1L << width) - 1));
+    }
+
+    /**
+     * MurmurHash3 finalizer, spreading the word hashes over every bit.
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private record Band(int index, long bits) {
+    }
+
+    private record Fingerprinted(NewsDomain news, long fingerprint) {
+    }
+}
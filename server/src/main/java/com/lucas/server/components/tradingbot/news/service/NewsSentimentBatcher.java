@@ -0,0 +1,152 @@
+package com.lucas.server.components.tradingbot.news.service;
+
+import com.lucas.server.common.exception.ClientException;
+import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import com.lucas.utils.exception.MappingException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.lucas.server.common.Constants.RETRIEVAL_FAILED_WARN;
+import static com.lucas.server.common.Constants.SENTIMENT;
+
+/**
+ * Gathers the articles pending sentiment analysis, possibly submitted from several threads, into micro-batches sent
+ * to FinBERT in a single request each. A batch is sent as soon as it is full, or once its oldest article has waited
+ * for the configured time.
+ */
+@Component
+@Slf4j
+public class NewsSentimentBatcher {
+
+    private final NewsSentimentClient client;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private final List<PendingNews> pending = new ArrayList<>();
+    private final ScheduledExecutorService flushScheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    public NewsSentimentBatcher(NewsSentimentClient client,
+                                @Value("${sentiment.batch-size}") int batchSize,
+                                @Value("${sentiment.max-wait-millis}") long maxWaitMillis) {
+        this.client = client;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * @param news article
+     * @return the article with its sentiment set, once its batch is analyzed. Fails if the batcher is shut down
+     */
+    public CompletableFuture<NewsDomain> submit(NewsDomain news) {
+        PendingNews res = new PendingNews(news, new CompletableFuture<>());
+        synchronized (pending) {
+            if (closed) {
+                res.future().completeExceptionally(new RejectedExecutionException(SENTIMENT));
+                return res.future();
+            }
+            pending.add(res);
+            if (batchSize <= pending.size()) {
+                List<PendingNews> batch = drain();
+                sender.execute(() -> send(batch));
+            } else if (1 == pending.size()) {
+                scheduledFlush = flushScheduler.schedule(this::flush, maxWaitMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return res.future();
+    }
+
+    /**
+     * Submits every article and waits for all of them. Failed ones are logged and left out.
+     *
+     * @param news articles
+     * @return the analyzed articles, with their sentiment set
+     */
+    public Set<NewsDomain> generateSentiment(Collection<NewsDomain> news) {
+        List<PendingNews> submitted = news.stream().map(n -> new PendingNews(n, submit(n))).toList();
+        Set<NewsDomain> res = new HashSet<>();
+        for (PendingNews p : submitted) {
+            try {
+                res.add(p.future().join());
+            } catch (CompletionException e) {
+                log.warn(RETRIEVAL_FAILED_WARN, SENTIMENT, p.news(), e.getCause());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Pending and later submitted articles are not sent anymore, their futures fail instead. Batches already being
+     * sent are let finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        List<PendingNews> batch;
+        synchronized (pending) {
+            closed = true;
+            batch = drain();
+        }
+        RejectedExecutionException cause = new RejectedExecutionException(SENTIMENT);
+        batch.forEach(p -> p.future().completeExceptionally(cause));
+        sender.shutdown();
+    }
+
+    private void flush() {
+        synchronized (pending) {
+            // sent while holding the lock, so the sender cannot be shut down in between
+            List<PendingNews> batch = drain();
+            if (!batch.isEmpty()) {
+                sender.execute(() -> send(batch));
+            }
+        }
+    }
+
+    /**
+     * Must be called holding the lock on the pending articles.
+     */
+    private List<PendingNews> drain() {
+        if (null != scheduledFlush) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<PendingNews> res = List.copyOf(pending);
+        pending.clear();
+        return res;
+    }
+
+    private void send(List<PendingNews> batch) {
+        try {
+            List<NewsDomain> analyzed = client.generateSentiment(batch.stream().map(PendingNews::news).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(analyzed.get(i));
+            }
+        } catch (ClientException | MappingException e) {
+            batch.forEach(p -> p.future().completeExceptionally(e));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            batch.forEach(p -> p.future().completeExceptionally(e));
+        }
+    }
+
+    private record PendingNews(NewsDomain news, CompletableFuture<NewsDomain> future) {
+    }
+}
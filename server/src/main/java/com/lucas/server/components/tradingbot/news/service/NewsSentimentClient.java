@@ -3,17 +3,29 @@ package com.lucas.server.components.tradingbot.news.service;
 import com.lucas.server.common.HttpRequestClient;
 import com.lucas.server.common.exception.ClientException;
 import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import com.lucas.server.components.tradingbot.news.dto.NewsSentimentDomain;
 import com.lucas.server.components.tradingbot.news.mapper.FinbertResponseMapper;
 import com.lucas.utils.exception.MappingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
 
-import static com.lucas.server.common.Constants.ANALYZE;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.lucas.server.common.Constants.ANALYZE_BATCH;
 import static com.lucas.server.common.Constants.REQUEST_MAX_ATTEMPTS;
 import static com.lucas.server.common.Constants.RETRIEVING_DATA_INFO;
 import static com.lucas.server.common.Constants.SENTIMENT;
+import static com.lucas.server.common.Constants.SENTIMENT_CACHE_STATS_INFO;
+import static com.lucas.server.common.Constants.UTC_ZONE;
 
 @Component
 @Slf4j
@@ -21,20 +33,67 @@ public class NewsSentimentClient {
 
     private final FinbertResponseMapper mapper;
     private final HttpRequestClient httpRequestClient;
+    private final ObjectMapper objectMapper;
+    private final SentimentCache cache;
     private final String url;
 
     public NewsSentimentClient(FinbertResponseMapper mapper,
                                HttpRequestClient httpRequestClient,
+                               ObjectMapper objectMapper,
+                               SentimentCache cache,
                                @Value("${sentiment.url}") String url) {
         this.mapper = mapper;
         this.httpRequestClient = httpRequestClient;
+        this.objectMapper = objectMapper;
+        this.cache = cache;
         this.url = url;
     }
 
     @Retryable(retryFor = {ClientException.class, MappingException.class}, maxAttempts = REQUEST_MAX_ATTEMPTS)
     public NewsDomain generateSentiment(NewsDomain news) throws ClientException, MappingException {
-        log.info(RETRIEVING_DATA_INFO, SENTIMENT, news);
-        return mapper.map(httpRequestClient.post(url + ANALYZE, news.getHeadline() + " [SEP] " + news.getSummary()),
-                news);
+        return generateSentiment(List.of(news)).getFirst();
+    }
+
+    /**
+     * Analyzes every article missing from the sentiment cache in a single request. Articles sharing their content are
+     * sent once.
+     *
+     * @param news articles
+     * @return the articles, with their sentiment set, in the same order
+     */
+    @Retryable(retryFor = {ClientException.class, MappingException.class}, maxAttempts = REQUEST_MAX_ATTEMPTS)
+    public List<NewsDomain> generateSentiment(List<NewsDomain> news) throws ClientException, MappingException {
+        Map<String, NewsDomain> newsByKey = new LinkedHashMap<>();
+        news.forEach(n -> newsByKey.putIfAbsent(SentimentCache.key(toText(n)), n));
+        Map<String, NewsSentimentDomain> sentimentByKey = new HashMap<>(cache.getAll(newsByKey.keySet()));
+        List<String> missingKeys = newsByKey.keySet().stream().filter(k -> !sentimentByKey.containsKey(k)).toList();
+        if (!missingKeys.isEmpty()) {
+            List<NewsDomain> missing = missingKeys.stream().map(newsByKey::get).toList();
+            log.info(RETRIEVING_DATA_INFO, SENTIMENT, missing.size());
+            ArrayNode texts = objectMapper.createArrayNode();
+            missing.forEach(n -> texts.add(toText(n)));
+            List<NewsDomain> analyzed =
+                    mapper.mapAll(httpRequestClient.post(url + ANALYZE_BATCH, null, texts, false), missing);
+            LocalDateTime now = LocalDateTime.now(UTC_ZONE);
+            List<NewsSentimentDomain> entries = new ArrayList<>();
+            for (int i = 0; i < missingKeys.size(); i++) {
+                entries.add(new NewsSentimentDomain(missingKeys.get(i),
+                        analyzed.get(i).getSentiment(),
+                        analyzed.get(i).getSentimentConfidence(),
+                        now));
+            }
+            cache.putAll(entries);
+            entries.forEach(e -> sentimentByKey.put(e.getContentHash(), e));
+        }
+        SentimentCache.Stats stats = cache.getStats();
+        log.info(SENTIMENT_CACHE_STATS_INFO, String.format("%.2f", stats.hitRate()), stats);
+        return news.stream().map(n -> {
+            NewsSentimentDomain sentiment = sentimentByKey.get(SentimentCache.key(toText(n)));
+            return n.setSentiment(sentiment.getSentiment()).setSentimentConfidence(sentiment.getSentimentConfidence());
+        }).toList();
+    }
+
+    private static String toText(NewsDomain news) {
+        return news.getHeadline() + " [SEP] " + news.getSummary();
     }
 }
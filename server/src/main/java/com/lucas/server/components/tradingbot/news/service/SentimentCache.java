@@ -0,0 +1,159 @@
+package com.lucas.server.components.tradingbot.news.service;
+
+import com.lucas.server.common.BoundedLruMap;
+import com.lucas.server.components.tradingbot.news.dto.NewsSentimentDomain;
+import com.lucas.server.components.tradingbot.news.jpa.NewsSentimentJpaService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.lucas.server.common.Constants.UTC_ZONE;
+
+/**
+ * Cache of FinBERT results keyed by a hash of the normalized analyzed text, so the copies of a syndicated article
+ * arriving under different external ids are scored once. Lookups are batched: the keys missing in memory are looked up
+ * in the {@code news_sentiment} table with a single query, and memory and table hits are counted apart. Sentiments
+ * older than the configured number of days are scored again.
+ */
+@Component
+public class SentimentCache {
+
+    private final NewsSentimentJpaService persistedEntries;
+    private final Duration timeToLive;
+    private final BoundedLruMap<String, NewsSentimentDomain> entries;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong persistedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SentimentCache(NewsSentimentJpaService persistedEntries,
+                          @Value("${sentiment.cache.max-entries}") int maxEntries,
+                          @Value("${sentiment.cache.ttl-days}") int timeToLiveDays) {
+        this.persistedEntries = persistedEntries;
+        timeToLive = Duration.ofDays(timeToLiveDays);
+        entries = new BoundedLruMap<>(maxEntries);
+    }
+
+    /**
+     * Case and whitespace differences between copies of an article are ignored.
+     *
+     * @param text analyzed text
+     * @return the hex encoded SHA-256 of the normalized text
+     */
+    public static String key(String text) {
+        String normalized = text.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param keys content keys
+     * @return the unexpired entries found in either tier, by key
+     */
+    public Map<String, NewsSentimentDomain> getAll(Set<String> keys) {
+        LocalDateTime threshold = LocalDateTime.now(UTC_ZONE).minus(timeToLive);
+        Map<String, NewsSentimentDomain> res = new HashMap<>();
+        synchronized (entries) {
+            for (String key : keys) {
+                NewsSentimentDomain cached = entries.get(key);
+                if (null != cached && cached.getAnalyzedAt().isAfter(threshold)) {
+                    res.put(key, cached);
+                } else if (null != cached) {
+                    entries.remove(key);
+                }
+            }
+        }
+        memoryHits.addAndGet(res.size());
+        Set<String> remaining = new HashSet<>(keys);
+        remaining.removeAll(res.keySet());
+        if (!remaining.isEmpty()) {
+            Map<String, NewsSentimentDomain> persisted = persistedEntries.findUnexpired(remaining, threshold)
+                    .stream()
+                    .collect(Collectors.toUnmodifiableMap(NewsSentimentDomain::getContentHash, Function.identity()));
+            persistedHits.addAndGet(persisted.size());
+            misses.addAndGet(remaining.size() - persisted.size());
+            synchronized (entries) {
+                entries.putAll(persisted);
+            }
+            res.putAll(persisted);
+        }
+        return res;
+    }
+
+    /**
+     * @param analyzed fresh entries, stored in both tiers
+     */
+    public void putAll(Collection<NewsSentimentDomain> analyzed) {
+        if (analyzed.isEmpty()) {
+            return;
+        }
+        persistedEntries.createOrUpdate(Set.copyOf(analyzed));
+        synchronized (entries) {
+            analyzed.forEach(e -> entries.put(e.getContentHash(), e));
+        }
+    }
+
+    /**
+     * Drops the expired entries of both tiers.
+     *
+     * @return the number of deleted persisted entries
+     */
+    public int removeExpired() {
+        LocalDateTime threshold = LocalDateTime.now(UTC_ZONE).minus(timeToLive);
+        synchronized (entries) {
+            entries.values().removeIf(e -> !e.getAnalyzedAt().isAfter(threshold));
+        }
+        return persistedEntries.deleteExpired(threshold);
+    }
+
+    /**
+     * Drops the in-memory entries and resets the counters.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            memoryHits.set(0);
+            persistedHits.set(0);
+            misses.set(0);
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(entries.size(),
+                    memoryHits.get(),
+                    persistedHits.get(),
+                    misses.get(),
+                    entries.getEvictions());
+        }
+    }
+
+    public record Stats(int size, long memoryHits, long persistedHits, long misses, long evictions) {
+
+        /**
+         * @return the share of lookups served by either tier, or 0 before any lookup
+         */
+        public double hitRate() {
+            long lookups = memoryHits + persistedHits + misses;
+            return 0 == lookups ? 0 : (double) (memoryHits + persistedHits) / lookups;
+        }
+    }
+}
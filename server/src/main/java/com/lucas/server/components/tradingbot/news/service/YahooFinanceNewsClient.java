@@ -7,12 +7,14 @@ import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
 import com.lucas.server.components.tradingbot.news.mapper.YahooFinanceNewsResponseMapper;
 import com.lucas.utils.exception.MappingException;
 import com.lucas.utils.ratelimiter.DefaultSlidingWindowRateLimiter;
+import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Set;
 
@@ -42,6 +44,20 @@ public class YahooFinanceNewsClient {
 
     @Retryable(retryFor = {ClientException.class, MappingException.class}, maxAttempts = REQUEST_MAX_ATTEMPTS)
     public Set<NewsDomain> retrieveNews(SymbolDomain symbol) throws ClientException, MappingException {
+        return doRetrieveNews(symbol, null);
+    }
+
+    /**
+     * @param since oldest publication date retrieved. The rest of the feed is not even parsed
+     */
+    @Retryable(retryFor = {ClientException.class, MappingException.class}, maxAttempts = REQUEST_MAX_ATTEMPTS)
+    public Set<NewsDomain> retrieveNews(SymbolDomain symbol, LocalDateTime since)
+            throws ClientException, MappingException {
+        return doRetrieveNews(symbol, since);
+    }
+
+    private Set<NewsDomain> doRetrieveNews(SymbolDomain symbol, @Nullable LocalDateTime since)
+            throws ClientException, MappingException {
         rateLimiter.acquirePermission();
         log.info(RETRIEVING_DATA_INFO, NEWS, symbol);
         String symbolName = symbol.getName().replace('.', '-');
@@ -51,6 +67,6 @@ public class YahooFinanceNewsClient {
                 .queryParam("lang", "en-US")
                 .toUriString();
 
-        return mapper.mapAll(httpRequestClient.get(url), symbol);
+        return httpRequestClient.get(url, reader -> mapper.mapAll(reader, symbol, since));
     }
 }
@@ -47,7 +47,9 @@ public class RecommendationsController {
                                                                              @RequestParam boolean afterHoursContext,
                                                                              @RequestParam boolean useOldNews,
                                                                              @RequestParam(required = false)
-                                                                             Set<String> models) {
+                                                                             Set<String> models,
+                                                                             @RequestParam(defaultValue = "true")
+                                                                             boolean bypassCache) {
         String username = controllerUtil.retrieveUsername(request.getCookies());
         if (DEFAULT_USERNAME.equals(username)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -63,7 +65,8 @@ public class RecommendationsController {
                 overwrite,
                 false,
                 afterHoursContext,
-                useOldNews));
+                useOldNews,
+                bypassCache));
     }
 
     @GetMapping("/random/{count}")
@@ -74,7 +77,9 @@ public class RecommendationsController {
                                                                                    boolean afterHoursContext,
                                                                                    @RequestParam boolean useOldNews,
                                                                                    @RequestParam(required = false)
-                                                                                   Set<String> models) {
+                                                                                   Set<String> models,
+                                                                                   @RequestParam(defaultValue = "true")
+                                                                                   boolean bypassCache) {
         String username = controllerUtil.retrieveUsername(request.getCookies());
         if (DEFAULT_USERNAME.equals(username)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -92,7 +97,8 @@ public class RecommendationsController {
                 false,
                 false,
                 afterHoursContext,
-                useOldNews));
+                useOldNews,
+                bypassCache));
     }
 
     @GetMapping("/models")
@@ -119,8 +125,8 @@ public class RecommendationsController {
     }
 
     @DeleteMapping("/purge")
-    public ResponseEntity<Set<RecommendationDomain>> purge(HttpServletRequest request, @RequestParam int toKeep) {
-        return controllerUtil.<Set<RecommendationDomain>>getUnauthorizedResponseIfInvalidUser(request.getCookies())
+    public ResponseEntity<Integer> purge(HttpServletRequest request, @RequestParam int toKeep) {
+        return controllerUtil.<Integer>getUnauthorizedResponseIfInvalidUser(request.getCookies())
                 .orElseGet(() -> ResponseEntity.ok(jpaService.removeOldRecommendations(toKeep)));
     }
 
@@ -0,0 +1,28 @@
+package com.lucas.server.components.tradingbot.recommendation.dto;
+
+import com.lucas.server.common.dto.DomainEntity;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString(onlyExplicitlyIncluded = true)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Accessors(chain = true)
+public class CachedCompletionDomain implements DomainEntity {
+    @EqualsAndHashCode.Include
+    @ToString.Include
+    private String promptHash;
+    private String completion;
+    @ToString.Include
+    private LocalDateTime completedAt;
+}
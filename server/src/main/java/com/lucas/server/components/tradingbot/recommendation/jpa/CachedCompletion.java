@@ -0,0 +1,41 @@
+package com.lucas.server.components.tradingbot.recommendation.jpa;
+
+import com.lucas.server.common.jpa.JpaEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString(onlyExplicitlyIncluded = true)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Accessors(chain = true)
+@Entity
+@Table(name = "completion_cache")
+public class CachedCompletion implements JpaEntity {
+
+    @Id
+    @Column(name = "prompt_hash", length = 64)
+    @EqualsAndHashCode.Include
+    @ToString.Include
+    private String promptHash;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String completion;
+
+    @Column(name = "completed_at", nullable = false)
+    @ToString.Include
+    private LocalDateTime completedAt;
+}
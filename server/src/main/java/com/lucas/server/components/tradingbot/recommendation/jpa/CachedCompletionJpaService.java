@@ -0,0 +1,37 @@
+package com.lucas.server.components.tradingbot.recommendation.jpa;
+
+import com.lucas.server.common.jpa.GenericJpaServiceDelegate;
+import com.lucas.server.components.tradingbot.recommendation.dto.CachedCompletionDomain;
+import com.lucas.server.components.tradingbot.recommendation.mapper.CachedCompletionMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+public class CachedCompletionJpaService
+        extends GenericJpaServiceDelegate<CachedCompletion, CachedCompletionDomain, CachedCompletionRepository> {
+
+    public CachedCompletionJpaService(CachedCompletionRepository repository, CachedCompletionMapper mapper) {
+        super(repository, mapper);
+    }
+
+    /**
+     * @param promptHash prompt hash
+     * @param threshold  entries completed until then are expired
+     * @return the entry, if unexpired
+     */
+    @Transactional(readOnly = true)
+    public Optional<CachedCompletionDomain> findUnexpired(String promptHash, LocalDateTime threshold) {
+        return repository.findByPromptHashAndCompletedAtAfter(promptHash, threshold).map(mapper::toDto);
+    }
+
+    /**
+     * @return the number of deleted entries
+     */
+    @Transactional
+    public int deleteExpired(LocalDateTime threshold) {
+        return repository.deleteCompletedUntil(threshold);
+    }
+}
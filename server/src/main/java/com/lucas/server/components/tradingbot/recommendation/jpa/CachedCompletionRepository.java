@@ -0,0 +1,22 @@
+package com.lucas.server.components.tradingbot.recommendation.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CachedCompletionRepository extends JpaRepository<CachedCompletion, String> {
+
+    Optional<CachedCompletion> findByPromptHashAndCompletedAtAfter(String promptHash, LocalDateTime threshold);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM completion_cache
+            WHERE completed_at <= :threshold
+            """, nativeQuery = true)
+    int deleteCompletedUntil(LocalDateTime threshold);
+}
@@ -1,18 +1,23 @@
 package com.lucas.server.components.tradingbot.recommendation.jpa;
 
+import com.lucas.server.common.jpa.BulkUpsertJpaServiceDelegate;
 import com.lucas.server.common.jpa.GenericJpaServiceDelegate;
-import com.lucas.server.common.jpa.UniqueConstraintWearyJpaServiceDelegate;
 import com.lucas.server.common.mapper.EntityMapper;
 import com.lucas.server.components.tradingbot.recommendation.dto.RecommendationDomain;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -20,19 +25,43 @@ import java.util.stream.Collectors;
 public class RecommendationsJpaService
         extends GenericJpaServiceDelegate<Recommendation, RecommendationDomain, RecommendationsRepository> {
 
-    private final UniqueConstraintWearyJpaServiceDelegate<Recommendation> delegate;
+    private final BulkUpsertJpaServiceDelegate<Recommendation> delegate;
 
     public RecommendationsJpaService(RecommendationsRepository repository,
-                                     EntityMapper<Recommendation, RecommendationDomain> mapper) {
+                                     EntityMapper<Recommendation, RecommendationDomain> mapper,
+                                     EntityManager entityManager,
+                                     JdbcTemplate jdbcTemplate,
+                                     @Value("${bulk-upsert.batch-size}") int batchSize) {
         super(repository, mapper);
-        delegate = new UniqueConstraintWearyJpaServiceDelegate<>(repository);
+        delegate = new BulkUpsertJpaServiceDelegate<>(repository,
+                entityManager,
+                jdbcTemplate,
+                "recommendation",
+                List.of("symbol_id",
+                        "recommendation_date",
+                        "market_data_id",
+                        "action",
+                        "confidence",
+                        "rationale",
+                        "model",
+                        "input",
+                        "errors"),
+                List.of("symbol_id", "recommendation_date"),
+                List.of("market_data_id", "action", "confidence", "rationale", "model", "input", "errors"),
+                r -> new Object[]{r.getSymbol().getId(), r.getDate(),
+                        null != r.getMarketData() ? r.getMarketData().getId() : null, r.getAction(), r.getConfidence(),
+                        r.getRationale(), r.getModel(), r.getInput(), r.getErrors()},
+                batchSize);
     }
 
     @SuppressWarnings("UnusedReturnValue")
     @Transactional
     public Set<RecommendationDomain> createIgnoringDuplicates(Set<RecommendationDomain> dtos) {
         Set<Recommendation> recommendationEntities = dtos.stream().map(mapper::toEntity).collect(Collectors.toSet());
-        return delegate.createIgnoringDuplicates(this::findUnique, recommendationEntities)
+        // news links live in the join table, so they are added onto the managed entities
+        return delegate.createIgnoringDuplicates(this::findUnique,
+                        (saved, incoming) -> saved.addNews(incoming.getNews()),
+                        recommendationEntities)
                 .stream()
                 .map(mapper::toDto)
                 .collect(Collectors.toUnmodifiableSet());
@@ -64,14 +93,7 @@ public class RecommendationsJpaService
     public Set<RecommendationDomain> createOrUpdate(Set<RecommendationDomain> entities) {
         Set<Recommendation> entitySet = entities.stream().map(mapper::toEntity).collect(Collectors.toSet());
         return delegate.createOrUpdate(this::findUnique,
-                (oldEntity, newEntity) -> oldEntity.setModel(newEntity.getModel())
-                        .setAction(newEntity.getAction())
-                        .setConfidence(newEntity.getConfidence())
-                        .setRationale(newEntity.getRationale())
-                        .setMarketData(newEntity.getMarketData())
-                        .setInput(newEntity.getInput())
-                        .setErrors(newEntity.getErrors())
-                        .addNews(newEntity.getNews()),
+                (saved, incoming) -> saved.addNews(incoming.getNews()),
                 entitySet).stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
     }
 
@@ -99,9 +121,21 @@ public class RecommendationsJpaService
                 models).stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
     }
 
-    @Transactional(readOnly = true)
-    public Set<RecommendationDomain> findByNewsId(Set<Long> newsIds) {
-        return repository.findByNews_IdIn(newsIds).stream().map(mapper::toDto).collect(Collectors.toUnmodifiableSet());
+    /**
+     * Deletes a chunk of the recommendations beyond the newest {@code keepCount} of each symbol, committing it on its
+     * own so locks are held briefly.
+     *
+     * @return the number of deleted recommendations
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int deleteOldChunk(int keepCount, int chunkSize) {
+        return repository.deleteBeyondTopPerSymbol(keepCount, chunkSize);
+    }
+
+    @SuppressWarnings("UnusedReturnValue")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int unlinkNews(Set<Long> newsIds) {
+        return newsIds.isEmpty() ? 0 : repository.unlinkNews(newsIds);
     }
 
     private Set<Recommendation> findUnique(Set<Recommendation> recommendations) {
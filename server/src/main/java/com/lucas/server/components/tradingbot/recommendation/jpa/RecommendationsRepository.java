@@ -3,6 +3,8 @@ package com.lucas.server.components.tradingbot.recommendation.jpa;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
@@ -20,7 +22,21 @@ public interface RecommendationsRepository extends JpaRepository<Recommendation,
 
     Set<Recommendation> findBySymbol_Id(Long id);
 
-    Set<Recommendation> findByNews_IdIn(Set<Long> newsIds);
+    @Modifying
+    @Query(value = """
+            DELETE FROM recommendation
+            WHERE id IN (SELECT id
+                         FROM (SELECT id,
+                                      row_number() OVER (PARTITION BY symbol_id ORDER BY recommendation_date DESC) AS rn
+                               FROM recommendation) ranked
+                         WHERE rn > :keepCount
+                         LIMIT :chunkSize)
+            """, nativeQuery = true)
+    int deleteBeyondTopPerSymbol(int keepCount, int chunkSize);
+
+    @Modifying
+    @Query(value = "DELETE FROM recommendation_news WHERE news_id IN (:newsIds)", nativeQuery = true)
+    int unlinkNews(Set<Long> newsIds);
 
     Set<Recommendation> findByActionAndConfidenceGreaterThanEqualAndDate(String action,
                                                                          BigDecimal confidenceThreshold,
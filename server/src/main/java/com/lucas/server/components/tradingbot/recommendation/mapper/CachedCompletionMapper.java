@@ -0,0 +1,28 @@
+package com.lucas.server.components.tradingbot.recommendation.mapper;
+
+import com.lucas.server.common.mapper.EntityMapper;
+import com.lucas.server.components.tradingbot.recommendation.dto.CachedCompletionDomain;
+import com.lucas.server.components.tradingbot.recommendation.jpa.CachedCompletion;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CachedCompletionMapper implements EntityMapper<CachedCompletion, CachedCompletionDomain> {
+
+    @Override
+    public CachedCompletionDomain toDto(CachedCompletion entity) {
+        if (null == entity) {
+            return null;
+        }
+        return new CachedCompletionDomain(entity.getPromptHash(), entity.getCompletion(), entity.getCompletedAt());
+    }
+
+    @Override
+    public CachedCompletion toEntity(CachedCompletionDomain dto) {
+        if (null == dto) {
+            return null;
+        }
+        return new CachedCompletion().setPromptHash(dto.getPromptHash())
+                .setCompletion(dto.getCompletion())
+                .setCompletedAt(dto.getCompletedAt());
+    }
+}
@@ -0,0 +1,98 @@
+package com.lucas.server.components.tradingbot.recommendation.mapper;
+
+import com.lucas.utils.exception.MappingException;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.lucas.server.common.Constants.MALFORMED_STREAM_ERROR;
+
+/**
+ * Splits a JSON array of objects, or a single object, into the text of each object as soon as it closes, while the
+ * document is fed in arbitrary pieces. Text before the document, such as a code fence, and after it is skipped, but
+ * anything other than objects within the array fails fast.
+ */
+class JsonObjectSplitter {
+
+    private final StringBuilder current = new StringBuilder();
+    private State state = State.BEFORE;
+    private boolean inArray;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    /**
+     * @param text the next piece of the document
+     * @return the objects closed by it, in order
+     * @throws MappingException if the document is not an array of objects
+     */
+    List<String> feed(CharSequence text) throws MappingException {
+        List<String> res = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (state) {
+                case BEFORE -> {
+                    if ('[' == c) {
+                        inArray = true;
+                        state = State.BETWEEN;
+                    } else if ('{' == c) {
+                        open(c);
+                    }
+                }
+                case BETWEEN -> {
+                    if ('{' == c) {
+                        open(c);
+                    } else if (']' == c) {
+                        state = State.AFTER;
+                    } else if (',' != c && !Character.isWhitespace(c)) {
+                        throw new MappingException(MessageFormat.format(MALFORMED_STREAM_ERROR, c));
+                    }
+                }
+                case OBJECT -> {
+                    current.append(c);
+                    if (escaped) {
+                        escaped = false;
+                    } else if (inString) {
+                        escaped = '\\' == c;
+                        inString = '"' != c;
+                    } else if ('"' == c) {
+                        inString = true;
+                    } else if ('{' == c || '[' == c) {
+                        depth++;
+                    } else if (('}' == c || ']' == c) && 0 == --depth) {
+                        res.add(current.toString());
+                        current.setLength(0);
+                        state = inArray ? State.BETWEEN : State.AFTER;
+                    }
+                }
+                case AFTER -> {
+                    // closing code fence, or whatever else the model appended
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @throws MappingException if the document was cut short, as the rest of it will never come
+     */
+    void finish() throws MappingException {
+        if (State.AFTER != state) {
+            throw new MappingException(MessageFormat.format(MALFORMED_STREAM_ERROR, "end of completion"));
+        }
+    }
+
+    private void open(char c) {
+        current.append(c);
+        depth = 1;
+        state = State.OBJECT;
+    }
+
+    private enum State {
+        BEFORE,
+        BETWEEN,
+        OBJECT,
+        AFTER
+    }
+}
@@ -7,18 +7,25 @@ import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
 import com.lucas.server.components.tradingbot.recommendation.dto.RecommendationDomain;
 import com.lucas.utils.Mapper;
 import com.lucas.utils.exception.MappingException;
+import lombok.RequiredArgsConstructor;
 import org.flywaydb.core.internal.util.StringUtils;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
 import java.text.MessageFormat;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import static com.lucas.server.common.Constants.MAPPING_ERROR;
 import static com.lucas.server.common.Constants.RECOMMENDATION;
@@ -27,45 +34,24 @@ import static com.lucas.server.common.Constants.UTC_ZONE;
 import static com.lucas.utils.Utils.EMPTY_STRING;
 
 @Component
+@RequiredArgsConstructor
 public class RecommendationChatCompletionResponseMapper implements Mapper<JsonNode, RecommendationDomain> {
 
+    private final ObjectMapper objectMapper;
+
     public Set<RecommendationDomain> mapAll(Set<DataManager.SymbolPayload> payload,
                                             JsonNode jsonNode,
                                             String message,
                                             String model) throws MappingException {
         try {
-            Set<RecommendationDomain> recommendations = new HashSet<>();
-            Map<String, SymbolDomain> symbolByName = new HashMap<>();
-            Map<String, MarketDataDomain> latestMarketDataByName = new HashMap<>();
-            Map<String, Set<NewsDomain>> newsByName = new HashMap<>();
-            for (DataManager.SymbolPayload p : payload) {
-                String name = p.getSymbol().getName();
-                symbolByName.put(name, p.getSymbol());
-                MarketDataDomain latest =
-                        p.getMarketData().stream().max(Comparator.comparing(MarketDataDomain::getDate)).orElseThrow();
-                latestMarketDataByName.put(name, latest);
-                newsByName.put(name, p.getNews());
-            }
-
+            PayloadIndex index = new PayloadIndex(payload);
             if (jsonNode.isObject()) {
-                String symbolName = jsonNode.get(SYMBOL).asString();
-                return Set.of(map(jsonNode).setModel(model)
-                        .setInput(message)
-                        .setErrors(EMPTY_STRING)
-                        .setMarketDataId(latestMarketDataByName.get(symbolName).getId())
-                        .setSymbol(symbolByName.get(symbolName))
-                        .addNews(newsByName.get(symbolName)));
+                return Set.of(map(jsonNode, index, message, model));
             }
 
+            Set<RecommendationDomain> recommendations = new HashSet<>();
             for (int i = 0; i < jsonNode.size(); i++) {
-                JsonNode load = jsonNode.get(i);
-                String symbolName = load.get(SYMBOL).asString();
-                recommendations.add(map(load).setModel(model)
-                        .setInput(message)
-                        .setErrors(EMPTY_STRING)
-                        .setMarketDataId(latestMarketDataByName.get(symbolName).getId())
-                        .setSymbol(symbolByName.get(symbolName))
-                        .addNews(newsByName.get(symbolName)));
+                recommendations.add(map(jsonNode.get(i), index, message, model));
             }
 
             return recommendations;
@@ -74,6 +60,47 @@ public class RecommendationChatCompletionResponseMapper implements Mapper<JsonNo
         }
     }
 
+    /**
+     * Maps a streamed completion while it arrives, emitting each recommendation as soon as its JSON object closes.
+     * Malformed output fails the stream on the spot, cancelling the completion, while recommendations emitted before
+     * stand.
+     *
+     * @param payload payload
+     * @param texts   the completion, in pieces
+     * @param message message
+     * @param model   model
+     * @return the recommendations, failing with {@link MappingException} if the completion is malformed or cut short
+     */
+    public Flux<RecommendationDomain> mapStream(Set<DataManager.SymbolPayload> payload,
+                                                Flux<String> texts,
+                                                String message,
+                                                String model) {
+        return Flux.defer(() -> {
+            PayloadIndex index = new PayloadIndex(payload);
+            JsonObjectSplitter splitter = new JsonObjectSplitter();
+            return texts.<List<RecommendationDomain>>handle((text, sink) -> {
+                try {
+                    List<RecommendationDomain> res = new ArrayList<>();
+                    for (String object : splitter.feed(text)) {
+                        res.add(map(objectMapper.readTree(object), index, message, model));
+                    }
+                    sink.next(res);
+                } catch (MappingException e) {
+                    sink.error(e);
+                } catch (Exception e) {
+                    sink.error(new MappingException(MessageFormat.format(MAPPING_ERROR, RECOMMENDATION), e));
+                }
+            }).concatWith(Mono.defer(() -> {
+                try {
+                    splitter.finish();
+                    return Mono.empty();
+                } catch (MappingException e) {
+                    return Mono.error(e);
+                }
+            })).flatMapIterable(Function.identity());
+        });
+    }
+
     @Override
     public RecommendationDomain map(JsonNode json) throws MappingException {
         try {
@@ -85,4 +112,32 @@ public class RecommendationChatCompletionResponseMapper implements Mapper<JsonNo
             throw new MappingException(MessageFormat.format(MAPPING_ERROR, RECOMMENDATION), e);
         }
     }
+
+    private RecommendationDomain map(JsonNode load, PayloadIndex index, String message, String model)
+            throws MappingException {
+        String symbolName = load.get(SYMBOL).asString();
+        return map(load).setModel(model)
+                .setInput(message)
+                .setErrors(EMPTY_STRING)
+                .setMarketDataId(index.latestMarketDataByName().get(symbolName).getId())
+                .setSymbol(index.symbolByName().get(symbolName))
+                .addNews(index.newsByName().get(symbolName));
+    }
+
+    private record PayloadIndex(Map<String, SymbolDomain> symbolByName,
+                                Map<String, MarketDataDomain> latestMarketDataByName,
+                                Map<String, Set<NewsDomain>> newsByName) {
+
+        private PayloadIndex(Set<DataManager.SymbolPayload> payload) {
+            this(new HashMap<>(), new HashMap<>(), new HashMap<>());
+            for (DataManager.SymbolPayload p : payload) {
+                String name = p.getSymbol().getName();
+                symbolByName.put(name, p.getSymbol());
+                MarketDataDomain latest =
+                        p.getMarketData().stream().max(Comparator.comparing(MarketDataDomain::getDate)).orElseThrow();
+                latestMarketDataByName.put(name, latest);
+                newsByName.put(name, p.getNews());
+            }
+        }
+    }
 }
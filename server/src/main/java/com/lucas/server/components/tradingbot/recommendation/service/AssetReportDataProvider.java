@@ -4,6 +4,8 @@ import com.lucas.server.components.tradingbot.common.jpa.DataManager;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketSnapshotDomain;
 import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import com.lucas.server.components.tradingbot.marketdata.service.ReportKpiProvider;
 import com.lucas.server.components.tradingbot.portfolio.service.PortfolioManager;
 import com.lucas.server.components.tradingbot.recommendation.mapper.AssetReportToMustacheMapper.AssetReportRaw;
 import com.lucas.server.components.tradingbot.recommendation.mapper.AssetReportToMustacheMapper.NewsItemRaw;
@@ -13,8 +15,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-
 import static com.lucas.server.common.Constants.HISTORY_DAYS_COUNT;
 import static com.lucas.server.common.Constants.NEWS_SERIALIZATION_WARN;
 import static java.lang.Math.min;
@@ -25,18 +25,14 @@ import static java.lang.Math.min;
 public class AssetReportDataProvider {
 
     private final MarketDataKpiGenerator kpiGenerator;
+    private final ReportKpiProvider reportKpiProvider;
     private final PortfolioManager portfolioManager;
 
     public AssetReportRaw provide(DataManager.SymbolPayload payload) {
         OrderedIndexedSet<MarketDataDomain> mdHistory = payload.getMarketData();
 
-        BigDecimal ema20 = kpiGenerator.computeEma(mdHistory, 20).orElse(null);
-        BigDecimal macdLine1226 = kpiGenerator.computeMacdLine(mdHistory, 12, 26).orElse(null);
-        BigDecimal macdSignalLine9 = kpiGenerator.computeSignalLine(mdHistory, 9, 12, 26).orElse(null);
+        ReportKpis kpis = reportKpiProvider.provide(mdHistory, payload.getKpis());
         MarketDataDomain current = mdHistory.getFirst();
-        BigDecimal rsi14 = kpiGenerator.computeRsi(current);
-        BigDecimal atr14 = kpiGenerator.computeRelativeAtr(current);
-        BigDecimal obv20 = kpiGenerator.computeObv(mdHistory, 20).orElse(null);
 
         MarketSnapshotDomain pm = payload.getPremarket();
         PricePointRaw premarket = null;
@@ -83,12 +79,12 @@ public class AssetReportDataProvider {
                 priceHistory.size(),
                 premarket,
                 priceHistory,
-                ema20,
-                macdLine1226,
-                macdSignalLine9,
-                rsi14,
-                atr14,
-                obv20,
+                kpis.ema20(),
+                kpis.macdLine1226(),
+                kpis.macdSignalLine9(),
+                kpis.rsi14(),
+                kpis.atr14(),
+                kpis.obv20(),
                 news.size(),
                 news);
     }
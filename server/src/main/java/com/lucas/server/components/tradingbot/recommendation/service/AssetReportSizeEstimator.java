@@ -0,0 +1,41 @@
+package com.lucas.server.components.tradingbot.recommendation.service;
+
+import com.lucas.server.components.tradingbot.common.jpa.DataManager;
+import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+import static com.lucas.server.common.Constants.HISTORY_DAYS_COUNT;
+
+/**
+ * Estimates the tokens of the asset report rendered for a payload, without rendering it, from the lengths of its
+ * variable parts: price history, premarket and news. Counts about four characters per token, and errs on the high side
+ * by counting the whole length of fields that get truncated or escaped.
+ */
+@Component
+public class AssetReportSizeEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    // headers and technical indicators
+    private static final int ASSET_CHARS = 360;
+    private static final int PREMARKET_CHARS = 90;
+    private static final int PRICE_POINT_CHARS = 70;
+    // date, sentiment and separators
+    private static final int NEWS_ITEM_CHARS = 40;
+
+    public int estimateTokens(DataManager.SymbolPayload payload) {
+        long chars = ASSET_CHARS + payload.getSymbol().getName().length();
+        if (null != payload.getPremarket()) {
+            chars += PREMARKET_CHARS;
+        }
+        chars += (long) Math.min(payload.getMarketData().size(), HISTORY_DAYS_COUNT) * PRICE_POINT_CHARS;
+        if (null != payload.getNews()) {
+            for (NewsDomain news : payload.getNews()) {
+                chars += NEWS_ITEM_CHARS + news.getHeadline().length()
+                         + Objects.requireNonNullElse(news.getSummary(), "").length();
+            }
+        }
+        return Math.toIntExact((chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN);
+    }
+}
@@ -0,0 +1,127 @@
+package com.lucas.server.components.tradingbot.recommendation.service;
+
+import com.lucas.server.common.BoundedLruMap;
+import com.lucas.server.components.tradingbot.recommendation.dto.CachedCompletionDomain;
+import com.lucas.server.components.tradingbot.recommendation.jpa.CachedCompletionJpaService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.lucas.server.common.Constants.CONTENT;
+import static com.lucas.server.common.Constants.ROLE;
+import static com.lucas.server.common.Constants.UTC_ZONE;
+
+/**
+ * Raw AI completions keyed by a hash of the deployment and its rendered prompt, so that retried or restarted runs
+ * replay the completions already paid for instead of spending the providers' quotas again. Completions are stored
+ * unmapped, so a fix to the response mapper applies to replays too. The most recently used ones are also kept in
+ * memory, in front of the {@code completion_cache} table. A completion older than the configured number of hours is
+ * requested again, so that a run never replays the previous one.
+ */
+@Component
+public class CompletionCache {
+
+    // keeps the boundaries between the hashed parts, so that moving text from one to the next changes the key
+    private static final byte SEPARATOR = 0;
+
+    private final CachedCompletionJpaService persistedEntries;
+    private final Duration timeToLive;
+    private final BoundedLruMap<String, CachedCompletionDomain> entries;
+
+    public CompletionCache(CachedCompletionJpaService persistedEntries,
+                           @Value("${recommendation.completion-cache.max-entries}") int maxEntries,
+                           @Value("${recommendation.completion-cache.ttl-hours}") int timeToLiveHours) {
+        this.persistedEntries = persistedEntries;
+        timeToLive = Duration.ofHours(timeToLiveHours);
+        entries = new BoundedLruMap<>(maxEntries);
+    }
+
+    /**
+     * @param deployment deployment name
+     * @param messages   rendered prompt messages
+     * @return the hex encoded SHA-256 of the deployment name and the role and content of each message
+     */
+    public static String key(String deployment, Collection<JsonNode> messages) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(deployment.getBytes(StandardCharsets.UTF_8));
+            for (JsonNode message : messages) {
+                digest.update(SEPARATOR);
+                digest.update(message.get(ROLE).asString().getBytes(StandardCharsets.UTF_8));
+                digest.update(SEPARATOR);
+                digest.update(message.get(CONTENT).asString().getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param key prompt key
+     * @return the unexpired completion found in either tier, if any
+     */
+    public Optional<String> get(String key) {
+        LocalDateTime threshold = LocalDateTime.now(UTC_ZONE).minus(timeToLive);
+        synchronized (entries) {
+            CachedCompletionDomain cached = entries.get(key);
+            if (null != cached && cached.getCompletedAt().isAfter(threshold)) {
+                return Optional.of(cached.getCompletion());
+            }
+            if (null != cached) {
+                entries.remove(key);
+            }
+        }
+        Optional<CachedCompletionDomain> persisted = persistedEntries.findUnexpired(key, threshold);
+        persisted.ifPresent(p -> {
+            synchronized (entries) {
+                entries.put(key, p);
+            }
+        });
+        return persisted.map(CachedCompletionDomain::getCompletion);
+    }
+
+    /**
+     * @param key        prompt key
+     * @param completion raw completion, stored in both tiers
+     */
+    public void put(String key, String completion) {
+        CachedCompletionDomain entry = new CachedCompletionDomain(key, completion, LocalDateTime.now(UTC_ZONE));
+        persistedEntries.saveAll(Set.of(entry));
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Drops the expired entries of both tiers.
+     *
+     * @return the number of deleted persisted entries
+     */
+    public int removeExpired() {
+        LocalDateTime threshold = LocalDateTime.now(UTC_ZONE).minus(timeToLive);
+        synchronized (entries) {
+            entries.values().removeIf(e -> !e.getCompletedAt().isAfter(threshold));
+        }
+        return persistedEntries.deleteExpired(threshold);
+    }
+
+    /**
+     * Drops the in-memory entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -3,17 +3,20 @@ package com.lucas.server.components.tradingbot.recommendation.service;
 import com.lucas.server.common.exception.ClientException;
 import com.lucas.server.common.exception.ConfigurationException;
 import com.lucas.server.components.tradingbot.common.AiClient;
+import com.lucas.server.components.tradingbot.common.AiClientScheduler;
 import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
 import com.lucas.server.components.tradingbot.common.jpa.DataManager;
 import com.lucas.server.components.tradingbot.recommendation.dto.RecommendationDomain;
 import com.lucas.server.components.tradingbot.recommendation.mapper.AssetReportToMustacheMapper;
 import com.lucas.server.components.tradingbot.recommendation.mapper.AssetReportToMustacheMapper.AssetReportRaw;
 import com.lucas.server.components.tradingbot.recommendation.mapper.RecommendationChatCompletionResponseMapper;
-import com.lucas.utils.Interrupts;
 import com.lucas.utils.exception.MappingException;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.node.ObjectNode;
@@ -23,16 +26,38 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.lucas.server.common.Constants.CLIENT_ROTATION_DEBOUNCE_MS;
+import static com.lucas.server.common.Constants.COMPLETION_CACHING_FAILED_WARN;
+import static com.lucas.server.common.Constants.COMPLETION_REPLAYED_INFO;
+import static com.lucas.server.common.Constants.COMPLETION_REPLAY_FAILED_WARN;
 import static com.lucas.server.common.Constants.CONTENT;
 import static com.lucas.server.common.Constants.NY_ZONE;
 import static com.lucas.server.common.Constants.PROMPTING_MODEL_INFO;
@@ -54,11 +79,19 @@ public class RecommendationChatCompletionClient {
     private final AssetReportToMustacheMapper assetReportToMustacheMapper;
     private final ObjectMapper objectMapper;
     private final RecommendationChatCompletionResponseMapper mapper;
+    private final AiClientScheduler scheduler;
+    private final CompletionCache completionCache;
+    private final ScheduledExecutorService sweepScheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    private final ExecutorService sweeper = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<AiClient, Semaphore> concurrencyPermits = new ConcurrentHashMap<>();
 
     public RecommendationChatCompletionClient(AssetReportDataProvider assertReportDataProvider,
                                               AssetReportToMustacheMapper assetReportToMustacheMapper,
                                               ObjectMapper objectMapper,
-                                              RecommendationChatCompletionResponseMapper mapper) {
+                                              RecommendationChatCompletionResponseMapper mapper,
+                                              AiClientScheduler scheduler,
+                                              CompletionCache completionCache) {
         try (Reader contextReader = new InputStreamReader(Objects.requireNonNull(getClass().getResourceAsStream(
                 "/prompt/context.json")), StandardCharsets.UTF_8);
              Reader systemReader = new InputStreamReader(Objects.requireNonNull(getClass().getResourceAsStream(
@@ -81,22 +114,32 @@ public class RecommendationChatCompletionClient {
         this.assetReportToMustacheMapper = assetReportToMustacheMapper;
         this.objectMapper = objectMapper;
         this.mapper = mapper;
+        this.scheduler = scheduler;
+        this.completionCache = completionCache;
     }
 
     /**
-     * Retrieves recommendations for the given symbol payloads using the provided AI clients.
-     * Cycles through all clients indefinitely until one successfully acquires rate limit permits.
+     * Retrieves recommendations for the given symbol payloads using the provided AI clients. Unless bypassed, replays
+     * the cached completion of the best ranked client that has one. Otherwise, sweeps through the clients, as ranked by
+     * the scheduler, until one successfully acquires rate limit permits. Between sweeps, no thread waits: the next one
+     * is scheduled for when the first adaptive rate limiter could grant a permission, and at least the rotation
+     * debounce later.
      *
-     * @param payload    the symbol payloads to generate recommendations for
-     * @param clients    the AI clients to use (must share the same chunk size)
-     * @param useOldNews whether to use old news or filter by recent dates
-     * @return set of recommendations
-     * @throws ClientException  if the AI client request fails
-     * @throws MappingException if mapping the response fails
+     * @param payload           the symbol payloads to generate recommendations for
+     * @param clients           the AI clients to use (must share the same chunk size)
+     * @param useOldNews        whether to use old news or filter by recent dates
+     * @param bypassCache       whether to request fresh completions even if cached ones exist, which are still cached
+     * @param onRecommendations receives the recommendations as soon as they are mapped: one by one from clients that
+     *                          stream, all at once otherwise. Those received stand even if the returned future fails
+     * @return set of recommendations, failing with {@link ClientException} if the AI client request or the mapping of
+     * its response fails
      */
-    public Set<RecommendationDomain> getRecommendations(Set<DataManager.SymbolPayload> payload,
-                                                        OrderedIndexedSet<AiClient> clients,
-                                                        boolean useOldNews) throws ClientException, MappingException {
+    public CompletableFuture<Set<RecommendationDomain>> getRecommendationsAsync(
+            Set<DataManager.SymbolPayload> payload,
+            OrderedIndexedSet<AiClient> clients,
+            boolean useOldNews,
+            boolean bypassCache,
+            Consumer<Set<RecommendationDomain>> onRecommendations) {
         Set<AssetReportRaw> reports =
                 payload.stream().map(assertReportDataProvider::provide).collect(Collectors.toUnmodifiableSet());
         ObjectNode rawReportMessage =
@@ -111,51 +154,318 @@ public class RecommendationChatCompletionClient {
                                         ZonedDateTime.now(NY_ZONE)
                                                 .format(DateTimeFormatter.ofPattern("EEEE, yyyy-MM-dd HH:mm:ss z",
                                                         Locale.ENGLISH))));
+        // the time of day would make retries of the same prompt miss the cache
+        ObjectNode cacheContextMessage = context.deepCopy()
+                .put(CONTENT, context.get(CONTENT).asString().replace("{date}", LocalDate.now(NY_ZONE).toString()));
         ObjectNode usedSystemMessage = useOldNews ? systemLongTermMessage : systemMessage;
 
         log.info(RETRIEVING_DATA_INFO, RECOMMENDATION, symbols);
-        AtomicReference<String> completion = new AtomicReference<>();
-
-        while (true) {
-            for (AiClient client : clients) {
-                try {
-                    ObjectNode reportMessage;
-                    if (Boolean.FALSE.equals(client.getConfig().fixMe())) {
-                        reportMessage = rawReportMessage;
+        CompletableFuture<Set<RecommendationDomain>> res = new CompletableFuture<>();
+        CompletionRequest request = new CompletionRequest(payload,
+                clients,
+                client -> OrderedIndexedSet.of(usedSystemMessage,
+                        contextMessage,
+                        fewShotMessage,
+                        reportMessage(client, rawReportMessage)),
+                client -> CompletionCache.key(client.getConfig().name(),
+                        List.of(usedSystemMessage,
+                                cacheContextMessage,
+                                fewShotMessage,
+                                reportMessage(client, rawReportMessage))),
+                onRecommendations);
+        sweeper.execute(() -> {
+            Optional<Set<RecommendationDomain>> replayed = bypassCache ? Optional.empty() : replay(request);
+            if (replayed.isPresent()) {
+                res.complete(replayed.get());
+            } else {
+                sweep(request, res);
+            }
+        });
+        return res;
+    }
+
+    /**
+     * Sweeps already scheduled still run when due, failing their requests rather than leaving them pending.
+     */
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdown();
+        sweepScheduler.shutdown();
+    }
+
+    private ObjectNode reportMessage(AiClient client, ObjectNode rawReportMessage) {
+        if (Boolean.FALSE.equals(client.getConfig().fixMe())) {
+            return rawReportMessage;
+        }
+        return objectMapper.readValue(fixMeMessage.get(CONTENT)
+                .asString()
+                .replace("{placeholder}", rawReportMessage.get(CONTENT).asString()), ObjectNode.class);
+    }
+
+    /**
+     * Cached completions skip the rate limiters, as they cost no request.
+     *
+     * @return the recommendations mapped from the cached completion of the best ranked client that has one, if any
+     */
+    private Optional<Set<RecommendationDomain>> replay(CompletionRequest request) {
+        for (AiClient client : scheduler.rank(request.clients())) {
+            try {
+                Optional<String> cached = completionCache.get(request.cacheKeyFor().apply(client));
+                if (cached.isEmpty()) {
+                    continue;
+                }
+                Set<RecommendationDomain> res = mapper.mapAll(request.payload(),
+                        objectMapper.readTree(cached.get()),
+                        message(request.promptFor().apply(client)),
+                        client.getConfig().name());
+                log.info(COMPLETION_REPLAYED_INFO, client.getConfig().name());
+                request.onRecommendations().accept(res);
+                return Optional.of(res);
+            } catch (Exception e) {
+                log.warn(COMPLETION_REPLAY_FAILED_WARN, client.getConfig().name(), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void sweep(CompletionRequest request, CompletableFuture<Set<RecommendationDomain>> res) {
+        try {
+            Optional<CompletableFuture<Set<RecommendationDomain>>> pending = tryClients(request);
+            if (pending.isPresent()) {
+                pending.get().whenComplete((recommendations, e) -> {
+                    if (null == e) {
+                        res.complete(recommendations);
                     } else {
-                        reportMessage = objectMapper.readValue(fixMeMessage.get(CONTENT)
-                                .asString()
-                                .replace("{placeholder}", rawReportMessage.get(CONTENT).asString()), ObjectNode.class);
-                    }
-                    OrderedIndexedSet<JsonNode> prompt =
-                            OrderedIndexedSet.of(usedSystemMessage, contextMessage, fewShotMessage, reportMessage);
-                    Optional<Set<RecommendationDomain>> res = client.getMoreRestrictiveRateLimiter()
-                            .tryCall(() -> client.getLessRestrictiveRateLimiter().call(() -> {
-                                if (null != client.getApiKeyRateLimiter()) {
-                                    client.getApiKeyRateLimiter().acquirePermission();
-                                }
-                                log.info(PROMPTING_MODEL_INFO, client.getConfig().name());
-                                completion.set(client.complete(prompt));
-                                return mapper.mapAll(payload,
-                                        objectMapper.readTree(completion.get()),
-                                        prompt.stream()
-                                                .map(p -> sanitizeHtml(p.get(CONTENT).asString()))
-                                                .collect(Collectors.joining("\n\n\n")),
-                                        client.getConfig().name());
-                            }));
-                    if (res.isPresent()) {
-                        return res.get();
+                        res.completeExceptionally(e);
                     }
+                });
+                return;
+            }
+            sweepScheduler.schedule(() -> resume(request, res),
+                    untilNextPermission(request.clients()).toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (ClientException e) {
+            res.completeExceptionally(e);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            res.completeExceptionally(new ClientException(e));
+        }
+    }
 
-                    Interrupts.runOrSwallow(() -> Thread.sleep(CLIENT_ROTATION_DEBOUNCE_MS),
-                            e -> log.error(e.getMessage(), e));
-                } catch (ClientException e) {
-                    throw e;
-                } catch (Exception e) {
-                    throw new ClientException(MessageFormat.format(RECOMMENDATION_COMPLETION_ERROR, completion.get()),
-                            e);
+    private void resume(CompletionRequest request, CompletableFuture<Set<RecommendationDomain>> res) {
+        try {
+            sweeper.execute(() -> sweep(request, res));
+        } catch (RejectedExecutionException e) {
+            res.completeExceptionally(new ClientException(e));
+        }
+    }
+
+    /**
+     * A client is only tried while it has a free concurrency permit, which its completion holds until the response
+     * ends.
+     *
+     * @return the pending recommendations of the first client to acquire rate limit permits, if any, failing with
+     * {@link ClientException}
+     */
+    private Optional<CompletableFuture<Set<RecommendationDomain>>> tryClients(CompletionRequest request)
+            throws ClientException {
+        for (AiClient client : scheduler.rank(request.clients())) {
+            Semaphore concurrency = concurrencyPermits.computeIfAbsent(client,
+                    c -> new Semaphore(c.getConfig().concurrentRequests()));
+            if (!concurrency.tryAcquire()) {
+                continue;
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    concurrency.release();
+                }
+            };
+            AtomicReference<String> completion = new AtomicReference<>();
+            boolean sent = false;
+            try {
+                if (!client.getAdaptiveRateLimiter().tryAcquirePermission()) {
+                    continue;
                 }
+                OrderedIndexedSet<JsonNode> prompt = request.promptFor().apply(client);
+                Optional<CompletableFuture<Set<RecommendationDomain>>> pending = client.getMoreRestrictiveRateLimiter()
+                        .tryCall(() -> client.getLessRestrictiveRateLimiter()
+                                .call(() -> complete(client, prompt, request, completion, release)));
+                if (pending.isPresent()) {
+                    sent = true;
+                    CompletableFuture<Set<RecommendationDomain>> res = new CompletableFuture<>();
+                    pending.get().whenComplete((recommendations, e) -> {
+                        if (null == e) {
+                            res.complete(recommendations);
+                        } else {
+                            res.completeExceptionally(failure(e, completion));
+                        }
+                    });
+                    return Optional.of(res);
+                }
+                // no request was sent, so the pacing slot is not spent
+                client.getAdaptiveRateLimiter().releasePermission();
+            } catch (ClientException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ClientException(MessageFormat.format(RECOMMENDATION_COMPLETION_ERROR, completion.get()), e);
+            } finally {
+                if (!sent) {
+                    release.run();
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Only sends the request, so that the rate limiters see the call end as soon as it is sent rather than parking
+     * until the completion arrives. The response is handled on a virtual thread, since handing the recommendations
+     * over may block.
+     *
+     * @param release releases the concurrency permit, once the response ends
+     */
+    private CompletableFuture<Set<RecommendationDomain>> complete(AiClient client,
+                                                                  OrderedIndexedSet<JsonNode> prompt,
+                                                                  CompletionRequest request,
+                                                                  AtomicReference<String> completion,
+                                                                  Runnable release) throws Exception {
+        if (null != client.getApiKeyRateLimiter()) {
+            client.getApiKeyRateLimiter().acquirePermission();
+        }
+        log.info(PROMPTING_MODEL_INFO, client.getConfig().name());
+        String message = message(prompt);
+        scheduler.begin(client);
+        long start = System.nanoTime();
+        try {
+            if (Boolean.TRUE.equals(client.getConfig().stream())) {
+                Flux<String> texts = client.streamAsync(prompt).doFinally(_ -> release.run());
+                return CompletableFuture.supplyAsync(() ->
+                        completeStreaming(client, texts, request, completion, message, start), sweeper);
+            }
+            return client.completeAsync(prompt)
+                    .doFinally(_ -> release.run())
+                    .toFuture()
+                    .handleAsync((text, e) -> onCompletion(client, request, completion, message, start, text, e),
+                            sweeper);
+        } catch (RuntimeException e) {
+            // thrown synchronously as well, which must still end the call begun above
+            scheduler.recordError(client, Duration.ofNanos(System.nanoTime() - start));
+            throw new ClientException(e);
+        }
+    }
+
+    private Set<RecommendationDomain> onCompletion(AiClient client,
+                                                   CompletionRequest request,
+                                                   AtomicReference<String> completion,
+                                                   String message,
+                                                   long start,
+                                                   String text,
+                                                   Throwable error) {
+        if (null != error) {
+            scheduler.recordError(client, Duration.ofNanos(System.nanoTime() - start));
+            throw error instanceof CompletionException completionException
+                    ? completionException
+                    : new CompletionException(error);
+        }
+        completion.set(text);
+        Set<RecommendationDomain> res;
+        try {
+            res = mapper.mapAll(request.payload(), objectMapper.readTree(text), message, client.getConfig().name());
+        } catch (Exception e) {
+            scheduler.recordMappingFailure(client, Duration.ofNanos(System.nanoTime() - start));
+            throw new CompletionException(e);
+        }
+        scheduler.recordSuccess(client, Duration.ofNanos(System.nanoTime() - start));
+        cache(client, request, text);
+        request.onRecommendations().accept(res);
+        return res;
+    }
+
+    /**
+     * Hands each recommendation over from this virtual thread as soon as it is mapped, rather than from the thread
+     * reading the response, which must not block on the consumer.
+     */
+    private Set<RecommendationDomain> completeStreaming(AiClient client,
+                                                        Flux<String> texts,
+                                                        CompletionRequest request,
+                                                        AtomicReference<String> completion,
+                                                        String message,
+                                                        long start) {
+        StringBuilder text = new StringBuilder();
+        Set<RecommendationDomain> res = new HashSet<>();
+        try {
+            for (RecommendationDomain recommendation : mapper.mapStream(request.payload(),
+                    texts.doOnNext(text::append),
+                    message,
+                    client.getConfig().name()).toIterable()) {
+                res.add(recommendation);
+                request.onRecommendations().accept(Set.of(recommendation));
             }
+        } catch (RuntimeException e) {
+            completion.set(text.toString());
+            Throwable cause = Exceptions.unwrap(e);
+            if (cause instanceof MappingException) {
+                scheduler.recordMappingFailure(client, Duration.ofNanos(System.nanoTime() - start));
+            } else {
+                scheduler.recordError(client, Duration.ofNanos(System.nanoTime() - start));
+            }
+            throw new CompletionException(cause);
         }
+        scheduler.recordSuccess(client, Duration.ofNanos(System.nanoTime() - start));
+        // as the blocking completion is sanitized, so that replaying either maps alike
+        cache(client, request, client.sanitize(text.toString()));
+        return res;
+    }
+
+    /**
+     * @return the failure of a completion as the returned future reports it
+     */
+    private static ClientException failure(Throwable e, AtomicReference<String> completion) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && null != cause.getCause()) {
+            cause = cause.getCause();
+        }
+        return cause instanceof ClientException clientException
+                ? clientException
+                : new ClientException(MessageFormat.format(RECOMMENDATION_COMPLETION_ERROR, completion.get()), cause);
+    }
+
+    /**
+     * The recommendations stand whether the completion is cached or not.
+     */
+    private void cache(AiClient client, CompletionRequest request, String completion) {
+        try {
+            completionCache.put(request.cacheKeyFor().apply(client), completion);
+        } catch (Exception e) {
+            log.warn(COMPLETION_CACHING_FAILED_WARN, client.getConfig().name(), e);
+        }
+    }
+
+    private static String message(OrderedIndexedSet<JsonNode> prompt) {
+        return prompt.stream()
+                .map(p -> sanitizeHtml(p.get(CONTENT).asString()))
+                .collect(Collectors.joining("\n\n\n"));
+    }
+
+    /**
+     * While every client is quarantined, the next sweep waits for the first one to be due for a probe.
+     */
+    private Duration untilNextPermission(Collection<AiClient> clients) {
+        Duration debounce = Duration.ofMillis(CLIENT_ROTATION_DEBOUNCE_MS);
+        Duration quarantine = scheduler.untilAvailable(clients);
+        return scheduler.rank(clients)
+                .stream()
+                .map(c -> c.getAdaptiveRateLimiter().timeUntilPermission())
+                .map(d -> 0 > d.compareTo(debounce) ? debounce : d)
+                .min(Comparator.naturalOrder())
+                .orElse(0 > quarantine.compareTo(debounce) ? debounce : quarantine);
+    }
+
+    private record CompletionRequest(Set<DataManager.SymbolPayload> payload,
+                                     OrderedIndexedSet<AiClient> clients,
+                                     Function<AiClient, OrderedIndexedSet<JsonNode>> promptFor,
+                                     Function<AiClient, String> cacheKeyFor,
+                                     Consumer<Set<RecommendationDomain>> onRecommendations) {
     }
 }
@@ -0,0 +1,7 @@
+ALTER TABLE market_data
+    ADD COLUMN ema12 NUMERIC(19, 8),
+    ADD COLUMN ema20 NUMERIC(19, 8),
+    ADD COLUMN ema26 NUMERIC(19, 8),
+    ADD COLUMN macd NUMERIC(19, 8),
+    ADD COLUMN signal_line NUMERIC(19, 8),
+    ADD COLUMN obv BIGINT;
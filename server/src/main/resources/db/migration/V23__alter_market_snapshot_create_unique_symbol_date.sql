@@ -0,0 +1,8 @@
+DELETE FROM market_snapshot ms
+USING market_snapshot newer
+WHERE ms.symbol_id = newer.symbol_id
+  AND ms.date = newer.date
+  AND ms.id < newer.id;
+
+ALTER TABLE market_snapshot
+  ADD CONSTRAINT uq_market_snapshot_symbol_date UNIQUE (symbol_id, date);
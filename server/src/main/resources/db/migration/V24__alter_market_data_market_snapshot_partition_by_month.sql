@@ -0,0 +1,103 @@
+-- Monthly partitions are named <table>_pYYYY_MM. Rows outside of them land in <table>_default
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent TEXT, from_date DATE, to_date DATE)
+  RETURNS INTEGER
+  LANGUAGE plpgsql
+AS $$
+DECLARE
+  month_start    DATE := date_trunc('month', from_date)::DATE;
+  partition_name TEXT;
+  created        INTEGER := 0;
+BEGIN
+  WHILE month_start <= to_date LOOP
+    partition_name := format('%s_p%s', parent, to_char(month_start, 'YYYY_MM'));
+    IF to_regclass(partition_name) IS NULL THEN
+      EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                     partition_name,
+                     parent,
+                     month_start,
+                     (month_start + INTERVAL '1 month')::DATE);
+      created := created + 1;
+    END IF;
+    month_start := (month_start + INTERVAL '1 month')::DATE;
+  END LOOP;
+  RETURN created;
+END;
+$$;
+
+-- Foreign keys cannot reference a partitioned table by a key lacking the partition column, so ON DELETE SET NULL is
+-- replaced by a trigger. Dropped partitions release their recommendations beforehand
+ALTER TABLE recommendation
+  DROP CONSTRAINT fk_recommendation_market_data;
+
+ALTER TABLE market_data
+  RENAME TO market_data_unpartitioned;
+
+CREATE TABLE market_data (
+  LIKE market_data_unpartitioned INCLUDING DEFAULTS
+) PARTITION BY RANGE (trade_date);
+
+ALTER SEQUENCE market_data_id_seq
+  OWNED BY market_data.id;
+
+SELECT create_monthly_partitions('market_data',
+                                 COALESCE((SELECT min(trade_date) FROM market_data_unpartitioned), CURRENT_DATE),
+                                 (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+CREATE TABLE market_data_default PARTITION OF market_data DEFAULT;
+
+INSERT INTO market_data
+  SELECT * FROM market_data_unpartitioned;
+
+DROP TABLE market_data_unpartitioned;
+
+ALTER TABLE market_data
+  ADD CONSTRAINT market_data_pkey PRIMARY KEY (id, trade_date),
+  ADD CONSTRAINT uk_market_data_symbolid_date UNIQUE (symbol_id, trade_date),
+  ADD CONSTRAINT fk_market_data_symbol FOREIGN KEY (symbol_id) REFERENCES symbol(id);
+
+CREATE OR REPLACE FUNCTION unlink_recommendation_market_data()
+  RETURNS TRIGGER
+  LANGUAGE plpgsql
+AS $$
+BEGIN
+  UPDATE recommendation r
+  SET market_data_id = NULL
+  FROM deleted d
+  WHERE r.market_data_id = d.id;
+  RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_market_data_unlink_recommendation
+  AFTER DELETE ON market_data
+  REFERENCING OLD TABLE AS deleted
+  FOR EACH STATEMENT
+  EXECUTE FUNCTION unlink_recommendation_market_data();
+
+ALTER TABLE market_snapshot
+  RENAME TO market_snapshot_unpartitioned;
+
+CREATE TABLE market_snapshot (
+  LIKE market_snapshot_unpartitioned INCLUDING DEFAULTS
+) PARTITION BY RANGE (date);
+
+ALTER SEQUENCE market_snapshot_id_seq
+  OWNED BY market_snapshot.id;
+
+SELECT create_monthly_partitions('market_snapshot',
+                                 COALESCE((SELECT min(date)::DATE FROM market_snapshot_unpartitioned), CURRENT_DATE),
+                                 (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+CREATE TABLE market_snapshot_default PARTITION OF market_snapshot DEFAULT;
+
+INSERT INTO market_snapshot
+  SELECT * FROM market_snapshot_unpartitioned;
+
+DROP TABLE market_snapshot_unpartitioned;
+
+ALTER TABLE market_snapshot
+  ADD CONSTRAINT market_snapshot_pkey PRIMARY KEY (id, date),
+  ADD CONSTRAINT uq_market_snapshot_symbol_date UNIQUE (symbol_id, date),
+  ADD CONSTRAINT market_snapshot_symbol_id_fkey FOREIGN KEY (symbol_id) REFERENCES symbol(id)
+    ON UPDATE CASCADE
+    ON DELETE RESTRICT;
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS news_sentiment (
+  content_hash         VARCHAR(64)    PRIMARY KEY,
+  sentiment            VARCHAR(8)     NOT NULL,
+  sentiment_confidence NUMERIC(15, 4) NOT NULL,
+  analyzed_at          TIMESTAMP      NOT NULL
+);
+
+CREATE INDEX idx_news_sentiment_analyzed_at
+  ON news_sentiment(analyzed_at);
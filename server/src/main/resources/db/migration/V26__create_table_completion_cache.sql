@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS completion_cache (
+  prompt_hash  VARCHAR(64) PRIMARY KEY,
+  completion   TEXT        NOT NULL,
+  completed_at TIMESTAMP   NOT NULL
+);
+
+CREATE INDEX idx_completion_cache_completed_at
+  ON completion_cache(completed_at);
@@ -0,0 +1,48 @@
+-- A partition cannot be created over rows the default partition already holds in its range, so those are moved into
+-- it before it is attached. Direct deletions from the default partition do not fire the statement triggers of the
+-- parent, so the moved rows keep their recommendations
+CREATE OR REPLACE FUNCTION create_monthly_partitions(parent TEXT, from_date DATE, to_date DATE)
+  RETURNS INTEGER
+  LANGUAGE plpgsql
+AS $$
+DECLARE
+  month_start       DATE := date_trunc('month', from_date)::DATE;
+  month_end         DATE;
+  partition_name    TEXT;
+  default_partition TEXT := format('%s_default', parent);
+  partition_column  TEXT;
+  created           INTEGER := 0;
+BEGIN
+  SELECT a.attname
+  INTO partition_column
+  FROM pg_partitioned_table p
+  JOIN pg_attribute a ON a.attrelid = p.partrelid AND a.attnum = p.partattrs[0]
+  WHERE p.partrelid = to_regclass(parent);
+
+  WHILE month_start <= to_date LOOP
+    month_end := (month_start + INTERVAL '1 month')::DATE;
+    partition_name := format('%s_p%s', parent, to_char(month_start, 'YYYY_MM'));
+    IF to_regclass(partition_name) IS NULL THEN
+      EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', partition_name, parent);
+      IF to_regclass(default_partition) IS NOT NULL THEN
+        EXECUTE format('WITH moved AS (DELETE FROM %I WHERE %I >= %L AND %I < %L RETURNING *) '
+                         || 'INSERT INTO %I SELECT * FROM moved',
+                       default_partition,
+                       partition_column,
+                       month_start,
+                       partition_column,
+                       month_end,
+                       partition_name);
+      END IF;
+      EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                     parent,
+                     partition_name,
+                     month_start,
+                     month_end);
+      created := created + 1;
+    END IF;
+    month_start := month_end;
+  END LOOP;
+  RETURN created;
+END;
+$$;
@@ -1,8 +1,12 @@
+from typing import List
+
 # noinspection PyUnresolvedReferences
 from fastapi import FastAPI, Body
 # noinspection PyUnresolvedReferences
 from transformers import pipeline
 
+BATCH_SIZE = 32
+
 app = FastAPI()
 sentiment = pipeline("sentiment-analysis", model="ProsusAI/finbert")
 
@@ -11,3 +15,9 @@ sentiment = pipeline("sentiment-analysis", model="ProsusAI/finbert")
 async def analyze(text: str = Body(..., media_type="text/plain")):
     result = sentiment(text)[0]
     return {"label": result["label"], "score": result["score"]}
+
+
+@app.post("/analyze/batch")
+async def analyze_batch(texts: List[str] = Body(...)):
+    results = sentiment(texts, batch_size=BATCH_SIZE, truncation=True)
+    return [{"label": result["label"], "score": result["score"]} for result in results]
@@ -2,7 +2,12 @@ package com.lucas.server;
 
 import com.lucas.server.components.tradingbot.marketdata.jpa.MarketDataJpaService;
 import com.lucas.server.components.tradingbot.marketdata.jpa.MarketDataRepository;
+import com.lucas.server.components.tradingbot.marketdata.service.KpiCache;
 import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator;
+import com.lucas.server.components.tradingbot.news.service.SentimentCache;
+import com.lucas.server.components.tradingbot.recommendation.service.CompletionCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.context.jdbc.Sql;
@@ -19,4 +24,23 @@ public abstract class ConfiguredTest extends BaseTest {
 
     @MockitoSpyBean
     protected MarketDataRepository marketDataRepository;
+
+    @Autowired
+    private KpiCache kpiCache;
+
+    @Autowired
+    private SentimentCache sentimentCache;
+
+    @Autowired
+    private CompletionCache completionCache;
+
+    @BeforeEach
+    void clearCaches() {
+        // identities restart with the tables, so cached keys would match the next test's data
+        kpiCache.clear();
+        // persisted sentiments are truncated along with the tables
+        sentimentCache.clear();
+        // so are persisted completions, which would otherwise still be replayed from memory
+        completionCache.clear();
+    }
 }
@@ -0,0 +1,39 @@
+package com.lucas.server.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedLruMapTest {
+
+    @Test
+    void whenBoundIsExceeded_thenLeastRecentlyUsedIsEvicted() {
+        // given
+        BoundedLruMap<String, Integer> map = new BoundedLruMap<>(2);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.get("a");
+
+        // when
+        map.put("c", 3);
+
+        // then
+        assertThat(map).containsOnlyKeys("a", "c");
+        assertThat(map.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void whenCleared_thenEvictionsAreReset() {
+        // given
+        BoundedLruMap<String, Integer> map = new BoundedLruMap<>(1);
+        map.put("a", 1);
+        map.put("b", 2);
+
+        // when
+        map.clear();
+
+        // then
+        assertThat(map).isEmpty();
+        assertThat(map.getEvictions()).isZero();
+    }
+}
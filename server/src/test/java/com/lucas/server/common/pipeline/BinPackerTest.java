@@ -0,0 +1,44 @@
+package com.lucas.server.common.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinPackerTest {
+
+    @Test
+    void whenItemsAreAdded_thenBinsStayUnderSizeAndWeight() {
+        // given
+        BinPacker<Integer> packer = new BinPacker<>(() -> 3, Integer::intValue, () -> 10, 4);
+        List<List<Integer>> closed = new ArrayList<>();
+
+        // when
+        for (int weight : List.of(6, 6, 3, 1, 4, 1, 12)) {
+            closed.addAll(packer.add(weight));
+        }
+        closed.addAll(packer.drain());
+
+        // then
+        assertThat(closed).containsExactlyInAnyOrder(List.of(6, 3, 1), List.of(6, 4), List.of(1), List.of(12));
+    }
+
+    @Test
+    void whenNoMoreBinsCanBeOpened_thenHeaviestIsClosed() {
+        // given
+        BinPacker<Integer> packer = new BinPacker<>(() -> 5, Integer::intValue, () -> 10, 2);
+
+        // when
+        List<List<Integer>> first = packer.add(8);
+        List<List<Integer>> second = packer.add(7);
+        List<List<Integer>> third = packer.add(9);
+
+        // then
+        assertThat(first).isEmpty();
+        assertThat(second).isEmpty();
+        assertThat(third).containsExactly(List.of(8));
+        assertThat(packer.drain()).containsExactly(List.of(7), List.of(9));
+    }
+}
@@ -0,0 +1,108 @@
+package com.lucas.server.common.pipeline;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(registry);
+
+    @Test
+    void whenStagesFailTransiently_thenOnlyFailedItemsAreRetried() {
+        // given
+        Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        Pipeline<Integer, String> pipeline = Pipeline.<Integer>builder("test", 2, metrics)
+                .<Integer>stage("double", 4, 3, (item, downstream) -> {
+                    if (1 == attempts.computeIfAbsent(item, _ -> new AtomicInteger()).incrementAndGet()
+                        && 0 == item % 3) {
+                        throw new IllegalStateException();
+                    }
+                    downstream.accept(item * 2);
+                })
+                .<String>batchStage("format", 2, 3, () -> 4, (items, downstream) -> {
+                    items.forEach(i -> downstream.accept(String.valueOf(i)));
+                    return List.of();
+                })
+                .build();
+
+        // when
+        List<String> res = pipeline.run(IntStream.range(0, 10).boxed().toList());
+
+        // then
+        assertThat(res).containsExactlyInAnyOrder("0", "2", "4", "6", "8", "10", "12", "14", "16", "18");
+        assertThat(attempts).allSatisfy((item, count) -> assertThat(count).hasValue(0 == item % 3 ? 2 : 1));
+        assertThat(registry.get("pipeline.stage.items").tags("stage", "double", "outcome", "retried").counter().count())
+                .isEqualTo(4);
+    }
+
+    @Test
+    void whenItemAlwaysFails_thenItIsDroppedAfterMaxAttempts() {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>builder("test", 2, metrics)
+                .<Integer>batchStage("odd", 1, 3, () -> 2, (items, downstream) -> {
+                    attempts.incrementAndGet();
+                    items.stream().filter(i -> 0 != i % 2).forEach(downstream);
+                    return items.stream().filter(i -> 0 == i % 2).toList();
+                })
+                .build();
+
+        // when
+        List<Integer> res = pipeline.run(List.of(1, 2, 3));
+
+        // then
+        assertThat(res).containsExactlyInAnyOrder(1, 3);
+        assertThat(registry.get("pipeline.stage.items").tags("stage", "odd", "outcome", "dropped").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("pipeline.stage.queue.depth").tags("stage", "odd").gauge().value()).isZero();
+    }
+
+    @Test
+    void whenAsyncStageIsPending_thenItsPermitIsHeldUntilItCompletes() {
+        // given
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>builder("test", 2, metrics)
+                .<Integer>asyncBatchStage("async",
+                        2,
+                        2,
+                        () -> 1,
+                        _ -> 0,
+                        () -> Integer.MAX_VALUE,
+                        (items, downstream) -> {
+                            maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+                            Integer item = items.getFirst();
+                            return CompletableFuture.supplyAsync(() -> {
+                                pending.decrementAndGet();
+                                if (1 == attempts.computeIfAbsent(item, _ -> new AtomicInteger()).incrementAndGet()
+                                    && 0 == item % 2) {
+                                    throw new IllegalStateException();
+                                }
+                                downstream.accept(item);
+                                return List.<Integer>of();
+                            }, CompletableFuture.delayedExecutor(10, TimeUnit.MILLISECONDS));
+                        })
+                .build();
+
+        // when
+        List<Integer> res = pipeline.run(IntStream.range(0, 6).boxed().toList());
+
+        // then: failed completions are retried, and no more batches than permits are ever pending
+        assertThat(res).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5);
+        assertThat(maxPending).hasValueBetween(1, 2);
+        assertThat(registry.get("pipeline.stage.items").tags("stage", "async", "outcome", "retried").counter().count())
+                .isEqualTo(3);
+    }
+}
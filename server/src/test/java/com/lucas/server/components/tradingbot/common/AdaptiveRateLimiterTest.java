@@ -0,0 +1,82 @@
+package com.lucas.server.components.tradingbot.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveRateLimiterTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-05T14:30:00Z");
+
+    private final AdaptiveRateLimiter limiter =
+            new AdaptiveRateLimiter("test", 10, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void whenThrottled_thenRateIsHalvedAndRequestsPaused() {
+        // given
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "30");
+
+        // when
+        limiter.onThrottled(headers);
+
+        // then
+        assertThat(limiter.getRequestsPerMinute()).isEqualTo(5);
+        assertThat(limiter.tryAcquirePermission()).isFalse();
+        assertThat(limiter.timeUntilPermission()).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void whenResponsesFollowThrottling_thenRateRecoversUpToConfiguredOne() {
+        // given
+        HttpHeaders throttled = new HttpHeaders();
+        throttled.set("x-ratelimit-reset", String.valueOf(NOW.minusSeconds(1).toEpochMilli()));
+        limiter.onThrottled(throttled);
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            limiter.onResponse(new HttpHeaders());
+        }
+
+        // then
+        assertThat(limiter.getRequestsPerMinute()).isEqualTo(10);
+        assertThat(limiter.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void whenPermissionIsReleased_thenNextOneIsNotSpaced() {
+        // given
+        HttpHeaders throttled = new HttpHeaders();
+        throttled.set("x-ratelimit-reset", String.valueOf(NOW.minusSeconds(1).toEpochMilli()));
+        limiter.onThrottled(throttled);
+        assertThat(limiter.tryAcquirePermission()).isTrue();
+        assertThat(limiter.tryAcquirePermission()).isFalse();
+
+        // when
+        limiter.releasePermission();
+
+        // then
+        assertThat(limiter.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void whenNoRequestsRemain_thenRequestsArePausedUntilReset() {
+        // given
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-remaining-requests", "0");
+        headers.set("x-ratelimit-reset-requests", "1m30s");
+
+        // when
+        limiter.onResponse(headers);
+
+        // then
+        assertThat(limiter.getRequestsPerMinute()).isEqualTo(10);
+        assertThat(limiter.tryAcquirePermission()).isFalse();
+    }
+}
@@ -0,0 +1,137 @@
+package com.lucas.server.components.tradingbot.common;
+
+import com.lucas.server.components.tradingbot.config.AiProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AiClientSchedulerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-05T14:30:00Z"));
+    private final AiClientScheduler scheduler = new AiClientScheduler(clock);
+    private final AiClient slow = client("slow");
+    private final AiClient fast = client("fast");
+    private final AiClient unknown = client("unknown");
+
+    @Test
+    void whenClientsPerformDifferently_thenBestExpectedCompletionIsRankedFirst() {
+        // given
+        scheduler.recordSuccess(slow, Duration.ofSeconds(20));
+        scheduler.recordSuccess(fast, Duration.ofSeconds(15));
+        scheduler.recordMappingFailure(fast, Duration.ofSeconds(15));
+        scheduler.recordSuccess(fast, Duration.ofSeconds(10));
+
+        // when
+        List<AiClient> ranked = scheduler.rank(List.of(slow, fast, unknown));
+
+        // then
+        assertThat(ranked).containsExactly(unknown, fast, slow);
+    }
+
+    @Test
+    void whenClientKeepsFailing_thenItIsQuarantinedUntilProbeSucceeds() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            scheduler.begin(slow);
+            scheduler.recordError(slow, Duration.ofSeconds(1));
+        }
+
+        // when
+        List<AiClient> quarantined = scheduler.rank(List.of(slow, fast));
+        clock.advance(Duration.ofMinutes(1));
+        List<AiClient> dueForProbe = scheduler.rank(List.of(slow, fast));
+        scheduler.begin(slow);
+        List<AiClient> probing = scheduler.rank(List.of(slow, fast));
+        scheduler.recordSuccess(slow, Duration.ofSeconds(1));
+        List<AiClient> recovered = scheduler.rank(List.of(slow, fast));
+
+        // then
+        assertThat(quarantined).containsExactly(fast);
+        assertThat(dueForProbe).contains(slow);
+        assertThat(probing).containsExactly(fast);
+        assertThat(recovered).contains(slow);
+    }
+
+    @Test
+    void whenEveryClientIsQuarantined_thenNoneIsRankedUntilTheFirstProbeIsDue() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            scheduler.begin(slow);
+            scheduler.recordError(slow, Duration.ofSeconds(1));
+        }
+        clock.advance(Duration.ofSeconds(20));
+        for (int i = 0; i < 3; i++) {
+            scheduler.begin(fast);
+            scheduler.recordError(fast, Duration.ofSeconds(1));
+        }
+
+        // when
+        List<AiClient> quarantined = scheduler.rank(List.of(slow, fast));
+        Duration untilAvailable = scheduler.untilAvailable(List.of(slow, fast));
+        clock.advance(untilAvailable);
+        List<AiClient> dueForProbe = scheduler.rank(List.of(slow, fast));
+
+        // then
+        assertThat(quarantined).isEmpty();
+        assertThat(untilAvailable).isEqualTo(Duration.ofSeconds(40));
+        assertThat(dueForProbe).containsExactly(slow);
+        assertThat(scheduler.untilAvailable(List.of(slow, fast))).isZero();
+    }
+
+    private static AiClient client(String name) {
+        AiClient client = mock(AiClient.class);
+        when(client.getConfig()).thenReturn(new AiProperties.DeploymentProperties(name,
+                "key",
+                null,
+                "model",
+                null,
+                null,
+                null,
+                10,
+                2,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null));
+        return client;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import static org.mockito.Mockito.verify;
 
 @TestPropertySource(properties = {
         "scheduler.market-data-cron=* * * * * *",
+        "scheduler.partition-maintenance-cron=* * * * * *",
         "scheduler.news-recommendations-cron=* * * * * *",
         "scheduler.recommendation-inference-five-cron=* * * * * *",
         "scheduler.recommendation-inference-fifteen-cron=* * * * * *"})
@@ -71,8 +72,10 @@ class DailySchedulerTest extends ConfiguredTest {
                     anyBoolean(),
                     anyBoolean(),
                     anyBoolean(),
+                    anyBoolean(),
                     anyBoolean());
             verify(dataManager, times(2)).retrieveSnapshotsByName(any());
+            verify(dataManager, times(1)).createPartitions(anyInt());
         });
     }
 
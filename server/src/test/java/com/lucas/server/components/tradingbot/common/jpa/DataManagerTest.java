@@ -0,0 +1,242 @@
+package com.lucas.server.components.tradingbot.common.jpa;
+
+import com.lucas.server.ConfiguredTest;
+import com.lucas.server.common.exception.ClientException;
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.service.FinnhubMarketDataClient;
+import com.lucas.server.components.tradingbot.marketdata.service.TwelveDataMarketDataClient;
+import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import com.lucas.server.components.tradingbot.news.jpa.NewsJpaService;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.lucas.server.common.Constants.FIXED_DATE;
+import static com.lucas.server.common.Constants.MarketDataType;
+import static com.lucas.server.common.Constants.NY_ZONE;
+import static com.lucas.server.common.Constants.toPastOrFutureTradeDate;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@TestPropertySource(properties = {"market-data.concurrent-ingestion=true",
+        "market-data.persistence-batch-size=2",
+        "retention.chunk-size=1"})
+class DataManagerTest extends ConfiguredTest {
+
+    @MockitoBean
+    private TwelveDataMarketDataClient twelveDataMarketDataClient;
+
+    @MockitoBean
+    private FinnhubMarketDataClient finnhubMarketDataClient;
+
+    @Autowired
+    private DataManager dataManager;
+
+    @Autowired
+    private SymbolJpaService symbolService;
+
+    @Autowired
+    private NewsJpaService newsService;
+
+    @Test
+    void whenRetrieveMarketDataConcurrently_thenFailingSymbolsAreSkipped() throws Exception {
+        // given: batches are grouped in name order, so NVDA shares its batch with AAPL
+        when(twelveDataMarketDataClient.getBatchSize()).thenReturn(2);
+        when(twelveDataMarketDataClient.retrieveMarketData(anySet(), eq(MarketDataType.LAST)))
+                .thenAnswer(invocation -> {
+                    Set<SymbolDomain> symbols = invocation.getArgument(0);
+                    return symbols.stream()
+                            .filter(s -> !"NVDA".equals(s.getName()))
+                            .collect(Collectors.toMap(Function.identity(), s -> OrderedIndexedSet.of(md(s))));
+                });
+        when(finnhubMarketDataClient.retrieveMarketData(argThat(s -> "NVDA".equals(s.getName()))))
+                .thenThrow(new ClientException(new IllegalStateException()));
+
+        // when
+        Set<MarketDataDomain> retrieved =
+                dataManager.retrieveMarketData(Set.of("AAPL", "NVDA", "TSLA"), MarketDataType.LAST, false);
+
+        // then
+        verify(twelveDataMarketDataClient).retrieveMarketData(
+                argThat((Set<SymbolDomain> s) -> s.stream().map(SymbolDomain::getName).collect(Collectors.toSet())
+                        .equals(Set.of("AAPL", "NVDA"))),
+                eq(MarketDataType.LAST));
+        assertThat(retrieved).extracting(md -> md.getSymbol().getName()).containsExactlyInAnyOrder("AAPL", "TSLA");
+        assertThat(marketDataService.findAll()).extracting(md -> md.getSymbol().getName())
+                .containsExactlyInAnyOrder("AAPL", "TSLA");
+    }
+
+    @Test
+    void whenPersistingChunkFails_thenEarlierChunksAreKept() throws Exception {
+        // given
+        when(twelveDataMarketDataClient.getBatchSize()).thenReturn(1);
+        when(twelveDataMarketDataClient.retrieveMarketData(anySet(), eq(MarketDataType.LAST)))
+                .thenAnswer(invocation -> {
+                    Set<SymbolDomain> symbols = invocation.getArgument(0);
+                    return symbols.stream()
+                            .collect(Collectors.toMap(Function.identity(), s -> OrderedIndexedSet.of(md(s))));
+                });
+        doCallRealMethod().doThrow(new IllegalStateException())
+                .when(marketDataService).createChunk(any(), anyBoolean());
+
+        // when & then: the first chunk stays committed
+        assertThatThrownBy(() -> dataManager.retrieveMarketData(Set.of("AAPL", "MSFT", "NVDA"),
+                MarketDataType.LAST,
+                false)).isInstanceOf(IllegalStateException.class);
+        assertThat(marketDataService.findAll()).hasSize(2);
+    }
+
+    @Test
+    void whenRetrieveHistoricIncrementally_thenOnlyMissingTradingDaysAreRequested() throws Exception {
+        // given
+        when(twelveDataMarketDataClient.getBatchSize()).thenReturn(3);
+        Set<SymbolDomain> symbols = symbolService.getOrCreateByName(Set.of("AAPL", "MSFT", "NVDA"));
+        SymbolDomain aapl = symbols.stream().filter(s -> "AAPL".equals(s.getName())).findFirst().orElseThrow();
+        SymbolDomain msft = symbols.stream().filter(s -> "MSFT".equals(s.getName())).findFirst().orElseThrow();
+        LocalDate endDate = toPastOrFutureTradeDate(LocalDate.now(NY_ZONE), 1, d -> d.minusDays(1));
+        LocalDate aaplLatest = toPastOrFutureTradeDate(endDate, 3, d -> d.minusDays(1));
+        marketDataService.createIgnoringDuplicates(OrderedIndexedSet.of(md(aapl).setDate(aaplLatest),
+                md(msft).setDate(endDate)));
+
+        // when
+        dataManager.retrieveMarketData(Set.of("AAPL", "MSFT", "NVDA"), MarketDataType.HISTORIC, false);
+
+        // then
+        verify(twelveDataMarketDataClient).retrieveMarketData(
+                argThat(s -> 1 == s.size() && "AAPL".equals(s.iterator().next().getName())),
+                eq(toPastOrFutureTradeDate(aaplLatest, 1, d -> d.plusDays(1))),
+                eq(endDate));
+        verify(twelveDataMarketDataClient).retrieveMarketData(
+                argThat((Set<SymbolDomain> s) -> 1 == s.size() && "NVDA".equals(s.iterator().next().getName())),
+                eq(MarketDataType.HISTORIC));
+        verify(twelveDataMarketDataClient, never()).retrieveMarketData(
+                argThat((Set<SymbolDomain> s) -> s.stream().anyMatch(symbol -> "MSFT".equals(symbol.getName()))),
+                any(LocalDate.class),
+                any(LocalDate.class));
+    }
+
+    @Test
+    void whenRemoveOldMarketData_thenNewestBarsOfEachSymbolAreKept() {
+        // given
+        Set<SymbolDomain> symbols = symbolService.getOrCreateByName(Set.of("AAPL", "MSFT"));
+        SymbolDomain aapl = symbols.stream().filter(s -> "AAPL".equals(s.getName())).findFirst().orElseThrow();
+        SymbolDomain msft = symbols.stream().filter(s -> "MSFT".equals(s.getName())).findFirst().orElseThrow();
+        LocalDate today = FIXED_DATE.toLocalDate();
+        marketDataService.createIgnoringDuplicates(OrderedIndexedSet.of(md(aapl).setDate(today.minusDays(2)),
+                md(aapl).setDate(today.minusDays(1)),
+                md(aapl).setDate(today),
+                md(msft).setDate(today)));
+
+        // when
+        int removed = dataManager.removeOldMarketData(2);
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(marketDataService.findAll()).extracting(md -> md.getSymbol().getName(), MarketDataDomain::getDate)
+                .containsExactlyInAnyOrder(tuple("AAPL", today.minusDays(1)),
+                        tuple("AAPL", today),
+                        tuple("MSFT", today));
+    }
+
+    @Test
+    void whenRemoveOldNews_thenNewsLeftWithoutSymbolsAreDeleted() {
+        // given
+        Set<SymbolDomain> symbols = symbolService.getOrCreateByName(Set.of("AAPL", "MSFT"));
+        newsService.createOrUpdate(Set.of(news(1L, symbols, 0, "positive"),
+                news(2L, symbols, 1, "negative"),
+                news(3L, symbols, 2, "neutral")));
+
+        // when
+        int removed = dataManager.removeOldNews(1);
+
+        // then
+        assertThat(removed).isEqualTo(2);
+        assertThat(newsService.findAll()).extracting(NewsDomain::getExternalId).containsExactly(1L);
+    }
+
+    @Test
+    void whenPersistSameNewsConcurrently_thenSymbolsAreMergedWithoutConflicts() throws Exception {
+        // given
+        Set<SymbolDomain> symbols = symbolService.getOrCreateByName(Set.of("AAPL", "MSFT", "NVDA"));
+        List<Callable<Set<NewsDomain>>> tasks = symbols.stream()
+                .<Callable<Set<NewsDomain>>>map(symbol -> () -> newsService.createOrUpdate(Set.of(
+                        news(1L, Set.of(symbol), 0, "positive"),
+                        news(2L, Set.of(symbol), 1, null))))
+                .toList();
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Set<NewsDomain>> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+
+        // then
+        assertThat(newsService.findAll()).hasSize(2)
+                .allSatisfy(news -> assertThat(news.getSymbols()).containsExactlyInAnyOrderElementsOf(symbols));
+    }
+
+    @Test
+    void whenGetTopNewsForManySymbols_thenNewestNonNeutralOnesOfEachAreReturned() {
+        // given
+        SymbolDomain aapl = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+        SymbolDomain msft = symbolService.getOrCreateByName(Set.of("MSFT")).stream().findFirst().orElseThrow();
+        newsService.createOrUpdate(Set.of(news(1L, Set.of(aapl, msft), 0, "neutral"),
+                news(2L, Set.of(aapl), 1, "positive"),
+                news(3L, Set.of(aapl, msft), 2, null),
+                news(4L, Set.of(aapl), 3, "negative")));
+
+        // when
+        Map<Long, OrderedIndexedSet<NewsDomain>> top = newsService.getTopForSymbolIds(Set.of(aapl.getId(),
+                msft.getId()), 2);
+
+        // then
+        assertThat(top.get(aapl.getId())).extracting(NewsDomain::getExternalId).containsExactly(2L, 3L);
+        assertThat(top.get(msft.getId())).extracting(NewsDomain::getExternalId).containsExactly(3L);
+    }
+
+    private static MarketDataDomain md(SymbolDomain symbol) {
+        return new MarketDataDomain().setSymbol(symbol)
+                .setDate(FIXED_DATE.toLocalDate())
+                .setOpen(BigDecimal.TEN)
+                .setHigh(BigDecimal.TEN)
+                .setLow(BigDecimal.TEN)
+                .setPrice(BigDecimal.TEN)
+                .setVolume(1_000L);
+    }
+
+    private static NewsDomain news(Long externalId, Set<SymbolDomain> symbols, int daysAgo, String sentiment) {
+        return new NewsDomain().setExternalId(externalId)
+                .setSymbols(new HashSet<>(symbols))
+                .setDate(FIXED_DATE.minusDays(daysAgo))
+                .setHeadline("headline " + externalId)
+                .setUrl("https://example.com/" + externalId)
+                .setSentiment(sentiment);
+    }
+}
@@ -12,11 +12,15 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -91,8 +95,38 @@ class MarketDataJpaServiceTest extends ConfiguredTest {
         assertThat(saved.getPreviousClose()).isEqualByComparingTo(new BigDecimal("150"));
         assertThat(saved.getChange()).isEqualByComparingTo(new BigDecimal("5"));
         assertThat(saved.getChangePercent()).isEqualByComparingTo(new BigDecimal("3.3333"));
-        verify(kpiGenerator, times(1)).computeDerivedFields(previous);
-        verify(kpiGenerator, times(1)).computeDerivedFields(current);
-        verify(kpiGenerator, times(2)).computeDerivedFields(any());
+        verify(kpiGenerator, times(1)).computeDerivedFields(argThat(entries -> entries.containsAll(List.of(previous,
+                current))), anyCollection());
+        verify(kpiGenerator, never()).computeDerivedFields(any(MarketDataDomain.class));
+        verify(marketDataRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createOrUpdate_shouldUpdateExistingRecords_andPersistNewOnes() {
+        // given
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+        LocalDate date1 = LocalDate.of(2024, Month.APRIL, 20);
+        LocalDate date2 = LocalDate.of(2024, Month.APRIL, 21);
+        jpaService.createIgnoringDuplicates(OrderedIndexedSet.of(new MarketDataDomain().setSymbol(symbol)
+                .setDate(date1)
+                .setPrice(new BigDecimal("150"))
+                .setVolume(100L)));
+
+        MarketDataDomain updated =
+                new MarketDataDomain().setSymbol(symbol).setDate(date1).setPrice(new BigDecimal("151"));
+        MarketDataDomain created =
+                new MarketDataDomain().setSymbol(symbol).setDate(date2).setPrice(new BigDecimal("153"));
+
+        // when
+        Set<MarketDataDomain> result = jpaService.createOrUpdate(OrderedIndexedSet.of(updated, created));
+
+        // then
+        assertThat(result).hasSize(2).allMatch(md -> null != md.getId());
+        assertThat(jpaService.findAll()).hasSize(2)
+                .extracting(MarketDataDomain::getDate, md -> md.getPrice().doubleValue(), MarketDataDomain::getVolume)
+                .containsExactlyInAnyOrder(tuple(date1, 151.0, null), tuple(date2, 153.0, null));
+        MarketDataDomain latest =
+                jpaService.findAll().stream().max(Comparator.comparing(MarketDataDomain::getDate)).orElseThrow();
+        assertThat(latest.getChange()).isEqualByComparingTo(new BigDecimal("2"));
     }
 }
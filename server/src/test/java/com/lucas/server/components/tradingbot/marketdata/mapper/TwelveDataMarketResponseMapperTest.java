@@ -309,4 +309,43 @@ class TwelveDataMarketResponseMapperTest extends ConfiguredTest {
         // then
         assertThat(result).isNotNull().isEmpty();
     }
+
+    @Test
+    void whenDemultiplexBatchedJson_thenReturnSymbolEntry() throws MappingException {
+        // given
+        String json = """
+                      {
+                        "AAPL": {
+                          "symbol": "AAPL",
+                          "datetime": "2021-09-16",
+                          "open": "148.44000",
+                          "high": "148.96840",
+                          "low": "147.22099",
+                          "close": "148.85001",
+                          "volume": "67903927",
+                          "previous_close": "149.09000",
+                          "change": "-0.23999",
+                          "percent_change": "-0.16097"
+                        },
+                        "MSFT": {
+                          "code": 400,
+                          "message": "**symbol** not found: MSFT",
+                          "status": "error"
+                        }
+                      }
+                      """;
+        Set<SymbolDomain> symbols = symbolService.getOrCreateByName(Set.of("AAPL", "MSFT"));
+        SymbolDomain aapl = symbols.stream().filter(s -> "AAPL".equals(s.getName())).findFirst().orElseThrow();
+        SymbolDomain msft = symbols.stream().filter(s -> "MSFT".equals(s.getName())).findFirst().orElseThrow();
+
+        // when
+        MarketDataDomain result = mapper.map(mapper.demultiplex(objectMapper.readTree(json), aapl, 2), aapl);
+
+        // then
+        assertThat(result.getSymbol()).isEqualTo(aapl);
+        assertThat(result.getPrice()).isEqualByComparingTo(BigDecimal.valueOf(148.85001));
+        assertThatThrownBy(() -> mapper.demultiplex(objectMapper.readTree(json), msft, 2))
+                .isInstanceOf(MappingException.class)
+                .hasMessageContaining(MessageFormat.format(MAPPING_ERROR, MARKET_DATA));
+    }
 }
@@ -0,0 +1,88 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.ConfiguredTest;
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.common.jpa.SymbolJpaService;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+import static com.lucas.server.common.Constants.FIXED_DATE;
+import static com.lucas.server.common.Constants.MARKET_DATA_RELEVANT_DAYS_COUNT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchKpiGeneratorTest extends ConfiguredTest {
+
+    @Autowired
+    private SymbolJpaService symbolService;
+
+    @Autowired
+    private PrimitiveKpiGenerator primitiveKpiGenerator;
+
+    @Autowired
+    private BatchKpiGenerator batchKpiGenerator;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Test
+    void whenComputeReportKpis_thenMatchesPrimitiveEnginePerSymbolLackingStoredState() {
+        // given
+        SymbolDomain aapl = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+        SymbolDomain msft = symbolService.getOrCreateByName(Set.of("MSFT")).stream().findFirst().orElseThrow();
+        SymbolDomain nvda = symbolService.getOrCreateByName(Set.of("NVDA")).stream().findFirst().orElseThrow();
+        SymbolDomain tsla = symbolService.getOrCreateByName(Set.of("TSLA")).stream().findFirst().orElseThrow();
+        marketDataService.createIgnoringDuplicates(history(aapl, MARKET_DATA_RELEVANT_DAYS_COUNT + 5, 3));
+        marketDataService.createIgnoringDuplicates(history(msft, 15, 7));
+        marketDataService.createIgnoringDuplicates(history(tsla, MARKET_DATA_RELEVANT_DAYS_COUNT + 5, 5));
+        // bars ingested before the indicator state was stored
+        jdbcTemplate.update("UPDATE market_data SET ema12 = NULL, ema20 = NULL, ema26 = NULL, macd = NULL, "
+                + "signal_line = NULL, obv = NULL WHERE symbol_id = :symbolId", Map.of("symbolId", aapl.getId()));
+
+        // when
+        Map<Long, ReportKpis> kpis = batchKpiGenerator.computeReportKpis(Set.of(aapl.getId(),
+                msft.getId(),
+                nvda.getId(),
+                tsla.getId()));
+
+        // then
+        assertThat(kpis).containsOnlyKeys(aapl.getId(), msft.getId());
+        assertThat(kpis.get(aapl.getId())).isEqualTo(primitiveKpiGenerator.computeReportKpis(
+                marketDataService.getTopForSymbolId(aapl.getId(), MARKET_DATA_RELEVANT_DAYS_COUNT)));
+        assertThat(kpis.get(msft.getId())).satisfies(k -> {
+            assertThat(k.ema20()).isNull();
+            assertThat(k.macdLine1226()).isNull();
+            assertThat(k.macdSignalLine9()).isNull();
+            assertThat(k.obv20()).isNull();
+            assertThat(k.rsi14()).isEqualTo(primitiveKpiGenerator.computeReportKpis(
+                    marketDataService.getTopForSymbolId(msft.getId(), MARKET_DATA_RELEVANT_DAYS_COUNT)).rsi14());
+        });
+    }
+
+    @Test
+    void whenComputeReportKpisForNoSymbols_thenEmpty() {
+        assertThat(batchKpiGenerator.computeReportKpis(Set.of())).isEmpty();
+    }
+
+    private static OrderedIndexedSet<MarketDataDomain> history(SymbolDomain symbol, int days, int period) {
+        OrderedIndexedSet<MarketDataDomain> res = new OrderedIndexedSetImpl<>();
+        for (int i = days - 1; 0 <= i; i--) {
+            res.add(new MarketDataDomain().setSymbol(symbol)
+                    .setDate(FIXED_DATE.toLocalDate().minusDays(i))
+                    .setOpen(BigDecimal.valueOf(20 + i % period))
+                    .setHigh(BigDecimal.valueOf(22 + i % period))
+                    .setLow(BigDecimal.valueOf(18 + i % period))
+                    .setPrice(BigDecimal.valueOf(20 + (i * 7) % (period + 2)))
+                    .setVolume(500L * (i + 1)));
+        }
+        return OrderedIndexedSet.copyOf(res);
+    }
+}
@@ -0,0 +1,152 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.ConfiguredTest;
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.common.jpa.SymbolJpaService;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.lucas.server.common.Constants.FIXED_DATE;
+import static com.lucas.server.common.Constants.MARKET_DATA_RELEVANT_DAYS_COUNT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class KpiCacheTest extends ConfiguredTest {
+
+    @Autowired
+    private SymbolJpaService symbolService;
+
+    @Autowired
+    private ReportKpiProvider reportKpiProvider;
+
+    @Autowired
+    private KpiCache kpiCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void whenProvideTwice_thenSecondIsServedFromCache() {
+        // given
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+        marketDataService.createIgnoringDuplicates(history(symbol, 10));
+        OrderedIndexedSet<MarketDataDomain> history =
+                marketDataService.getTopForSymbolId(symbol.getId(), MARKET_DATA_RELEVANT_DAYS_COUNT);
+
+        // when
+        ReportKpis first = reportKpiProvider.provide(history);
+        ReportKpis second = reportKpiProvider.provide(history);
+
+        // then
+        assertThat(second).isSameAs(first);
+        verify(kpiGenerator, times(1)).readReportKpis(any());
+        assertThat(kpiCache.getStats()).isEqualTo(new KpiCache.Stats(1, 1, 1, 0));
+    }
+
+    @Test
+    void whenBarIsOverwritten_thenLaterEntriesAreInvalidated() {
+        // given
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+        marketDataService.createIgnoringDuplicates(history(symbol, 10));
+        reportKpiProvider.provide(marketDataService.getTopForSymbolId(symbol.getId(),
+                MARKET_DATA_RELEVANT_DAYS_COUNT));
+
+        // when
+        marketDataService.createOrUpdate(OrderedIndexedSet.of(bar(symbol, 3).setPrice(BigDecimal.valueOf(99))));
+        reportKpiProvider.provide(marketDataService.getTopForSymbolId(symbol.getId(),
+                MARKET_DATA_RELEVANT_DAYS_COUNT));
+
+        // then
+        verify(kpiGenerator, times(2)).readReportKpis(any());
+        assertThat(kpiCache.getStats()).isEqualTo(new KpiCache.Stats(1, 0, 2, 0));
+    }
+
+    @Test
+    void whenBarIsOverwrittenInTransaction_thenEntriesAreInvalidatedOnCommit() {
+        // given
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+        marketDataService.createIgnoringDuplicates(history(symbol, 10));
+        reportKpiProvider.provide(marketDataService.getTopForSymbolId(symbol.getId(),
+                MARKET_DATA_RELEVANT_DAYS_COUNT));
+        AtomicInteger sizeBeforeCommit = new AtomicInteger();
+
+        // when
+        new TransactionTemplate(transactionManager).executeWithoutResult(_ -> {
+            marketDataService.createOrUpdate(OrderedIndexedSet.of(bar(symbol, 3).setPrice(BigDecimal.valueOf(99))));
+            sizeBeforeCommit.set(kpiCache.getStats().size());
+        });
+
+        // then
+        assertThat(sizeBeforeCommit).hasValue(1);
+        assertThat(kpiCache.getStats().size()).isZero();
+    }
+
+    @Test
+    void whenInvalidatedWhileLoading_thenLoadedKpisAreNotCached() {
+        // given
+        KpiCache cache = new KpiCache(2);
+        LocalDate today = FIXED_DATE.toLocalDate();
+        ReportKpis stale = new ReportKpis(null, null, null, null, null, null);
+        ReportKpis fresh = new ReportKpis(BigDecimal.ONE, null, null, null, null, null);
+
+        // when
+        cache.get(1L, today, () -> {
+            cache.invalidate(1L, today);
+            return stale;
+        });
+        ReportKpis res = cache.get(1L, today, () -> fresh);
+
+        // then
+        assertThat(res).isSameAs(fresh);
+        assertThat(cache.getStats()).isEqualTo(new KpiCache.Stats(1, 0, 2, 0));
+    }
+
+    @Test
+    void whenFull_thenLeastRecentlyUsedIsEvicted() {
+        // given
+        KpiCache cache = new KpiCache(2);
+        LocalDate today = FIXED_DATE.toLocalDate();
+        ReportKpis kpis = new ReportKpis(null, null, null, null, null, null);
+        cache.get(1L, today, () -> kpis);
+        cache.get(2L, today, () -> kpis);
+        cache.get(1L, today, () -> kpis);
+
+        // when
+        cache.get(3L, today, () -> kpis);
+        cache.get(2L, today, () -> kpis);
+
+        // then
+        assertThat(cache.getStats()).isEqualTo(new KpiCache.Stats(2, 1, 4, 2));
+    }
+
+    private static OrderedIndexedSet<MarketDataDomain> history(SymbolDomain symbol, int days) {
+        OrderedIndexedSet<MarketDataDomain> res = new OrderedIndexedSetImpl<>();
+        for (int i = days - 1; 0 <= i; i--) {
+            res.add(bar(symbol, i));
+        }
+        return OrderedIndexedSet.copyOf(res);
+    }
+
+    private static MarketDataDomain bar(SymbolDomain symbol, int daysAgo) {
+        return new MarketDataDomain().setSymbol(symbol)
+                .setDate(FIXED_DATE.toLocalDate().minusDays(daysAgo))
+                .setOpen(BigDecimal.valueOf(20 + daysAgo % 3))
+                .setHigh(BigDecimal.valueOf(22 + daysAgo % 3))
+                .setLow(BigDecimal.valueOf(18 + daysAgo % 3))
+                .setPrice(BigDecimal.valueOf(20 + daysAgo % 4))
+                .setVolume(500L * (daysAgo + 1));
+    }
+}
@@ -6,20 +6,24 @@ import com.lucas.server.components.tradingbot.common.jpa.SymbolJpaService;
 import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
 import com.lucas.server.components.tradingbot.marketdata.jpa.MarketData;
 import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
 import nl.altindag.log.LogCaptor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import static com.lucas.server.common.Constants.DATABASE_MARKET_DATA_PER_SYMBOL;
 import static com.lucas.server.common.Constants.FIXED_DATE;
 import static com.lucas.server.common.Constants.KPI_RETURNED_ZERO_WARN;
+import static com.lucas.server.common.Constants.MARKET_DATA_RELEVANT_DAYS_COUNT;
 import static com.lucas.server.common.Constants.NON_COMPUTABLE_KPI_WARN;
 import static com.lucas.server.common.Constants.VOLATILITY;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -119,6 +123,47 @@ class MarketDataKpiGeneratorTest extends ConfiguredTest {
                 currentDate);
     }
 
+    @Test
+    void whenComputeDerivedFieldsOnConsecutiveMarketData_thenIndicatorStateIsRolled() {
+        // given
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+        LocalDate today = FIXED_DATE.toLocalDate();
+        OrderedIndexedSet<MarketDataDomain> modifiableMds = new OrderedIndexedSetImpl<>();
+        for (int i = MARKET_DATA_RELEVANT_DAYS_COUNT; 0 <= i; i--) {
+            modifiableMds.add(new MarketDataDomain().setSymbol(symbol)
+                    .setDate(today.minusDays(i))
+                    .setHigh(BigDecimal.valueOf(12 + i % 5))
+                    .setLow(BigDecimal.valueOf(8 + i % 3))
+                    .setPrice(BigDecimal.valueOf(10 + i % 4))
+                    .setVolume(1_000L * (i + 1)));
+        }
+
+        // when
+        marketDataService.createIgnoringDuplicates(OrderedIndexedSet.copyOf(modifiableMds));
+
+        // then
+        OrderedIndexedSet<MarketDataDomain> history =
+                marketDataService.getTopForSymbolId(symbol.getId(), DATABASE_MARKET_DATA_PER_SYMBOL);
+        OrderedIndexedSet<MarketDataDomain> firstTwelve = history.subList(history.size() - 12, history.size());
+        assertThat(history.get(history.size() - 11).getEma12()).isNull();
+        assertThat(firstTwelve.getFirst().getEma12().setScale(4, RoundingMode.HALF_UP))
+                .isEqualByComparingTo(kpiGenerator.computeEma(firstTwelve, 12).orElseThrow());
+
+        MarketDataDomain current = history.getFirst();
+        MarketDataDomain previous = history.get(1);
+        BigDecimal k = BigDecimal.valueOf(2).divide(BigDecimal.valueOf(13), 8, RoundingMode.HALF_UP);
+        assertThat(current.getEma12()).isEqualByComparingTo(current.getPrice()
+                .subtract(previous.getEma12())
+                .multiply(k)
+                .add(previous.getEma12())
+                .setScale(8, RoundingMode.HALF_UP));
+        assertThat(current.getMacd()).isEqualByComparingTo(current.getEma12().subtract(current.getEma26()));
+        assertThat(current.getSignalLine()).isNotNull();
+        assertThat(BigDecimal.valueOf(current.getObv() - history.get(20).getObv()))
+                .isEqualByComparingTo(kpiGenerator.computeObv(history, 20).orElseThrow());
+        assertThat(kpiGenerator.readReportKpis(history)).isPresent();
+    }
+
     @Test
     void computeMovingAverage() {
         assertThat(kpiGenerator.computeMovingAverage(mds, mds.size())
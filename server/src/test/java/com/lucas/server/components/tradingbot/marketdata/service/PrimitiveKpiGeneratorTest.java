@@ -0,0 +1,144 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.ConfiguredTest;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.service.MarketDataKpiGenerator.ReportKpis;
+import com.lucas.server.components.tradingbot.marketdata.service.PrimitiveKpiGenerator.Series;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSetImpl;
+import nl.altindag.log.LogCaptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static com.lucas.server.common.Constants.FIXED_DATE;
+import static com.lucas.server.common.Constants.KPI_DRIFT_TOLERANCE;
+import static com.lucas.server.common.Constants.NON_COMPUTABLE_KPI_WARN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PrimitiveKpiGeneratorTest extends ConfiguredTest {
+
+    private static final LogCaptor logCaptor = LogCaptor.forClass(PrimitiveKpiGenerator.class);
+    private static final LogCaptor providerLogCaptor = LogCaptor.forClass(ReportKpiProvider.class);
+
+    @Autowired
+    private PrimitiveKpiGenerator primitiveKpiGenerator;
+
+    @Autowired
+    private ReportKpiProvider reportKpiProvider;
+
+    @BeforeEach
+    void cleanUp() {
+        logCaptor.clearLogs();
+        providerLogCaptor.clearLogs();
+    }
+
+    @Test
+    void whenComputeReportKpis_thenMatchesBigDecimalEngine() {
+        // given
+        OrderedIndexedSet<MarketDataDomain> history = history(40);
+
+        // when
+        ReportKpis reference = kpiGenerator.computeReportKpis(history);
+        ReportKpis candidate = primitiveKpiGenerator.computeReportKpis(history);
+
+        // then
+        assertThat(candidate.ema20()).isCloseTo(reference.ema20(), within(KPI_DRIFT_TOLERANCE));
+        assertThat(candidate.macdLine1226()).isCloseTo(reference.macdLine1226(), within(KPI_DRIFT_TOLERANCE));
+        assertThat(candidate.macdSignalLine9()).isCloseTo(reference.macdSignalLine9(), within(KPI_DRIFT_TOLERANCE));
+        assertThat(candidate.rsi14()).isCloseTo(reference.rsi14(), within(KPI_DRIFT_TOLERANCE));
+        assertThat(candidate.atr14()).isCloseTo(reference.atr14(), within(KPI_DRIFT_TOLERANCE));
+        assertThat(candidate.obv20()).isEqualByComparingTo(reference.obv20());
+    }
+
+    @Test
+    void whenProvideInParityMode_thenReturnsBigDecimalResultWithoutDrift() {
+        // given
+        OrderedIndexedSet<MarketDataDomain> history = history(40);
+
+        // when
+        ReportKpis kpis = reportKpiProvider.provide(history);
+
+        // then
+        assertThat(kpis).isEqualTo(kpiGenerator.computeReportKpis(history));
+        assertThat(providerLogCaptor.getWarnLogs()).isEmpty();
+    }
+
+    @Test
+    void whenValuesDrift_thenReported() {
+        // given
+        MarketDataDomain current = history(1).getFirst();
+
+        // when & then
+        assertThat(reportKpiProvider.reportDrift("EMA20", current, new BigDecimal("1.0000"), new BigDecimal("1.0001")))
+                .isFalse();
+        assertThat(reportKpiProvider.reportDrift("EMA20", current, new BigDecimal("1.0000"), new BigDecimal("1.0002")))
+                .isTrue();
+        assertThat(reportKpiProvider.reportDrift("EMA20", current, null, new BigDecimal("1.0000"))).isTrue();
+        assertThat(reportKpiProvider.reportDrift("EMA20", current, null, null)).isFalse();
+        assertThat(providerLogCaptor.getWarnLogs()).hasSize(2);
+    }
+
+    @Test
+    void computeVolatility() {
+        OrderedIndexedSet<MarketDataDomain> history = OrderedIndexedSet.of(md(10, 9, 4),
+                md(13, 11, 1),
+                md(12, 10, 3),
+                md(11, 12, 2),
+                md(14, 13, 0));
+        assertThat(BigDecimal.valueOf(primitiveKpiGenerator.computeVolatility(Series.of(history), history.size())
+                .orElseThrow()).setScale(4, RoundingMode.HALF_UP)).isEqualByComparingTo(new BigDecimal("160.2067"));
+    }
+
+    @Test
+    void computeReportKpis_notEnoughHistory() {
+        // given
+        OrderedIndexedSet<MarketDataDomain> history = history(10);
+
+        // when
+        ReportKpis kpis = primitiveKpiGenerator.computeReportKpis(history);
+
+        // then
+        assertThat(kpis.ema20()).isNull();
+        assertThat(kpis.macdLine1226()).isNull();
+        assertThat(kpis.macdSignalLine9()).isNull();
+        assertThat(kpis.obv20()).isNull();
+        assertThat(kpis.rsi14()).isNotNull();
+        assertThat(logCaptor.getWarnLogs()).hasSize(4)
+                .allSatisfy(log -> assertThat(log).startsWith(NON_COMPUTABLE_KPI_WARN.substring(0,
+                        NON_COMPUTABLE_KPI_WARN.indexOf("{}"))));
+    }
+
+    /**
+     * @return n consecutive entries, newest first, with gains, losses and ATR set on the newest one
+     */
+    private static OrderedIndexedSet<MarketDataDomain> history(int n) {
+        OrderedIndexedSet<MarketDataDomain> history = new OrderedIndexedSetImpl<>();
+        for (int i = 0; i < n; i++) {
+            history.add(new MarketDataDomain().setDate(FIXED_DATE.toLocalDate().minusDays(i))
+                    .setPrice(price(i))
+                    .setPreviousClose(price(i + 1))
+                    .setVolume(1_000L + 13L * i));
+        }
+        history.getFirst()
+                .setAverageGain(new BigDecimal("1.2345"))
+                .setAverageLoss(new BigDecimal("0.9876"))
+                .setAtr(new BigDecimal("2.5000"));
+        return OrderedIndexedSet.copyOf(history);
+    }
+
+    private static BigDecimal price(int daysAgo) {
+        return BigDecimal.valueOf(100 + 10 * Math.sin(daysAgo / 3.0) + daysAgo * 0.37)
+                .setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static MarketDataDomain md(Integer price, Integer prevClose, Integer daysAgo) {
+        return new MarketDataDomain().setPrice(BigDecimal.valueOf(price))
+                .setPreviousClose(BigDecimal.valueOf(prevClose))
+                .setDate(FIXED_DATE.toLocalDate().minusDays(daysAgo));
+    }
+}
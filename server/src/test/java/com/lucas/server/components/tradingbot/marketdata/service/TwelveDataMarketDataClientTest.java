@@ -0,0 +1,100 @@
+package com.lucas.server.components.tradingbot.marketdata.service;
+
+import com.lucas.server.common.HttpRequestClient;
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
+import com.lucas.server.components.tradingbot.marketdata.mapper.TwelveDataMarketResponseMapper;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import com.lucas.utils.ratelimiter.DefaultSlidingWindowRateLimiter;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.lucas.server.common.Constants.MarketDataType;
+import static com.lucas.server.common.Constants.TWELVEDATA_RATE_LIMITER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TwelveDataMarketDataClientTest {
+
+    private static final SymbolDomain AAPL = new SymbolDomain().setName("AAPL");
+    private static final SymbolDomain MSFT = new SymbolDomain().setName("MSFT");
+    private static final SymbolDomain NVDA = new SymbolDomain().setName("NVDA");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpRequestClient httpRequestClient = mock(HttpRequestClient.class);
+    private final DefaultSlidingWindowRateLimiter rateLimiter = mock(DefaultSlidingWindowRateLimiter.class);
+    private final TwelveDataMarketDataClient client = new TwelveDataMarketDataClient(httpRequestClient,
+            Map.of(TWELVEDATA_RATE_LIMITER, rateLimiter),
+            new TwelveDataMarketResponseMapper(),
+            "https://api.twelvedata.com",
+            "key",
+            3);
+
+    @Test
+    void whenBatchedResponseHasEverySymbol_thenOneRequestIsCharged() throws Exception {
+        // given
+        when(httpRequestClient.get(anyString(), eq(false))).thenReturn(objectMapper.createObjectNode()
+                .<JsonNode>setAll(Map.of("AAPL", quote("AAPL"), "MSFT", quote("MSFT"), "NVDA", quote("NVDA"))));
+
+        // when
+        Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> res =
+                client.retrieveMarketData(Set.of(AAPL, MSFT, NVDA), MarketDataType.LAST);
+
+        // then
+        assertThat(res).containsOnlyKeys(AAPL, MSFT, NVDA);
+        verify(httpRequestClient, times(1)).get(anyString(), eq(false));
+        verify(rateLimiter, times(1)).acquirePermission();
+    }
+
+    @Test
+    void whenBatchedResponseLacksOrFailsSymbols_thenTheyAreRequestedOnTheirOwn() throws Exception {
+        // given
+        JsonNode error = objectMapper.createObjectNode().put("status", "error").put("code", 400);
+        when(httpRequestClient.get(contains(","), eq(false))).thenReturn(objectMapper.createObjectNode()
+                .<JsonNode>setAll(Map.of("AAPL", quote("AAPL"), "MSFT", error)));
+        when(httpRequestClient.get(contains("symbol=MSFT&"), eq(false))).thenReturn(quote("MSFT"));
+        when(httpRequestClient.get(contains("symbol=NVDA&"), eq(false))).thenReturn(quote("NVDA"));
+
+        // when
+        Map<SymbolDomain, OrderedIndexedSet<MarketDataDomain>> res =
+                client.retrieveMarketData(Set.of(AAPL, MSFT, NVDA), MarketDataType.LAST);
+
+        // then: one charge for the batch and one for each fallback
+        assertThat(res).containsOnlyKeys(AAPL, MSFT, NVDA);
+        assertThat(res.get(MSFT).getFirst().getSymbol()).isEqualTo(MSFT);
+        verify(httpRequestClient, times(1)).get(contains(","), eq(false));
+        verify(httpRequestClient, times(1)).get(contains("symbol=MSFT&"), eq(false));
+        verify(httpRequestClient, times(1)).get(contains("symbol=NVDA&"), eq(false));
+        verify(httpRequestClient, never()).get(contains("symbol=AAPL&"), eq(false));
+        verify(rateLimiter, times(3)).acquirePermission();
+    }
+
+    private JsonNode quote(String symbol) {
+        return objectMapper.readTree("""
+                                     {
+                                       "symbol": "%s",
+                                       "datetime": "2021-09-16",
+                                       "open": "148.44000",
+                                       "high": "148.96840",
+                                       "low": "147.22099",
+                                       "close": "148.85001",
+                                       "volume": "67903927",
+                                       "previous_close": "149.09000",
+                                       "change": "-0.23999",
+                                       "percent_change": "-0.16097",
+                                       "is_market_open": false
+                                     }
+                                     """.formatted(symbol));
+    }
+}
@@ -10,10 +10,12 @@ import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 class FinbertResponseMapperTest {
 
@@ -36,6 +38,33 @@ class FinbertResponseMapperTest {
         assertThat(result.getSentimentConfidence()).isEqualByComparingTo(new BigDecimal("90"));
     }
 
+    @Test
+    void mapAllBatchResults() throws Exception {
+        // given
+        String json = "[{\"label\": \"positive\", \"score\": \"0.90\"},"
+                + " {\"label\": \"negative\", \"score\": \"0.80\"}]";
+        JsonNode node = objectMapper.readTree(json);
+        List<NewsDomain> news = List.of(new NewsDomain().setExternalId(1L), new NewsDomain().setExternalId(2L));
+
+        // when
+        List<NewsDomain> result = mapper.mapAll(node, news);
+
+        // then
+        assertThat(result).extracting(NewsDomain::getExternalId, NewsDomain::getSentiment)
+                .containsExactly(tuple(1L, "positive"), tuple(2L, "negative"));
+        assertThat(result.getLast().getSentimentConfidence()).isEqualByComparingTo(new BigDecimal("80"));
+    }
+
+    @Test
+    void mapAllWithMissingResults() {
+        // given
+        JsonNode node = objectMapper.readTree("[{\"label\": \"positive\", \"score\": \"0.90\"}]");
+        List<NewsDomain> news = List.of(new NewsDomain().setExternalId(1L), new NewsDomain().setExternalId(2L));
+
+        // when & then
+        assertThatThrownBy(() -> mapper.mapAll(node, news)).isInstanceOf(MappingException.class);
+    }
+
     @ParameterizedTest
     @MethodSource("getSentimentData")
     void mapSentiment(String label, String score, String expectedConfidence) throws Exception {
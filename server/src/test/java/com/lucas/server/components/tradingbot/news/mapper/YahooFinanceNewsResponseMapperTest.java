@@ -7,10 +7,9 @@ import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
 import com.lucas.utils.exception.MappingException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
@@ -24,6 +23,7 @@ import static com.lucas.server.common.Constants.NEWS;
 import static com.lucas.server.common.Constants.NO_YAHOO_NEWS_ERROR;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 class YahooFinanceNewsResponseMapperTest extends ConfiguredTest {
 
@@ -34,7 +34,7 @@ class YahooFinanceNewsResponseMapperTest extends ConfiguredTest {
     private YahooFinanceNewsResponseMapper mapper;
 
     @Autowired
-    private DocumentBuilderFactory factory;
+    private XMLInputFactory factory;
 
     @Test
     void whenMapValidXml_thenReturnNewsEntity() throws Exception {
@@ -49,9 +49,10 @@ class YahooFinanceNewsResponseMapperTest extends ConfiguredTest {
                          </item>
                          """;
 
-        Element item = (Element) parseXml(
-                "<?xml version=\"1.0\"?><rss><channel>" + itemXml + "</channel></rss>").getElementsByTagName("item")
-                .item(0);
+        XMLStreamReader item = parseXml("<?xml version=\"1.0\"?><rss><channel>" + itemXml + "</channel></rss>");
+        while (!item.isStartElement() || !"item".equals(item.getLocalName())) {
+            item.next();
+        }
 
         // when
         NewsDomain news = mapper.map(item);
@@ -242,7 +243,7 @@ class YahooFinanceNewsResponseMapperTest extends ConfiguredTest {
                      """;
 
         // when
-        Set<NewsDomain> list = mapper.mapAll(parseXml(xml), symbol);
+        Set<NewsDomain> list = mapper.mapAll(parseXml(xml), symbol, null);
 
         // then
         assertThat(list).isNotNull()
@@ -275,6 +276,37 @@ class YahooFinanceNewsResponseMapperTest extends ConfiguredTest {
                         "As Tesla Stock Sank On Earnings, Cathie Wood Loaded Up");
     }
 
+    @Test
+    void whenMapAllWithNestedExtensionElements_thenSkipsThem() throws Exception {
+        // given
+        String xml = """
+                     <?xml version="1.0" encoding="UTF-8"?>
+                     <rss version="2.0" xmlns:media="http://search.yahoo.com/mrss/">
+                         <channel>
+                             <item>
+                                 <media:content url="https://example.com/1.jpg" medium="image">
+                                     <media:credit role="publishing company"/>
+                                     <media:title>Media title</media:title>
+                                 </media:content>
+                                 <description>Description</description>
+                                 <guid isPermaLink="false">4b2588dd-dc6f-3d71-84e0-de1ef9da2e48</guid>
+                                 <link>https://example.com/1</link>
+                                 <pubDate>Sat, 26 Jul 2025 11:30:00 +0000</pubDate>
+                                 <title>Title</title>
+                             </item>
+                         </channel>
+                     </rss>
+                     """;
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+
+        // when
+        Set<NewsDomain> list = mapper.mapAll(parseXml(xml), symbol, null);
+
+        // then
+        assertThat(list).extracting(NewsDomain::getHeadline, NewsDomain::getSummary, NewsDomain::getUrl)
+                .containsExactly(tuple("Title", "Description", "https://example.com/1"));
+    }
+
     @Test
     void whenMapAllEmptyOrNonArray_thenThrowsException() throws Exception {
         // given: valid XML structure but no <item> elements
@@ -289,12 +321,11 @@ class YahooFinanceNewsResponseMapperTest extends ConfiguredTest {
                                      </channel>
                                  </rss>
                                  """;
-        Document doc = parseXml(xmlWithoutItems);
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
 
         // when & then
-        assertThatThrownBy(() -> mapper.mapAll(doc,
-                symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow())).isInstanceOf(
-                MappingException.class).cause().hasMessageContaining(MessageFormat.format(NO_YAHOO_NEWS_ERROR, doc));
+        assertThatThrownBy(() -> mapper.mapAll(parseXml(xmlWithoutItems), symbol, null)).isInstanceOf(
+                MappingException.class).cause().hasMessageContaining(MessageFormat.format(NO_YAHOO_NEWS_ERROR, symbol));
     }
 
     @Test
@@ -312,15 +343,79 @@ class YahooFinanceNewsResponseMapperTest extends ConfiguredTest {
                                 </channel>
                             </rss>
                             """;
-        Document doc = parseXml(invalidXml);
+        XMLStreamReader reader = parseXml(invalidXml);
+
+        // when & then
+        assertThatThrownBy(() -> mapper.mapAll(reader,
+                symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow(),
+                null)).isInstanceOf(MappingException.class)
+                .hasMessageContaining(MessageFormat.format(MAPPING_ERROR, NEWS));
+    }
+
+    @Test
+    void whenMapAllSince_thenStopsAtFirstOlderItem() throws Exception {
+        // given
+        String xml = """
+                     <?xml version="1.0" encoding="UTF-8"?>
+                     <rss version="2.0">
+                         <channel>
+                             <item>
+                                 <description>Newest</description>
+                                 <guid isPermaLink="false">4b2588dd-dc6f-3d71-84e0-de1ef9da2e48</guid>
+                                 <link>https://example.com/1</link>
+                                 <pubDate>Sat, 26 Jul 2025 11:30:00 +0000</pubDate>
+                                 <title>Newest</title>
+                             </item>
+                             <item>
+                                 <description>Older</description>
+                                 <guid isPermaLink="false">493b7cb4-2573-3103-92c3-c2cd35c4a7d8</guid>
+                                 <link>https://example.com/2</link>
+                                 <pubDate>Fri, 25 Jul 2025 11:15:00 +0000</pubDate>
+                                 <title>Older</title>
+                             </item>
+                             <item>
+                                 <title>Never read</title>
+                             </item>
+                         </channel>
+                     </rss>
+                     """;
+        SymbolDomain symbol = symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow();
+
+        // when
+        Set<NewsDomain> list =
+                mapper.mapAll(parseXml(xml), symbol, LocalDateTime.of(2025, Month.JULY, 26, 0, 0));
+
+        // then
+        assertThat(list).extracting(NewsDomain::getHeadline).containsExactly("Newest");
+    }
+
+    @Test
+    void whenMapAllWithExternalEntity_thenThrowsException() throws Exception {
+        // given
+        String xml = """
+                     <?xml version="1.0" encoding="UTF-8"?>
+                     <!DOCTYPE rss [<!ENTITY xxe SYSTEM "file:///etc/passwd">]>
+                     <rss version="2.0">
+                         <channel>
+                             <item>
+                                 <description>&xxe;</description>
+                                 <guid isPermaLink="false">4b2588dd-dc6f-3d71-84e0-de1ef9da2e48</guid>
+                                 <link>https://example.com/1</link>
+                                 <pubDate>Sat, 26 Jul 2025 11:30:00 +0000</pubDate>
+                                 <title>Title</title>
+                             </item>
+                         </channel>
+                     </rss>
+                     """;
+        XMLStreamReader reader = parseXml(xml);
 
         // when & then
-        assertThatThrownBy(() -> mapper.mapAll(doc,
-                symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow())).isInstanceOf(
-                MappingException.class).hasMessageContaining(MessageFormat.format(MAPPING_ERROR, NEWS));
+        assertThatThrownBy(() -> mapper.mapAll(reader,
+                symbolService.getOrCreateByName(Set.of("AAPL")).stream().findFirst().orElseThrow(),
+                null)).isInstanceOf(MappingException.class);
     }
 
-    private Document parseXml(String xml) throws Exception {
-        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    private XMLStreamReader parseXml(String xml) throws Exception {
+        return factory.createXMLStreamReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
     }
 }
@@ -0,0 +1,60 @@
+package com.lucas.server.components.tradingbot.news.service;
+
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.lucas.server.common.Constants.FIXED_DATE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NewsDeduplicatorTest {
+
+    private final NewsDeduplicator deduplicator = new NewsDeduplicator(7);
+
+    @Test
+    void whenCollapseNearDuplicates_thenOldestIsKeptWithEverySymbol() {
+        // given
+        NewsDomain finnhub = news(1L, 1, "AAPL", "Stock Market Today: Dow, S&P Climb On Trump-China Deal Hopes;"
+                                               + " Cathie Wood Loads Up On Tesla Stock (Live Coverage)");
+        NewsDomain yahoo = news(2L, 0, "TSLA", "Stock Market Today: Dow, S&P Climb On Trump-China Deal Hopes;"
+                                              + " Cathie Wood Loads Up On Tesla Stock");
+        NewsDomain unrelated = news(3L, 0, "TSLA", "Why Tesla Deliveries Could Hit Yet Another Speed Bump");
+
+        // when
+        Set<NewsDomain> collapsed = deduplicator.collapse(List.of(yahoo, finnhub, unrelated));
+
+        // then
+        assertThat(collapsed).extracting(NewsDomain::getExternalId).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(finnhub.getSymbols()).extracting(SymbolDomain::getName).containsExactlyInAnyOrder("AAPL", "TSLA");
+        assertThat(unrelated.getSymbols()).extracting(SymbolDomain::getName).containsExactly("TSLA");
+    }
+
+    @Test
+    void whenUnrelatedHeadlinesShareBoilerplateSummary_thenNoneIsCollapsed() {
+        // given
+        String boilerplate = "Get the latest stock market news, quotes and analysis from our team of experts, updated"
+                             + " throughout the trading day. Subscribe to our newsletter to receive the top stories"
+                             + " every morning.";
+        NewsDomain recall = news(1L, 0, "TSLA", "Tesla Recalls Cybertruck").setSummary(boilerplate);
+        NewsDomain rates = news(2L, 0, "SPY", "Fed Holds Rates Steady").setSummary(boilerplate);
+        NewsDomain delivery = news(3L, 0, "AMZN", "Amazon Expands Drone Delivery").setSummary(boilerplate);
+
+        // when
+        Set<NewsDomain> collapsed = deduplicator.collapse(List.of(recall, rates, delivery));
+
+        // then
+        assertThat(collapsed).extracting(NewsDomain::getExternalId).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    private static NewsDomain news(Long externalId, int daysAgo, String symbol, String headline) {
+        return new NewsDomain().setExternalId(externalId)
+                .addSymbol(new SymbolDomain().setName(symbol))
+                .setDate(FIXED_DATE.minusDays(daysAgo))
+                .setHeadline(headline)
+                .setSummary("The Dow Jones index rose after surprise economic data. Tesla stock rallied on new plans to"
+                            + " launch its robotaxi service.");
+    }
+}
@@ -0,0 +1,87 @@
+package com.lucas.server.components.tradingbot.news.service;
+
+import com.lucas.server.common.exception.ClientException;
+import com.lucas.server.components.tradingbot.news.dto.NewsDomain;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NewsSentimentBatcherTest {
+
+    private final NewsSentimentClient client = mock(NewsSentimentClient.class);
+
+    @Test
+    void whenBatchFillsUpOrWaitElapses_thenArticlesAreSentTogether() throws Exception {
+        // given
+        when(client.generateSentiment(anyList())).thenAnswer(invocation -> {
+            List<NewsDomain> news = invocation.getArgument(0);
+            return news.stream().map(n -> n.setSentiment("positive")).toList();
+        });
+        NewsSentimentBatcher batcher = new NewsSentimentBatcher(client, 2, 50);
+
+        // when
+        Set<NewsDomain> analyzed = batcher.generateSentiment(List.of(news(1L), news(2L), news(3L)));
+
+        // then
+        assertThat(analyzed).extracting(NewsDomain::getExternalId).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(analyzed).extracting(NewsDomain::getSentiment).containsOnly("positive");
+        verify(client, times(1)).generateSentiment(argThat((List<NewsDomain> l) -> 2 == l.size()));
+        verify(client, times(1)).generateSentiment(argThat((List<NewsDomain> l) -> 1 == l.size()));
+    }
+
+    @Test
+    void whenBatchFails_thenItsArticlesAreLeftOut() throws Exception {
+        // given
+        when(client.generateSentiment(anyList())).thenThrow(new ClientException(new IllegalStateException()));
+        NewsSentimentBatcher batcher = new NewsSentimentBatcher(client, 2, 50);
+
+        // when
+        Set<NewsDomain> analyzed = batcher.generateSentiment(List.of(news(1L), news(2L)));
+
+        // then
+        assertThat(analyzed).isEmpty();
+    }
+
+    @Test
+    void whenShutDown_thenPendingArticlesFail() throws Exception {
+        // given
+        NewsSentimentBatcher batcher = new NewsSentimentBatcher(client, 2, 60_000);
+        CompletableFuture<NewsDomain> pending = batcher.submit(news(1L));
+
+        // when
+        batcher.shutdown();
+
+        // then
+        assertThat(pending).isCompletedExceptionally();
+        verify(client, never()).generateSentiment(anyList());
+    }
+
+    @Test
+    void whenSubmittedAfterShutdown_thenArticleFails() throws Exception {
+        // given
+        NewsSentimentBatcher batcher = new NewsSentimentBatcher(client, 1, 60_000);
+        batcher.shutdown();
+
+        // when
+        CompletableFuture<NewsDomain> submitted = batcher.submit(news(1L));
+
+        // then
+        assertThat(submitted).isCompletedExceptionally();
+        verify(client, never()).generateSentiment(anyList());
+    }
+
+    private static NewsDomain news(Long externalId) {
+        return new NewsDomain().setExternalId(externalId).setHeadline("headline " + externalId);
+    }
+}
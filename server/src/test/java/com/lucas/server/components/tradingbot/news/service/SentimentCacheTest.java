@@ -0,0 +1,63 @@
+package com.lucas.server.components.tradingbot.news.service;
+
+import com.lucas.server.ConfiguredTest;
+import com.lucas.server.components.tradingbot.news.dto.NewsSentimentDomain;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static com.lucas.server.common.Constants.UTC_ZONE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentimentCacheTest extends ConfiguredTest {
+
+    @Autowired
+    private SentimentCache sentimentCache;
+
+    @Test
+    void whenContentDiffersInCaseAndWhitespace_thenKeysMatch() {
+        // when & then
+        assertThat(SentimentCache.key("Apple beats  estimates [SEP] Shares rise\n"))
+                .isEqualTo(SentimentCache.key("apple beats estimates [SEP] shares rise"));
+    }
+
+    @Test
+    void whenMemoryTierIsCleared_thenPersistedTierServesTheEntry() {
+        // given
+        String key = SentimentCache.key("Apple beats estimates [SEP] Shares rise");
+        sentimentCache.putAll(List.of(entry(key, LocalDateTime.now(UTC_ZONE))));
+        sentimentCache.getAll(Set.of(key));
+        sentimentCache.clear();
+
+        // when
+        sentimentCache.getAll(Set.of(key, SentimentCache.key("unknown")));
+        sentimentCache.getAll(Set.of(key));
+
+        // then
+        assertThat(sentimentCache.getStats()).isEqualTo(new SentimentCache.Stats(1, 1, 1, 1, 0));
+        assertThat(sentimentCache.getStats().hitRate()).isEqualTo(2d / 3);
+    }
+
+    @Test
+    void whenExpired_thenEntryIsMissedAndRemoved() {
+        // given
+        String key = SentimentCache.key("Apple beats estimates [SEP] Shares rise");
+        sentimentCache.putAll(List.of(entry(key, LocalDateTime.now(UTC_ZONE).minusYears(1))));
+
+        // when
+        int removed = sentimentCache.removeExpired();
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(sentimentCache.getAll(Set.of(key))).isEmpty();
+        assertThat(sentimentCache.getStats().misses()).isEqualTo(1);
+    }
+
+    private static NewsSentimentDomain entry(String key, LocalDateTime analyzedAt) {
+        return new NewsSentimentDomain(key, "positive", BigDecimal.valueOf(90), analyzedAt);
+    }
+}
@@ -1,22 +1,34 @@
 package com.lucas.server.components.tradingbot.recommendation.mapper;
 
+import com.lucas.server.components.tradingbot.common.dto.SymbolDomain;
+import com.lucas.server.components.tradingbot.common.jpa.DataManager;
+import com.lucas.server.components.tradingbot.marketdata.dto.MarketDataDomain;
 import com.lucas.server.components.tradingbot.recommendation.dto.RecommendationDomain;
 import com.lucas.utils.exception.MappingException;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
 import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import static com.lucas.server.common.Constants.UTC_ZONE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 
 class RecommendationChatCompletionResponseMapperTest {
 
-    private final RecommendationChatCompletionResponseMapper mapper = new RecommendationChatCompletionResponseMapper();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RecommendationChatCompletionResponseMapper mapper =
+            new RecommendationChatCompletionResponseMapper(objectMapper);
 
     @Test
     void mapBuyRecommendation() throws Exception {
@@ -97,4 +109,63 @@ class RecommendationChatCompletionResponseMapperTest {
         // when & then
         assertThatThrownBy(() -> mapper.map(node)).isInstanceOf(MappingException.class);
     }
+
+    @Test
+    void mapStreamEmitsEachRecommendationAsItsObjectCloses() {
+        // given
+        Set<DataManager.SymbolPayload> payload = Set.of(payload("AAPL", 1L), payload("MSFT", 2L));
+        Flux<String> texts = Flux.just("```json\n[{\"symbol\": \"AAPL\", \"action\": \"BUY\", \"conf",
+                "idence\": \"0.8\", \"rationale\": \"Braces } and \\\"quotes\\\" in text\"},",
+                "{\"symbol\": \"MSFT\", \"action\": \"SELL\", \"confidence\": \"0.7\", \"rationale\": \"x\"}",
+                "]\n```");
+
+        // when
+        List<RecommendationDomain> result = mapper.mapStream(payload, texts, "input", "model").collectList().block();
+
+        // then
+        assertThat(result).extracting(r -> r.getSymbol().getName(), RecommendationDomain::getMarketDataId)
+                .containsExactly(tuple("AAPL", 1L), tuple("MSFT", 2L));
+        assertThat(result.getFirst().getRationale()).isEqualTo("Braces } and \"quotes\" in text");
+    }
+
+    @Test
+    void mapStreamFailsOnMalformedOutputKeepingEarlierRecommendations() {
+        // given
+        Set<DataManager.SymbolPayload> payload = Set.of(payload("AAPL", 1L), payload("MSFT", 2L));
+        Flux<String> texts = Flux.just(
+                "[{\"symbol\": \"AAPL\", \"action\": \"BUY\", \"confidence\": \"0.8\", \"rationale\": \"x\"}",
+                ", oops");
+        List<RecommendationDomain> emitted = new ArrayList<>();
+
+        // when
+        Throwable thrown = catchThrowable(() -> mapper.mapStream(payload, texts, "input", "model")
+                .doOnNext(emitted::add)
+                .blockLast());
+
+        // then
+        assertThat(Exceptions.unwrap(thrown)).isInstanceOf(MappingException.class);
+        assertThat(emitted).extracting(r -> r.getSymbol().getName()).containsExactly("AAPL");
+    }
+
+    @Test
+    void mapStreamFailsOnTruncatedOutput() {
+        // given
+        Set<DataManager.SymbolPayload> payload = Set.of(payload("AAPL", 1L));
+        Flux<String> texts = Flux.just("[{\"symbol\": \"AAPL\", \"action\": \"BU");
+
+        // when
+        Throwable thrown = catchThrowable(() -> mapper.mapStream(payload, texts, "input", "model").blockLast());
+
+        // then
+        assertThat(Exceptions.unwrap(thrown)).isInstanceOf(MappingException.class);
+    }
+
+    private static DataManager.SymbolPayload payload(String name, Long marketDataId) {
+        SymbolDomain symbol = new SymbolDomain().setName(name);
+        MarketDataDomain marketData = new MarketDataDomain().setId(marketDataId)
+                .setSymbol(symbol)
+                .setDate(LocalDate.now(UTC_ZONE));
+        return new DataManager.SymbolPayload(symbol, OrderedIndexedSet.of(marketData), null)
+                .setNews(OrderedIndexedSet.of());
+    }
 }
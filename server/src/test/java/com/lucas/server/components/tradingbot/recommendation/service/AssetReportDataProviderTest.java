@@ -24,9 +24,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static com.lucas.server.common.Constants.FIXED_DATE;
 import static com.lucas.server.common.Constants.HISTORY_DAYS_COUNT;
@@ -160,19 +163,29 @@ class AssetReportDataProviderTest extends ConfiguredTest {
                         "Headline 13",
                         "Headline 15");
 
-        // then: KPIs match the kpiGenerator calculations
+        // then: KPIs match the recursive indicators recomputed from the inserted closes
         OrderedIndexedSet<MarketDataDomain> mdHistory =
                 marketDataService.getTopForSymbolId(symbolService.getOrCreateByName(Set.of(symbol.getName()))
                         .stream()
                         .findFirst()
                         .orElseThrow()
                         .getId(), 100);
-
-        BigDecimal expectedEma20 = kpiGenerator.computeEma(mdHistory, 20).orElseThrow();
-        BigDecimal macdLine1226 = kpiGenerator.computeMacdLine(mdHistory, 12, 26).orElseThrow();
-        BigDecimal expectedMacdSignalLine9 = kpiGenerator.computeSignalLine(mdHistory, 9, 12, 26).orElseThrow();
-        BigDecimal expectedRsi14 = kpiGenerator.computeRsi(mdHistory.getFirst());
-        BigDecimal expectedAtr14 = kpiGenerator.computeRelativeAtr(mdHistory.getFirst());
+        MarketDataDomain current = mdHistory.getFirst();
+        List<BigDecimal> closes = mds.stream()
+                .sorted(Comparator.comparing(MarketDataDomain::getDate))
+                .map(MarketDataDomain::getPrice)
+                .toList();
+        List<BigDecimal> ema12 = recursiveEma(closes, 12);
+        List<BigDecimal> ema26 = recursiveEma(closes, 26);
+        List<BigDecimal> macd = IntStream.range(25, closes.size())
+                .mapToObj(i -> ema12.get(i).subtract(ema26.get(i)))
+                .toList();
+
+        BigDecimal expectedEma20 = recursiveEma(closes, 20).getLast().setScale(4, RoundingMode.HALF_UP);
+        BigDecimal macdLine1226 = macd.getLast().setScale(4, RoundingMode.HALF_UP);
+        BigDecimal expectedMacdSignalLine9 = recursiveEma(macd, 9).getLast().setScale(4, RoundingMode.HALF_UP);
+        BigDecimal expectedRsi14 = kpiGenerator.computeRsi(current);
+        BigDecimal expectedAtr14 = kpiGenerator.computeRelativeAtr(current);
         BigDecimal expectedObv20 = kpiGenerator.computeObv(mdHistory, 20).orElseThrow();
 
         assertThat(report.ema20()).isEqualByComparingTo(expectedEma20);
@@ -197,4 +210,25 @@ class AssetReportDataProviderTest extends ConfiguredTest {
         assertThat(report.unrealizedPercentPnL()).isEqualByComparingTo(BigDecimal.valueOf(350.0045)); // roughly (10
         // / 2.2) - 2.2
     }
+
+    /**
+     * @param values oldest first
+     * @param n      size
+     * @return the n-EMA after each value, null until the first n values seed it with their own EMA
+     */
+    private static List<BigDecimal> recursiveEma(List<BigDecimal> values, int n) {
+        BigDecimal k = BigDecimal.valueOf(2).divide(BigDecimal.valueOf(n + 1L), 8, RoundingMode.HALF_UP);
+        List<BigDecimal> res = new ArrayList<>();
+        BigDecimal ema = values.subList(0, n)
+                .stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(BigDecimal.valueOf(n), 8, RoundingMode.HALF_UP);
+        for (int i = 0; i < values.size(); i++) {
+            if (0 < i) {
+                ema = values.get(i).subtract(ema).multiply(k).add(ema).setScale(8, RoundingMode.HALF_UP);
+            }
+            res.add(n - 1 > i ? null : ema);
+        }
+        return res;
+    }
 }
@@ -0,0 +1,77 @@
+package com.lucas.server.components.tradingbot.recommendation.service;
+
+import com.lucas.server.ConfiguredTest;
+import com.lucas.server.components.tradingbot.recommendation.dto.CachedCompletionDomain;
+import com.lucas.server.components.tradingbot.recommendation.jpa.CachedCompletionJpaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static com.lucas.server.common.Constants.UTC_ZONE;
+import static com.lucas.utils.Utils.EMPTY_STRING;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompletionCacheTest extends ConfiguredTest {
+
+    @Autowired
+    private CompletionCache completionCache;
+    @Autowired
+    private CachedCompletionJpaService cachedCompletionService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        completionCache.clear();
+    }
+
+    @Test
+    void whenDeploymentOrMessagesDiffer_thenKeysDiffer() {
+        // given
+        List<JsonNode> prompt = List.of(message("system", "Be brief"), message("user", "AAPL"));
+
+        // when & then
+        assertThat(CompletionCache.key("gpt", prompt))
+                .isEqualTo(CompletionCache.key("gpt", List.of(message("system", "Be brief"), message("user", "AAPL"))))
+                .isNotEqualTo(CompletionCache.key("gemini", prompt))
+                .isNotEqualTo(CompletionCache.key("gpt",
+                        List.of(message("system", "Be brief AAPL"), message("user", EMPTY_STRING))));
+    }
+
+    @Test
+    void whenMemoryTierIsCleared_thenPersistedTierServesTheCompletion() {
+        // given
+        String key = CompletionCache.key("gpt", List.of(message("user", "AAPL")));
+        completionCache.put(key, "[{\"symbol\": \"AAPL\"}]");
+        completionCache.clear();
+
+        // when & then
+        assertThat(completionCache.get(key)).contains("[{\"symbol\": \"AAPL\"}]");
+        assertThat(completionCache.get(CompletionCache.key("gpt", List.of(message("user", "MSFT"))))).isEmpty();
+    }
+
+    @Test
+    void whenExpired_thenCompletionIsMissedAndRemoved() {
+        // given
+        String key = CompletionCache.key("gpt", List.of(message("user", "TSLA")));
+        cachedCompletionService.saveAll(Set.of(new CachedCompletionDomain(key,
+                "[]",
+                LocalDateTime.now(UTC_ZONE).minusDays(1))));
+
+        // when
+        int removed = completionCache.removeExpired();
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(completionCache.get(key)).isEmpty();
+    }
+
+    private JsonNode message(String role, String content) {
+        return objectMapper.createObjectNode().put("role", role).put("content", content);
+    }
+}
@@ -0,0 +1,256 @@
+package com.lucas.server.components.tradingbot.recommendation.service;
+
+import com.lucas.server.common.exception.ClientException;
+import com.lucas.server.components.tradingbot.common.AdaptiveRateLimiter;
+import com.lucas.server.components.tradingbot.common.AiClient;
+import com.lucas.server.components.tradingbot.common.AiClientScheduler;
+import com.lucas.server.components.tradingbot.config.AiProperties;
+import com.lucas.server.components.tradingbot.recommendation.dto.RecommendationDomain;
+import com.lucas.server.components.tradingbot.recommendation.mapper.AssetReportToMustacheMapper;
+import com.lucas.server.components.tradingbot.recommendation.mapper.RecommendationChatCompletionResponseMapper;
+import com.lucas.utils.orderedindexedset.OrderedIndexedSet;
+import com.lucas.utils.ratelimiter.DefaultSlidingWindowRateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RecommendationChatCompletionClientTest {
+
+    private final AssetReportToMustacheMapper assetReportToMustacheMapper = mock(AssetReportToMustacheMapper.class);
+    private final RecommendationChatCompletionResponseMapper mapper =
+            mock(RecommendationChatCompletionResponseMapper.class);
+    private final CompletionCache completionCache = mock(CompletionCache.class);
+    private final AiClientScheduler scheduler = spy(new AiClientScheduler());
+    private final RecommendationChatCompletionClient completionClient =
+            new RecommendationChatCompletionClient(mock(AssetReportDataProvider.class),
+                    assetReportToMustacheMapper,
+                    new ObjectMapper(),
+                    mapper,
+                    scheduler,
+                    completionCache);
+
+    @AfterEach
+    void tearDown() {
+        completionClient.shutdown();
+    }
+
+    @Test
+    void whenClientHasNoPermits_thenSweepIsRescheduledUntilItCompletes() throws Exception {
+        // given
+        AdaptiveRateLimiter adaptiveRateLimiter = mock(AdaptiveRateLimiter.class);
+        when(adaptiveRateLimiter.tryAcquirePermission()).thenReturn(false, true);
+        when(adaptiveRateLimiter.timeUntilPermission()).thenReturn(Duration.ZERO);
+        AiClient client = client(adaptiveRateLimiter);
+        when(client.completeAsync(any())).thenReturn(Mono.just("[]"));
+        when(assetReportToMustacheMapper.map(anySet())).thenReturn("{\"role\": \"user\", \"content\": \"report\"}");
+        RecommendationDomain recommendation = new RecommendationDomain();
+        when(mapper.mapAll(any(), any(), any(), any())).thenReturn(Set.of(recommendation));
+        Set<RecommendationDomain> received = ConcurrentHashMap.newKeySet();
+
+        // when
+        Set<RecommendationDomain> recommendations = completionClient.getRecommendationsAsync(Set.of(),
+                OrderedIndexedSet.of(client),
+                false,
+                true,
+                received::addAll).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(recommendations).containsExactly(recommendation);
+        assertThat(received).containsExactly(recommendation);
+        verify(adaptiveRateLimiter, times(2)).tryAcquirePermission();
+        verify(adaptiveRateLimiter, atLeastOnce()).timeUntilPermission();
+        verify(client, times(1)).completeAsync(any());
+    }
+
+    @Test
+    void whenCompletionIsCached_thenItIsReplayedWithoutRequest() throws Exception {
+        // given
+        AdaptiveRateLimiter adaptiveRateLimiter = mock(AdaptiveRateLimiter.class);
+        AiClient client = client(adaptiveRateLimiter);
+        when(completionCache.get(anyString())).thenReturn(Optional.of("[]"));
+        when(assetReportToMustacheMapper.map(anySet())).thenReturn("{\"role\": \"user\", \"content\": \"report\"}");
+        RecommendationDomain recommendation = new RecommendationDomain();
+        when(mapper.mapAll(any(), any(), any(), any())).thenReturn(Set.of(recommendation));
+        Set<RecommendationDomain> received = ConcurrentHashMap.newKeySet();
+
+        // when
+        Set<RecommendationDomain> recommendations = completionClient.getRecommendationsAsync(Set.of(),
+                OrderedIndexedSet.of(client),
+                false,
+                false,
+                received::addAll).get(5, TimeUnit.SECONDS);
+
+        // then
+        assertThat(recommendations).containsExactly(recommendation);
+        assertThat(received).containsExactly(recommendation);
+        verify(adaptiveRateLimiter, never()).tryAcquirePermission();
+        verify(client, never()).completeAsync(any());
+        verify(completionCache, never()).put(anyString(), anyString());
+    }
+
+    @Test
+    void whenCacheIsBypassed_thenCompletionIsRequestedAndCached() throws Exception {
+        // given
+        AdaptiveRateLimiter adaptiveRateLimiter = mock(AdaptiveRateLimiter.class);
+        when(adaptiveRateLimiter.tryAcquirePermission()).thenReturn(true);
+        AiClient client = client(adaptiveRateLimiter);
+        when(client.completeAsync(any())).thenReturn(Mono.just("[]"));
+        when(completionCache.get(anyString())).thenReturn(Optional.of("[]"));
+        doThrow(new IllegalStateException()).when(completionCache).put(anyString(), anyString());
+        when(assetReportToMustacheMapper.map(anySet())).thenReturn("{\"role\": \"user\", \"content\": \"report\"}");
+        RecommendationDomain recommendation = new RecommendationDomain();
+        when(mapper.mapAll(any(), any(), any(), any())).thenReturn(Set.of(recommendation));
+        Set<RecommendationDomain> received = ConcurrentHashMap.newKeySet();
+
+        // when
+        Set<RecommendationDomain> recommendations = completionClient.getRecommendationsAsync(Set.of(),
+                OrderedIndexedSet.of(client),
+                false,
+                true,
+                received::addAll).get(5, TimeUnit.SECONDS);
+
+        // then: the failed caching does not fail the recommendations
+        assertThat(recommendations).containsExactly(recommendation);
+        assertThat(received).containsExactly(recommendation);
+        verify(completionCache, never()).get(anyString());
+        verify(client, times(1)).completeAsync(any());
+        verify(completionCache, times(1)).put(anyString(), eq("[]"));
+    }
+
+    @Test
+    void whenFixedWindowRefuses_thenPacingSlotIsReleased() throws Exception {
+        // given
+        AdaptiveRateLimiter adaptiveRateLimiter = mock(AdaptiveRateLimiter.class);
+        when(adaptiveRateLimiter.tryAcquirePermission()).thenReturn(true);
+        when(adaptiveRateLimiter.timeUntilPermission()).thenReturn(Duration.ZERO);
+        AiClient client = client(adaptiveRateLimiter);
+        DefaultSlidingWindowRateLimiter moreRestrictiveRateLimiter =
+                spy(new DefaultSlidingWindowRateLimiter(10, Duration.ofMinutes(1)));
+        doReturn(Optional.empty()).doCallRealMethod().when(moreRestrictiveRateLimiter).tryCall(any());
+        when(client.getMoreRestrictiveRateLimiter()).thenReturn(moreRestrictiveRateLimiter);
+        when(client.completeAsync(any())).thenReturn(Mono.just("[]"));
+        when(assetReportToMustacheMapper.map(anySet())).thenReturn("{\"role\": \"user\", \"content\": \"report\"}");
+        when(mapper.mapAll(any(), any(), any(), any())).thenReturn(Set.of(new RecommendationDomain()));
+
+        // when
+        completionClient.getRecommendationsAsync(Set.of(),
+                OrderedIndexedSet.of(client),
+                false,
+                true,
+                _ -> {
+                }).get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(adaptiveRateLimiter, times(2)).tryAcquirePermission();
+        verify(adaptiveRateLimiter, times(1)).releasePermission();
+        verify(client, times(1)).completeAsync(any());
+    }
+
+    @Test
+    void whenCompletionThrowsSynchronously_thenErrorIsRecorded() {
+        // given
+        AdaptiveRateLimiter adaptiveRateLimiter = mock(AdaptiveRateLimiter.class);
+        when(adaptiveRateLimiter.tryAcquirePermission()).thenReturn(true);
+        AiClient client = client(adaptiveRateLimiter);
+        when(client.completeAsync(any())).thenThrow(new IllegalStateException());
+        when(assetReportToMustacheMapper.map(anySet())).thenReturn("{\"role\": \"user\", \"content\": \"report\"}");
+
+        // when
+        CompletableFuture<Set<RecommendationDomain>> recommendations =
+                completionClient.getRecommendationsAsync(Set.of(),
+                        OrderedIndexedSet.of(client),
+                        false,
+                        true,
+                        _ -> {
+                        });
+
+        // then
+        assertThat(recommendations).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(ClientException.class);
+        verify(scheduler, times(1)).begin(client);
+        verify(scheduler, times(1)).recordError(eq(client), any());
+    }
+
+    @Test
+    void whenCompletionsArePending_thenConcurrencyPermitsAreHeldUntilTheyEnd() throws Exception {
+        // given
+        AdaptiveRateLimiter adaptiveRateLimiter = mock(AdaptiveRateLimiter.class);
+        when(adaptiveRateLimiter.tryAcquirePermission()).thenReturn(true);
+        when(adaptiveRateLimiter.timeUntilPermission()).thenReturn(Duration.ZERO);
+        AiClient client = client(adaptiveRateLimiter);
+        Sinks.One<String> response = Sinks.one();
+        when(client.completeAsync(any())).thenReturn(response.asMono());
+        when(assetReportToMustacheMapper.map(anySet())).thenReturn("{\"role\": \"user\", \"content\": \"report\"}");
+        when(mapper.mapAll(any(), any(), any(), any())).thenReturn(Set.of(new RecommendationDomain()));
+
+        // when: the client allows two concurrent requests
+        List<CompletableFuture<Set<RecommendationDomain>>> recommendations = IntStream.range(0, 3)
+                .mapToObj(_ -> completionClient.getRecommendationsAsync(Set.of(),
+                        OrderedIndexedSet.of(client),
+                        false,
+                        true,
+                        _ -> {
+                        }))
+                .toList();
+
+        // then
+        verify(client, after(500).times(2)).completeAsync(any());
+        response.tryEmitValue("[]");
+        CompletableFuture.allOf(recommendations.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        verify(client, times(3)).completeAsync(any());
+    }
+
+    private static AiClient client(AdaptiveRateLimiter adaptiveRateLimiter) {
+        AiClient client = mock(AiClient.class);
+        when(client.getConfig()).thenReturn(new AiProperties.DeploymentProperties("gpt",
+                "key",
+                null,
+                "model",
+                null,
+                null,
+                null,
+                10,
+                2,
+                null,
+                null,
+                false,
+                false,
+                null,
+                null));
+        when(client.getMoreRestrictiveRateLimiter()).thenReturn(new DefaultSlidingWindowRateLimiter(10,
+                Duration.ofMinutes(1)));
+        when(client.getLessRestrictiveRateLimiter()).thenReturn(new DefaultSlidingWindowRateLimiter(2,
+                Duration.ofSeconds(1)));
+        when(client.getAdaptiveRateLimiter()).thenReturn(adaptiveRateLimiter);
+        return client;
+    }
+}